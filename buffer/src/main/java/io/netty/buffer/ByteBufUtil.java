@@ -18,8 +18,10 @@ package io.netty.buffer;
 import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
+import io.netty.util.ResourceLeakDetector;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -58,9 +60,25 @@ public final class ByteBufUtil {
         }
     };
 
+    // Long enough for a bracketed IPv6 address with an embedded IPv4 address and a short scope ID.
+    private static final int IP_ADDRESS_MAX_LENGTH = 64;
+    private static final FastThreadLocal<byte[]> IP_ADDRESS_BYTES = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() throws Exception {
+            return new byte[IP_ADDRESS_MAX_LENGTH];
+        }
+    };
+
     private static final byte WRITE_UTF_UNKNOWN = (byte) '?';
     private static final int MAX_CHAR_BUFFER_SIZE;
     private static final int THREAD_LOCAL_BUFFER_SIZE;
+    // Searches of fewer bytes are not worth reading words.
+    private static final int MIN_WORD_SEARCH_LENGTH = 16;
+    static final int WORD_SEARCH_UNSUPPORTED = -2;
+    // Buffer memory is only read a word at a time if unaligned reads are supported.
+    private static final boolean WORD_SEARCH = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+    private static final long CR_PATTERN = wordPattern((byte) '\r');
+    private static final long LF_PATTERN = wordPattern((byte) '\n');
     private static final int MAX_BYTES_PER_CHAR_UTF8 =
             (int) CharsetUtil.encoder(CharsetUtil.UTF_8).maxBytesPerChar();
 
@@ -92,6 +110,14 @@ public final class ByteBufUtil {
         logger.debug("-Dio.netty.maxThreadLocalCharBufferSize: {}", MAX_CHAR_BUFFER_SIZE);
     }
 
+    /**
+     * Returns the {@link ResourceLeakDetector} that tracks the leaks of all {@link ByteBuf}s, e.g. for exposing
+     * {@link ResourceLeakDetector#leakCount()} and {@link ResourceLeakDetector#leakSites()} as metrics.
+     */
+    public static ResourceLeakDetector<ByteBuf> leakDetector() {
+        return AbstractByteBuf.leakDetector;
+    }
+
     /**
      * Returns a <a href="http://en.wikipedia.org/wiki/Hex_dump">hex dump</a>
      * of the specified buffer's readable bytes.
@@ -373,9 +399,167 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        if (buffer instanceof AbstractByteBuf && toIndex - fromIndex >= MIN_WORD_SEARCH_LENGTH) {
+            ((AbstractByteBuf) buffer).checkIndex(fromIndex, toIndex - fromIndex);
+            long pattern = wordPattern(value);
+            int index = indexOfWords(buffer, fromIndex, toIndex, pattern, pattern);
+            if (index != WORD_SEARCH_UNSUPPORTED) {
+                return index;
+            }
+        }
         return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
     }
 
+    /**
+     * Returns the index of the first occurrence of the readable bytes of {@code needle} in the readable bytes of
+     * {@code haystack}, or {@code -1} if {@code needle} is not found.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleLength = needle.readableBytes();
+        final int haystackIndex = haystack.readerIndex();
+        final int lastIndex = haystack.writerIndex() - needleLength;
+        if (lastIndex < haystackIndex) {
+            return -1;
+        }
+        if (needleLength == 0) {
+            return haystackIndex;
+        }
+
+        // Find the candidates by searching the first byte, which is done a word at a time where possible.
+        final int needleIndex = needle.readerIndex();
+        final byte first = needle.getByte(needleIndex);
+        for (int i = haystackIndex; i <= lastIndex; i ++) {
+            i = haystack.indexOf(i, lastIndex + 1, first);
+            if (i == -1) {
+                break;
+            }
+            if (equals(needle, needleIndex + 1, haystack, i + 1, needleLength - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the byte {@code processor} searches for if it is one of the well-known single byte searches of
+     * {@link ByteProcessor}, or {@code -1}.
+     */
+    static int byteToFind(ByteProcessor processor) {
+        if (processor == ByteProcessor.FIND_LF) {
+            return '\n';
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return '\r';
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the well-known searches of {@link ByteProcessor} on {@code [fromIndex, toIndex)} of {@code buffer} a word
+     * at a time. Returns {@link #WORD_SEARCH_UNSUPPORTED} if {@code processor} is not such a search or the memory of
+     * {@code buffer} can not be read directly. The caller must have checked the indexes.
+     */
+    static int forEachByteWords(ByteBuf buffer, int fromIndex, int toIndex, ByteProcessor processor) {
+        if (toIndex - fromIndex < MIN_WORD_SEARCH_LENGTH) {
+            return WORD_SEARCH_UNSUPPORTED;
+        }
+        if (processor == ByteProcessor.FIND_CRLF) {
+            return indexOfWords(buffer, fromIndex, toIndex, CR_PATTERN, LF_PATTERN);
+        }
+        int value = byteToFind(processor);
+        if (value == -1) {
+            return WORD_SEARCH_UNSUPPORTED;
+        }
+        long pattern = wordPattern((byte) value);
+        return indexOfWords(buffer, fromIndex, toIndex, pattern, pattern);
+    }
+
+    private static long wordPattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    private static int indexOfWords(ByteBuf buffer, int fromIndex, int toIndex, long pattern1, long pattern2) {
+        if (!WORD_SEARCH) {
+            return WORD_SEARCH_UNSUPPORTED;
+        }
+        if (buffer.hasMemoryAddress()) {
+            long address = buffer.memoryAddress();
+            int index = indexOfWords(address + fromIndex, address + toIndex, pattern1, pattern2);
+            return index == -1 ? -1 : fromIndex + index;
+        }
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            int index = indexOfWords(buffer.array(), offset + fromIndex, offset + toIndex, pattern1, pattern2);
+            return index == -1 ? -1 : index - offset;
+        }
+        return WORD_SEARCH_UNSUPPORTED;
+    }
+
+    /**
+     * Returns the offset of the first byte of {@code [address, endAddress)} that matches one of the patterns, or
+     * {@code -1}.
+     */
+    private static int indexOfWords(long address, long endAddress, long pattern1, long pattern2) {
+        long i = address;
+        for (long wordEnd = endAddress - 7; i < wordEnd; i += 8) {
+            long word = PlatformDependent.getLong(i);
+            long matches = matches(word, pattern1) | matches(word, pattern2);
+            if (matches != 0) {
+                return (int) (i - address) + firstMatch(matches);
+            }
+        }
+        for (; i < endAddress; i ++) {
+            byte b = PlatformDependent.getByte(i);
+            if (b == (byte) pattern1 || b == (byte) pattern2) {
+                return (int) (i - address);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first byte of {@code array} in {@code [fromIndex, toIndex)} that matches one of the
+     * patterns, or {@code -1}.
+     */
+    private static int indexOfWords(byte[] array, int fromIndex, int toIndex, long pattern1, long pattern2) {
+        int i = fromIndex;
+        for (int wordEnd = toIndex - 7; i < wordEnd; i += 8) {
+            long word = PlatformDependent.getLong(array, i);
+            long matches = matches(word, pattern1) | matches(word, pattern2);
+            if (matches != 0) {
+                return i + firstMatch(matches);
+            }
+        }
+        for (; i < toIndex; i ++) {
+            byte b = array[i];
+            if (b == (byte) pattern1 || b == (byte) pattern2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a word with the high bit set in every byte of {@code word} that equals the byte of {@code pattern}, and
+     * all other bits cleared. Unlike {@code (x - 0x01..) & ~x & 0x80..} this has no false positives.
+     */
+    private static long matches(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    /**
+     * Returns the position in memory of the first byte flagged by {@link #matches(long, long)}.
+     */
+    private static int firstMatch(long matches) {
+        return (PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ?
+                Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3;
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
@@ -702,6 +886,28 @@ public final class ByteBufUtil {
         return v;
     }
 
+    /**
+     * Parses the US-ASCII encoded IPv4 or IPv6 address of {@code length} bytes at {@code index} of {@code buf} into
+     * {@code dst} without creating any garbage.
+     *
+     * @return {@code 4} for an IPv4 address, {@code 16} for an IPv6 address and {@code 0} if the bytes are not a
+     *         valid IP address
+     * @see NetUtil#ipAddressToBytes(CharSequence, int, int, byte[], int)
+     */
+    public static int ipAddressToBytes(ByteBuf buf, int index, int length, byte[] dst, int dstIndex) {
+        if (isOutOfBounds(index, length, buf.capacity())) {
+            throw new IndexOutOfBoundsException("expected: " + "0 <= index(" + index + ") <= index + length(" + length
+                    + ") <= " + "buf.capacity(" + buf.capacity() + ')');
+        }
+        if (buf.hasArray()) {
+            int offset = buf.arrayOffset() + index;
+            return NetUtil.ipAddressToBytes(buf.array(), offset, offset + length, dst, dstIndex);
+        }
+        byte[] ip = length <= IP_ADDRESS_MAX_LENGTH ? IP_ADDRESS_BYTES.get() : new byte[length];
+        buf.getBytes(index, ip, 0, length);
+        return NetUtil.ipAddressToBytes(ip, 0, length, dst, dstIndex);
+    }
+
     /**
      * Copies the content of {@code src} to a {@link ByteBuf} using {@link ByteBuf#writeBytes(byte[], int, int)}.
      * @param src The source of the data to copy.
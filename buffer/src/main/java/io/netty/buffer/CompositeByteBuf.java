@@ -15,6 +15,7 @@
  */
 package io.netty.buffer;
 
+import io.netty.util.ByteProcessor;
 import io.netty.util.internal.EmptyArrays;
 
 import java.io.IOException;
@@ -31,7 +32,6 @@ import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -45,12 +45,18 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
     private static final Iterator<ByteBuf> EMPTY_ITERATOR = Collections.<ByteBuf>emptyList().iterator();
+    private static final Component[] EMPTY_COMPONENTS = new Component[0];
 
     private final ByteBufAllocator alloc;
     private final boolean direct;
-    private final List<Component> components;
     private final int maxNumComponents;
 
+    // The components and their cumulative offsets, so a component can be found by a binary search of its offset.
+    private Component[] components;
+    private int componentCount;
+    // The component found by the last lookup, index-based access is usually sequential.
+    private Component lastAccessed;
+
     private boolean freed;
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
@@ -61,7 +67,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(maxNumComponents);
     }
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, ByteBuf... buffers) {
@@ -82,7 +88,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(maxNumComponents);
 
         addComponents0(false, 0, buffers, offset, len);
         consolidateIfNeeded();
@@ -103,15 +109,15 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(maxNumComponents);
 
         addComponents0(false, 0, buffers);
         consolidateIfNeeded();
         setIndex(0, capacity());
     }
 
-    private static List<Component> newList(int maxNumComponents) {
-        return new ArrayList<Component>(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
+    private static Component[] newCompArray(int maxNumComponents) {
+        return new Component[Math.max(0, Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents))];
     }
 
     // Special constructor used by WrappedCompositeByteBuf
@@ -120,7 +126,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         direct = false;
         maxNumComponents = 0;
-        components = Collections.emptyList();
+        components = EMPTY_COMPONENTS;
     }
 
     /**
@@ -192,7 +198,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public CompositeByteBuf addComponent(boolean increaseWriterIndex, ByteBuf buffer) {
         checkNotNull(buffer, "buffer");
-        addComponent0(increaseWriterIndex, components.size(), buffer);
+        addComponent0(increaseWriterIndex, componentCount, buffer);
         consolidateIfNeeded();
         return this;
     }
@@ -207,7 +213,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * ownership of all {@link ByteBuf} objects is transfered to this {@link CompositeByteBuf}.
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, ByteBuf... buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers, 0, buffers.length);
+        addComponents0(increaseWriterIndex, componentCount, buffers, 0, buffers.length);
         consolidateIfNeeded();
         return this;
     }
@@ -222,7 +228,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * ownership of all {@link ByteBuf} objects is transfered to this {@link CompositeByteBuf}.
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, Iterable<ByteBuf> buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers);
+        addComponents0(increaseWriterIndex, componentCount, buffers);
         consolidateIfNeeded();
         return this;
     }
@@ -255,23 +261,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             int readableBytes = buffer.readableBytes();
 
             // No need to consolidate - just add a component to the list.
-            @SuppressWarnings("deprecation")
-            Component c = new Component(buffer.order(ByteOrder.BIG_ENDIAN).slice());
-            if (cIndex == components.size()) {
-                wasAdded = components.add(c);
-                if (cIndex == 0) {
-                    c.endOffset = readableBytes;
-                } else {
-                    Component prev = components.get(cIndex - 1);
-                    c.offset = prev.endOffset;
-                    c.endOffset = c.offset + readableBytes;
+            Component c = newComponent(buffer);
+            addComp(cIndex, c);
+            wasAdded = true;
+            if (cIndex == componentCount - 1) {
+                if (cIndex != 0) {
+                    c.offset = components[cIndex - 1].endOffset;
                 }
+                c.endOffset = c.offset + readableBytes;
             } else {
-                components.add(cIndex, c);
-                wasAdded = true;
-                if (readableBytes != 0) {
-                    updateComponentOffsets(cIndex);
-                }
+                updateComponentOffsets(cIndex);
             }
             if (increaseWriterIndex) {
                 writerIndex(writerIndex() + buffer.readableBytes());
@@ -304,27 +303,52 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
-    private int addComponents0(boolean increaseWriterIndex, int cIndex, ByteBuf[] buffers, int offset, int len) {
+    private int addComponents0(boolean increaseWriterIndex, final int cIndex, ByteBuf[] buffers, int offset, int len) {
         checkNotNull(buffers, "buffers");
         int i = offset;
         try {
             checkComponentIndex(cIndex);
 
-            // No need for consolidation
-            while (i < len) {
-                // Increment i now to prepare for the next iteration and prevent a duplicate release (addComponent0
-                // will release if an exception occurs, and we also release in the finally block here).
-                ByteBuf b = buffers[i++];
-                if (b == null) {
-                    break;
+            // Like adding the buffers one by one, stop at the first null buffer.
+            int end = i;
+            while (end < len && buffers[end] != null) {
+                end ++;
+            }
+
+            // No need for consolidation. Make room for all buffers at once instead of shifting the following
+            // components and updating their offsets once per buffer.
+            final int count = end - i;
+            shiftComps(cIndex, count);
+            int ci = cIndex;
+            int addedBytes = 0;
+            try {
+                while (i < end) {
+                    // Increment i now to prevent a duplicate release (the buffer is released below if an exception
+                    // occurs, and we also release in the finally block here).
+                    ByteBuf b = buffers[i++];
+                    boolean wasAdded = false;
+                    try {
+                        Component c = newComponent(b);
+                        components[ci ++] = c;
+                        addedBytes += c.length;
+                        wasAdded = true;
+                    } finally {
+                        if (!wasAdded) {
+                            b.release();
+                        }
+                    }
+                }
+            } finally {
+                if (ci < cIndex + count) {
+                    // Remove the room left for the buffers that could not be added.
+                    removeCompRange(ci, cIndex + count);
                 }
-                cIndex = addComponent0(increaseWriterIndex, cIndex, b) + 1;
-                int size = components.size();
-                if (cIndex > size) {
-                    cIndex = size;
+                updateComponentOffsets(cIndex);
+                if (increaseWriterIndex) {
+                    writerIndex(writerIndex() + addedBytes);
                 }
             }
-            return cIndex;
+            return ci;
         } finally {
             for (; i < len; ++i) {
                 ByteBuf b = buffers[i];
@@ -398,64 +422,112 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private void consolidateIfNeeded() {
         // Consolidate if the number of components will exceed the allowed maximum by the current
         // operation.
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents > maxNumComponents) {
-            final int capacity = components.get(numComponents - 1).endOffset;
+            final int capacity = components[numComponents - 1].endOffset;
 
             ByteBuf consolidated = allocBuffer(capacity);
 
             // We're not using foreach to avoid creating an iterator.
             for (int i = 0; i < numComponents; i ++) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf b = c.buf;
                 consolidated.writeBytes(b);
                 c.freeIfNecessary();
             }
             Component c = new Component(consolidated);
             c.endOffset = c.length;
-            components.clear();
-            components.add(c);
+            removeCompRange(0, numComponents);
+            addComp(0, c);
         }
     }
 
     private void checkComponentIndex(int cIndex) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex > components.size()) {
+        if (cIndex < 0 || cIndex > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d (expected: >= 0 && <= numComponents(%d))",
-                    cIndex, components.size()));
+                    cIndex, componentCount));
         }
     }
 
     private void checkComponentIndex(int cIndex, int numComponents) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex + numComponents > components.size()) {
+        if (cIndex < 0 || cIndex + numComponents > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d, numComponents: %d " +
                     "(expected: cIndex >= 0 && cIndex + numComponents <= totalNumComponents(%d))",
-                    cIndex, numComponents, components.size()));
+                    cIndex, numComponents, componentCount));
         }
     }
 
     private void updateComponentOffsets(int cIndex) {
-        int size = components.size();
+        int size = componentCount;
         if (size <= cIndex) {
             return;
         }
 
-        Component c = components.get(cIndex);
-        if (cIndex == 0) {
-            c.offset = 0;
-            c.endOffset = c.length;
-            cIndex ++;
+        int offset = cIndex == 0 ? 0 : components[cIndex - 1].endOffset;
+        for (int i = cIndex; i < size; i ++) {
+            Component c = components[i];
+            c.offset = offset;
+            offset += c.length;
+            c.endOffset = offset;
         }
+    }
 
-        for (int i = cIndex; i < size; i ++) {
-            Component prev = components.get(i - 1);
-            Component cur = components.get(i);
-            cur.offset = prev.endOffset;
-            cur.endOffset = cur.offset + cur.length;
+    @SuppressWarnings("deprecation")
+    private static Component newComponent(ByteBuf buffer) {
+        return new Component(buffer.order(ByteOrder.BIG_ENDIAN).slice());
+    }
+
+    private void addComp(int cIndex, Component c) {
+        shiftComps(cIndex, 1);
+        components[cIndex] = c;
+    }
+
+    /**
+     * Make room for {@code count} components at {@code cIndex}, the caller needs to fill the room.
+     */
+    private void shiftComps(int cIndex, int count) {
+        final int size = componentCount;
+        final int newSize = size + count;
+        assert cIndex >= 0 && cIndex <= size && count >= 0;
+        if (newSize > components.length) {
+            Component[] newArr = new Component[Math.max(size + (size >> 1), newSize)];
+            System.arraycopy(components, 0, newArr, 0, cIndex);
+            System.arraycopy(components, cIndex, newArr, cIndex + count, size - cIndex);
+            components = newArr;
+        } else if (cIndex < size) {
+            System.arraycopy(components, cIndex, components, cIndex + count, size - cIndex);
+        }
+        componentCount = newSize;
+    }
+
+    private void removeComp(int cIndex) {
+        removeCompRange(cIndex, cIndex + 1);
+    }
+
+    private void removeCompRange(int from, int to) {
+        final int size = componentCount;
+        assert from >= 0 && from <= to && to <= size;
+        if (from == to) {
+            return;
+        }
+        if (to < size) {
+            System.arraycopy(components, to, components, from, size - to);
         }
+        final int newSize = size - to + from;
+        for (int i = newSize; i < size; i ++) {
+            components[i] = null;
+        }
+        componentCount = newSize;
+        lastAccessed = null;
+    }
+
+    private void setComp(int cIndex, Component c) {
+        components[cIndex] = c;
+        lastAccessed = null;
     }
 
     /**
@@ -464,8 +536,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param cIndex the index on from which the {@link ByteBuf} will be remove
      */
     public CompositeByteBuf removeComponent(int cIndex) {
-        checkComponentIndex(cIndex);
-        Component comp = components.remove(cIndex);
+        checkComponentIndex(cIndex, 1);
+        Component comp = components[cIndex];
+        removeComp(cIndex);
         comp.freeIfNecessary();
         if (comp.length > 0) {
             // Only need to call updateComponentOffsets if the length was > 0
@@ -486,15 +559,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (numComponents == 0) {
             return this;
         }
-        List<Component> toRemove = components.subList(cIndex, cIndex + numComponents);
+        final int endCIndex = cIndex + numComponents;
         boolean needsUpdate = false;
-        for (Component c: toRemove) {
+        for (int i = cIndex; i < endCIndex; i ++) {
+            Component c = components[i];
             if (c.length > 0) {
                 needsUpdate = true;
             }
             c.freeIfNecessary();
         }
-        toRemove.clear();
+        removeCompRange(cIndex, endCIndex);
 
         if (needsUpdate) {
             // Only need to call updateComponentOffsets if the length was > 0
@@ -506,7 +580,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     @Override
     public Iterator<ByteBuf> iterator() {
         ensureAccessible();
-        if (components.isEmpty()) {
+        if (componentCount == 0) {
             return EMPTY_ITERATOR;
         }
         return new CompositeByteBufIterator();
@@ -522,10 +596,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         int componentId = toComponentIndex(offset);
-        List<ByteBuf> slice = new ArrayList<ByteBuf>(components.size());
+        List<ByteBuf> slice = new ArrayList<ByteBuf>(componentCount);
 
         // The first component
-        Component firstC = components.get(componentId);
+        Component firstC = components[componentId];
         ByteBuf first = firstC.buf.duplicate();
         first.readerIndex(offset - firstC.offset);
 
@@ -545,7 +619,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 componentId ++;
 
                 // Fetch the next component.
-                buf = components.get(componentId).buf.duplicate();
+                buf = components[componentId].buf.duplicate();
             }
         } while (bytesToSlice > 0);
 
@@ -559,12 +633,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean isDirect() {
-        int size = components.size();
+        int size = componentCount;
         if (size == 0) {
             return false;
         }
         for (int i = 0; i < size; i++) {
-           if (!components.get(i).buf.isDirect()) {
+           if (!components[i].buf.isDirect()) {
                return false;
            }
         }
@@ -573,11 +647,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasArray() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return true;
         case 1:
-            return components.get(0).buf.hasArray();
+            return components[0].buf.hasArray();
         default:
             return false;
         }
@@ -585,11 +659,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public byte[] array() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EmptyArrays.EMPTY_BYTES;
         case 1:
-            return components.get(0).buf.array();
+            return components[0].buf.array();
         default:
             throw new UnsupportedOperationException();
         }
@@ -597,11 +671,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int arrayOffset() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 0;
         case 1:
-            return components.get(0).buf.arrayOffset();
+            return components[0].buf.arrayOffset();
         default:
             throw new UnsupportedOperationException();
         }
@@ -609,11 +683,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasMemoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.hasMemoryAddress();
         case 1:
-            return components.get(0).buf.hasMemoryAddress();
+            return components[0].buf.hasMemoryAddress();
         default:
             return false;
         }
@@ -621,11 +695,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public long memoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.memoryAddress();
         case 1:
-            return components.get(0).buf.memoryAddress();
+            return components[0].buf.memoryAddress();
         default:
             throw new UnsupportedOperationException();
         }
@@ -633,11 +707,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int capacity() {
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents == 0) {
             return 0;
         }
-        return components.get(numComponents - 1).endOffset;
+        return components[numComponents - 1].endOffset;
     }
 
     @Override
@@ -651,26 +725,26 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (newCapacity > oldCapacity) {
             final int paddingLength = newCapacity - oldCapacity;
             ByteBuf padding;
-            int nComponents = components.size();
+            int nComponents = componentCount;
             if (nComponents < maxNumComponents) {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
             } else {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
                 // FIXME: No need to create a padding buffer and consolidate.
                 // Just create a big single buffer and put the current content there.
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
                 consolidateIfNeeded();
             }
         } else if (newCapacity < oldCapacity) {
             int bytesToTrim = oldCapacity - newCapacity;
-            for (ListIterator<Component> i = components.listIterator(components.size()); i.hasPrevious();) {
-                Component c = i.previous();
+            for (int i = componentCount - 1; i >= 0; i --) {
+                Component c = components[i];
                 if (bytesToTrim >= c.length) {
                     bytesToTrim -= c.length;
-                    i.remove();
+                    removeComp(i);
                     continue;
                 }
 
@@ -678,7 +752,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 Component newC = new Component(c.buf.slice(0, c.length - bytesToTrim));
                 newC.offset = c.offset;
                 newC.endOffset = newC.offset + newC.length;
-                i.set(newC);
+                setComp(i, newC);
                 break;
             }
 
@@ -705,7 +779,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * Return the current number of {@link ByteBuf}'s that are composed in this instance
      */
     public int numComponents() {
-        return components.size();
+        return componentCount;
     }
 
     /**
@@ -721,9 +795,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public int toComponentIndex(int offset) {
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        for (int low = 0, high = componentCount - 1; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
+            Component c = components[mid];
             if (offset >= c.endOffset) {
                 low = mid + 1;
             } else if (offset < c.offset) {
@@ -738,7 +812,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     public int toByteIndex(int cIndex) {
         checkComponentIndex(cIndex);
-        return components.get(cIndex).offset;
+        return components[cIndex].offset;
     }
 
     @Override
@@ -848,6 +922,49 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
     }
 
+    @Override
+    int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        if (end <= start) {
+            return -1;
+        }
+        // Let each component process its part, instead of looking up the component of every byte.
+        for (int i = toComponentIndex(start), length = end - start; length > 0; i ++) {
+            Component c = components[i];
+            if (c.length == 0) {
+                continue;
+            }
+            int localLength = Math.min(length, c.endOffset - start);
+            int result = c.buf.forEachByte(start - c.offset, localLength, processor);
+            if (result != -1) {
+                return c.offset + result;
+            }
+            start += localLength;
+            length -= localLength;
+        }
+        return -1;
+    }
+
+    @Override
+    int forEachByteDesc0(int rStart, int rEnd, ByteProcessor processor) throws Exception {
+        if (rStart < rEnd) {
+            return -1;
+        }
+        for (int i = toComponentIndex(rStart), length = rStart - rEnd + 1; length > 0; i --) {
+            Component c = components[i];
+            if (c.length == 0) {
+                continue;
+            }
+            int localLength = Math.min(length, rStart - c.offset + 1);
+            int result = c.buf.forEachByteDesc(rStart - c.offset - localLength + 1, localLength, processor);
+            if (result != -1) {
+                return c.offset + result;
+            }
+            rStart -= localLength;
+            length -= localLength;
+        }
+        return -1;
+    }
+
     @Override
     public CompositeByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
         checkDstIndex(index, length, dstIndex, dst.length);
@@ -857,7 +974,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -883,7 +1000,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
                 int adjustment = c.offset;
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -908,7 +1025,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -964,7 +1081,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1129,7 +1246,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1155,7 +1272,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
                 int adjustment = c.offset;
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1180,7 +1297,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1204,7 +1321,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int readBytes = 0;
 
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1247,7 +1364,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1295,7 +1412,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1348,7 +1465,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = componentId;
 
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1390,7 +1507,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public ByteBuf internalComponent(int cIndex) {
         checkComponentIndex(cIndex);
-        return components.get(cIndex).buf;
+        return components[cIndex].buf;
     }
 
     /**
@@ -1406,15 +1523,21 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private Component findComponent(int offset) {
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        Component la = lastAccessed;
+        if (la != null && offset >= la.offset && offset < la.endOffset) {
+            return la;
+        }
+
+        for (int low = 0, high = componentCount - 1; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
+            Component c = components[mid];
             if (offset >= c.endOffset) {
                 low = mid + 1;
             } else if (offset < c.offset) {
                 high = mid - 1;
             } else {
                 assert c.length != 0;
+                lastAccessed = c;
                 return c;
             }
         }
@@ -1424,16 +1547,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int nioBufferCount() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 1;
         case 1:
-            return components.get(0).buf.nioBufferCount();
+            return components[0].buf.nioBufferCount();
         default:
             int count = 0;
-            int componentsCount = components.size();
+            int componentsCount = componentCount;
             for (int i = 0; i < componentsCount; i++) {
-                Component c = components.get(i);
+                Component c = components[i];
                 count += c.buf.nioBufferCount();
             }
             return count;
@@ -1442,11 +1565,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public ByteBuffer internalNioBuffer(int index, int length) {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            return components.get(0).buf.internalNioBuffer(index, length);
+            return components[0].buf.internalNioBuffer(index, length);
         default:
             throw new UnsupportedOperationException();
         }
@@ -1456,23 +1579,18 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public ByteBuffer nioBuffer(int index, int length) {
         checkIndex(index, length);
 
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            ByteBuf buf = components.get(0).buf;
+            ByteBuf buf = components[0].buf;
             if (buf.nioBufferCount() == 1) {
-                return components.get(0).buf.nioBuffer(index, length);
+                return components[0].buf.nioBuffer(index, length);
             }
         }
 
         ByteBuffer merged = ByteBuffer.allocate(length).order(order());
-        ByteBuffer[] buffers = nioBuffers(index, length);
-
-        for (ByteBuffer buf: buffers) {
-            merged.put(buf);
-        }
-
+        getBytes(index, merged);
         merged.flip();
         return merged;
     }
@@ -1484,21 +1602,39 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return new ByteBuffer[] { EMPTY_NIO_BUFFER };
         }
 
-        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(components.size());
-        int i = toComponentIndex(index);
+        // Count the buffers first, so the result is the only array that is allocated.
+        final int firstCIndex = toComponentIndex(index);
+        int count = 0;
+        for (int i = firstCIndex, remaining = length, idx = index; remaining > 0; i ++) {
+            Component c = components[i];
+            int localLength = Math.min(remaining, c.endOffset - idx);
+            if (localLength > 0) {
+                int n = c.buf.nioBufferCount();
+                if (n == 0) {
+                    throw new UnsupportedOperationException();
+                }
+                count += n;
+            }
+            idx += localLength;
+            remaining -= localLength;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        int bufIndex = 0;
+        int i = firstCIndex;
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            switch (s.nioBufferCount()) {
-                case 0:
-                    throw new UnsupportedOperationException();
-                case 1:
-                    buffers.add(s.nioBuffer(index - adjustment, localLength));
-                    break;
-                default:
-                    Collections.addAll(buffers, s.nioBuffers(index - adjustment, localLength));
+            if (localLength > 0) {
+                if (s.nioBufferCount() == 1) {
+                    buffers[bufIndex ++] = s.nioBuffer(index - adjustment, localLength);
+                } else {
+                    ByteBuffer[] nioBuffers = s.nioBuffers(index - adjustment, localLength);
+                    System.arraycopy(nioBuffers, 0, buffers, bufIndex, nioBuffers.length);
+                    bufIndex += nioBuffers.length;
+                }
             }
 
             index += localLength;
@@ -1506,7 +1642,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             i ++;
         }
 
-        return buffers.toArray(new ByteBuffer[buffers.size()]);
+        if (bufIndex != count) {
+            // A component returned fewer buffers for the range than it counts in total.
+            ByteBuffer[] trimmed = new ByteBuffer[bufIndex];
+            System.arraycopy(buffers, 0, trimmed, 0, bufIndex);
+            return trimmed;
+        }
+        return buffers;
     }
 
     /**
@@ -1519,19 +1661,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return this;
         }
 
-        final Component last = components.get(numComponents - 1);
+        final Component last = components[numComponents - 1];
         final int capacity = last.endOffset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = 0; i < numComponents; i ++) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf b = c.buf;
             consolidated.writeBytes(b);
             c.freeIfNecessary();
         }
 
-        components.clear();
-        components.add(new Component(consolidated));
+        removeCompRange(0, numComponents);
+        addComp(0, new Component(consolidated));
         updateComponentOffsets(0);
         return this;
     }
@@ -1549,19 +1691,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         final int endCIndex = cIndex + numComponents;
-        final Component last = components.get(endCIndex - 1);
-        final int capacity = last.endOffset - components.get(cIndex).offset;
+        final Component last = components[endCIndex - 1];
+        final int capacity = last.endOffset - components[cIndex].offset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = cIndex; i < endCIndex; i ++) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf b = c.buf;
             consolidated.writeBytes(b);
             c.freeIfNecessary();
         }
 
-        components.subList(cIndex + 1, endCIndex).clear();
-        components.set(cIndex, new Component(consolidated));
+        removeCompRange(cIndex + 1, endCIndex);
+        setComp(cIndex, new Component(consolidated));
         updateComponentOffsets(cIndex);
         return this;
     }
@@ -1579,10 +1721,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            for (int i = 0; i < componentCount; i ++) {
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, componentCount);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1591,12 +1733,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
-        components.subList(0, firstComponentId).clear();
+        removeCompRange(0, firstComponentId);
 
         // Update indexes and markers.
-        Component first = components.get(0);
+        Component first = components[0];
         int offset = first.offset;
         updateComponentOffsets(0);
         setIndex(readerIndex - offset, writerIndex - offset);
@@ -1615,10 +1757,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            for (int i = 0; i < componentCount; i ++) {
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, componentCount);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1627,19 +1769,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
-        components.subList(0, firstComponentId).clear();
+        removeCompRange(0, firstComponentId);
 
         // Remove or replace the first readable component with a new slice.
-        Component c = components.get(0);
+        Component c = components[0];
         int adjustment = readerIndex - c.offset;
         if (adjustment == c.length) {
             // new slice would be empty, so remove instead
-            components.remove(0);
+            removeComp(0);
         } else {
             Component newC = new Component(c.buf.slice(adjustment, c.length - adjustment));
-            components.set(0, newC);
+            setComp(0, newC);
         }
 
         // Update indexes and markers.
@@ -1657,7 +1799,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public String toString() {
         String result = super.toString();
         result = result.substring(0, result.length() - 1);
-        return result + ", components=" + components.size() + ')';
+        return result + ", components=" + componentCount + ')';
     }
 
     private static final class Component {
@@ -1933,11 +2075,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         freed = true;
-        int size = components.size();
+        int size = componentCount;
         // We're not using foreach to avoid creating an iterator.
         // see https://github.com/netty/netty/issues/2642
         for (int i = 0; i < size; i++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
     }
 
@@ -1947,7 +2089,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     }
 
     private final class CompositeByteBufIterator implements Iterator<ByteBuf> {
-        private final int size = components.size();
+        private final int size = componentCount;
         private int index;
 
         @Override
@@ -1957,14 +2099,14 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         @Override
         public ByteBuf next() {
-            if (size != components.size()) {
+            if (size != componentCount) {
                 throw new ConcurrentModificationException();
             }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
             try {
-                return components.get(index++).buf;
+                return components[index++].buf;
             } catch (IndexOutOfBoundsException e) {
                 throw new ConcurrentModificationException();
             }
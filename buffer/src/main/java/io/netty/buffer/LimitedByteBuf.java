@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A buffer allocated by a {@link LimitedByteBufAllocator}. Keeps the charge of the allocator in sync with the
+ * capacity of the buffer and gives it back once the buffer is deallocated.
+ */
+final class LimitedByteBuf extends WrappedByteBuf {
+
+    private final LimitedByteBufAllocator.Charge charge;
+
+    LimitedByteBuf(ByteBuf buf, LimitedByteBufAllocator.Charge charge) {
+        super(buf);
+        this.charge = charge;
+    }
+
+    @Override
+    public boolean release() {
+        boolean deallocated = super.release();
+        if (deallocated) {
+            charge.close();
+        }
+        return deallocated;
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        boolean deallocated = super.release(decrement);
+        if (deallocated) {
+            charge.close();
+        }
+        return deallocated;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        buf.capacity(newCapacity);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf ensureWritable(int minWritableBytes) {
+        buf.ensureWritable(minWritableBytes);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public int ensureWritable(int minWritableBytes, boolean force) {
+        int ret = buf.ensureWritable(minWritableBytes, force);
+        charge.sync();
+        return ret;
+    }
+
+    @Override
+    public ByteBuf writeBoolean(boolean value) {
+        buf.writeBoolean(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeByte(int value) {
+        buf.writeByte(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeShort(int value) {
+        buf.writeShort(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeShortLE(int value) {
+        buf.writeShortLE(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeMedium(int value) {
+        buf.writeMedium(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeMediumLE(int value) {
+        buf.writeMediumLE(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeInt(int value) {
+        buf.writeInt(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeIntLE(int value) {
+        buf.writeIntLE(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLong(long value) {
+        buf.writeLong(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLongLE(long value) {
+        buf.writeLongLE(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeChar(int value) {
+        buf.writeChar(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeFloat(float value) {
+        buf.writeFloat(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeDouble(double value) {
+        buf.writeDouble(value);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src) {
+        buf.writeBytes(src);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src, int length) {
+        buf.writeBytes(src, length);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuf src, int srcIndex, int length) {
+        buf.writeBytes(src, srcIndex, length);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(byte[] src) {
+        buf.writeBytes(src);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(byte[] src, int srcIndex, int length) {
+        buf.writeBytes(src, srcIndex, length);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeBytes(ByteBuffer src) {
+        buf.writeBytes(src);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public int writeBytes(InputStream in, int length) throws IOException {
+        int ret = buf.writeBytes(in, length);
+        charge.sync();
+        return ret;
+    }
+
+    @Override
+    public int writeBytes(ScatteringByteChannel in, int length) throws IOException {
+        int ret = buf.writeBytes(in, length);
+        charge.sync();
+        return ret;
+    }
+
+    @Override
+    public int writeBytes(FileChannel in, long position, int length) throws IOException {
+        int ret = buf.writeBytes(in, position, length);
+        charge.sync();
+        return ret;
+    }
+
+    @Override
+    public ByteBuf writeZero(int length) {
+        buf.writeZero(length);
+        charge.sync();
+        return this;
+    }
+
+    @Override
+    public int writeCharSequence(CharSequence sequence, Charset charset) {
+        int ret = buf.writeCharSequence(sequence, charset);
+        charge.sync();
+        return ret;
+    }
+
+    @Override
+    public ByteBuf order(ByteOrder endianness) {
+        if (order() == endianness) {
+            return this;
+        } else {
+            return new LimitedByteBuf(super.order(endianness), charge);
+        }
+    }
+
+    @Override
+    public ByteBuf slice() {
+        return new LimitedByteBuf(super.slice(), charge);
+    }
+
+    @Override
+    public ByteBuf retainedSlice() {
+        return new LimitedByteBuf(super.retainedSlice(), charge);
+    }
+
+    @Override
+    public ByteBuf slice(int index, int length) {
+        return new LimitedByteBuf(super.slice(index, length), charge);
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return new LimitedByteBuf(super.retainedSlice(index, length), charge);
+    }
+
+    @Override
+    public ByteBuf duplicate() {
+        return new LimitedByteBuf(super.duplicate(), charge);
+    }
+
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return new LimitedByteBuf(super.retainedDuplicate(), charge);
+    }
+
+    @Override
+    public ByteBuf readSlice(int length) {
+        return new LimitedByteBuf(super.readSlice(length), charge);
+    }
+
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        return new LimitedByteBuf(super.readRetainedSlice(length), charge);
+    }
+
+    @Override
+    public ByteBuf asReadOnly() {
+        return new LimitedByteBuf(super.asReadOnly(), charge);
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A view of another {@link ByteBufAllocator} that limits the number of bytes of the buffers allocated through it.
+ * <p>
+ * Every buffer is charged its capacity until it is deallocated, including the growth caused by writes. An
+ * allocation that would exceed the limit fails with an {@link AllocationLimitExceededException}, while the
+ * {@linkplain #addListener(LimitedByteBufAllocatorListener) listeners} are notified once the soft limit is reached,
+ * so they can slow down the producers, e.g. by turning off auto-read of the channels that use the allocator, before
+ * allocations start to fail.
+ * <p>
+ * Limits can be nested: a {@link LimitedByteBufAllocator} created on top of another one is charged against its own
+ * limit and against the limits of all its parents, so a process wide budget can be split per listener or per tenant.
+ * Composite buffers are not charged themselves, only the components allocated from this allocator are. The same is
+ * true for buffers allocated via {@link ByteBuf#alloc()}, which returns the allocator this one allocates from.
+ */
+public final class LimitedByteBufAllocator implements ByteBufAllocator {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(LimitedByteBufAllocator.class);
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+    private static final int HEAP = 0;
+    private static final int DIRECT = 1;
+    private static final int BUFFER = 2;
+    private static final int IO_BUFFER = 3;
+
+    private final ByteBufAllocator allocator;
+    private final LimitedByteBufAllocator parent;
+    private final long maxBytes;
+    private final long softLimit;
+    private final AtomicLong usedBytes = new AtomicLong();
+    // Only changed while holding softLimitLock, so the listeners see exceeded and recovered strictly alternating.
+    private volatile boolean softLimitExceeded;
+    private final Object softLimitLock = new Object();
+    private final List<LimitedByteBufAllocatorListener> listeners =
+            new CopyOnWriteArrayList<LimitedByteBufAllocatorListener>();
+
+    /**
+     * Create a new instance without soft limit.
+     *
+     * @param allocator the allocator to allocate from. If it is a {@link LimitedByteBufAllocator} itself, the
+     *                  buffers are also charged against its limits.
+     * @param maxBytes  the maximum number of bytes of all buffers allocated through this allocator.
+     */
+    public LimitedByteBufAllocator(ByteBufAllocator allocator, long maxBytes) {
+        this(allocator, maxBytes, maxBytes);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param allocator the allocator to allocate from. If it is a {@link LimitedByteBufAllocator} itself, the
+     *                  buffers are also charged against its limits.
+     * @param maxBytes  the maximum number of bytes of all buffers allocated through this allocator.
+     * @param softLimit the number of bytes at which the listeners are notified.
+     */
+    public LimitedByteBufAllocator(ByteBufAllocator allocator, long maxBytes, long softLimit) {
+        if (allocator == null) {
+            throw new NullPointerException("allocator");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes + " (expected: > 0)");
+        }
+        if (softLimit <= 0 || softLimit > maxBytes) {
+            throw new IllegalArgumentException(
+                    "softLimit: " + softLimit + " (expected: 0 < softLimit <= maxBytes(" + maxBytes + "))");
+        }
+        if (allocator instanceof LimitedByteBufAllocator) {
+            parent = (LimitedByteBufAllocator) allocator;
+            this.allocator = parent.allocator;
+        } else {
+            parent = null;
+            this.allocator = allocator;
+        }
+        this.maxBytes = maxBytes;
+        this.softLimit = softLimit;
+    }
+
+    /**
+     * Return the {@link LimitedByteBufAllocator} this allocator is nested in, or {@code null}.
+     */
+    public LimitedByteBufAllocator parent() {
+        return parent;
+    }
+
+    /**
+     * Return the maximum number of bytes of all buffers allocated through this allocator.
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Return the number of bytes at which the listeners are notified.
+     */
+    public long softLimit() {
+        return softLimit;
+    }
+
+    /**
+     * Return the number of bytes of all buffers that were allocated through this allocator and not released yet.
+     */
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Return {@code true} if the soft limit was reached and the used bytes did not drop to half of it since.
+     */
+    public boolean isSoftLimitExceeded() {
+        return softLimitExceeded;
+    }
+
+    /**
+     * Add a listener which is notified when the soft limit is exceeded and recovered.
+     */
+    public void addListener(LimitedByteBufAllocatorListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener which was added by {@link #addListener(LimitedByteBufAllocatorListener)}.
+     */
+    public void removeListener(LimitedByteBufAllocatorListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public ByteBuf buffer() {
+        return buffer(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public ByteBuf buffer(int initialCapacity) {
+        return buffer(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ByteBuf buffer(int initialCapacity, int maxCapacity) {
+        return newBuffer(BUFFER, initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf ioBuffer() {
+        return ioBuffer(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public ByteBuf ioBuffer(int initialCapacity) {
+        return ioBuffer(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ByteBuf ioBuffer(int initialCapacity, int maxCapacity) {
+        return newBuffer(IO_BUFFER, initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf heapBuffer() {
+        return heapBuffer(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public ByteBuf heapBuffer(int initialCapacity) {
+        return heapBuffer(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ByteBuf heapBuffer(int initialCapacity, int maxCapacity) {
+        return newBuffer(HEAP, initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public ByteBuf directBuffer() {
+        return directBuffer(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public ByteBuf directBuffer(int initialCapacity) {
+        return directBuffer(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ByteBuf directBuffer(int initialCapacity, int maxCapacity) {
+        return newBuffer(DIRECT, initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer() {
+        return allocator.compositeBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeBuffer(int maxNumComponents) {
+        return allocator.compositeBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer() {
+        return allocator.compositeHeapBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeHeapBuffer(int maxNumComponents) {
+        return allocator.compositeHeapBuffer(maxNumComponents);
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer() {
+        return allocator.compositeDirectBuffer();
+    }
+
+    @Override
+    public CompositeByteBuf compositeDirectBuffer(int maxNumComponents) {
+        return allocator.compositeDirectBuffer(maxNumComponents);
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return allocator.isDirectBufferPooled();
+    }
+
+    @Override
+    public int calculateNewCapacity(int minNewCapacity, int maxCapacity) {
+        return allocator.calculateNewCapacity(minNewCapacity, maxCapacity);
+    }
+
+    private ByteBuf newBuffer(int type, int initialCapacity, int maxCapacity) {
+        // Reserve the requested capacity up front, the actual capacity of the buffer is charged once it exists.
+        final int reserved = Math.max(0, initialCapacity);
+        reserve(reserved);
+        final ByteBuf buf;
+        try {
+            switch (type) {
+            case HEAP:
+                buf = allocator.heapBuffer(initialCapacity, maxCapacity);
+                break;
+            case DIRECT:
+                buf = allocator.directBuffer(initialCapacity, maxCapacity);
+                break;
+            case BUFFER:
+                buf = allocator.buffer(initialCapacity, maxCapacity);
+                break;
+            case IO_BUFFER:
+                buf = allocator.ioBuffer(initialCapacity, maxCapacity);
+                break;
+            default:
+                throw new Error();
+            }
+        } catch (Throwable cause) {
+            charge(-reserved);
+            PlatformDependent.throwException(cause);
+            return null;
+        }
+        Charge charge = new Charge(this, buf, reserved);
+        charge.sync();
+        return new LimitedByteBuf(buf, charge);
+    }
+
+    /**
+     * Charge {@code bytes} against this allocator and all its parents, or fail if one of them would exceed its limit.
+     */
+    private void reserve(int bytes) {
+        LimitedByteBufAllocator a = this;
+        while (a != null && a.tryCharge(bytes)) {
+            a = a.parent;
+        }
+        if (a != null) {
+            for (LimitedByteBufAllocator b = this; b != a; b = b.parent) {
+                b.charged(b.usedBytes.addAndGet(-bytes));
+            }
+            throw new AllocationLimitExceededException("failed to allocate " + bytes + " byte(s) (used: " +
+                    a.usedBytes() + ", max: " + a.maxBytes + ')');
+        }
+    }
+
+    private boolean tryCharge(int bytes) {
+        for (;;) {
+            long used = usedBytes.get();
+            long newUsed = used + bytes;
+            if (newUsed > maxBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, newUsed)) {
+                charged(newUsed);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Charge {@code bytes}, which may be negative, against this allocator and all its parents without checking the
+     * limits.
+     */
+    void charge(long bytes) {
+        for (LimitedByteBufAllocator a = this; a != null; a = a.parent) {
+            a.charged(a.usedBytes.addAndGet(bytes));
+        }
+    }
+
+    private void charged(long newUsed) {
+        if (newUsed >= softLimit ? !softLimitExceeded : newUsed <= softLimit >>> 1 && softLimitExceeded) {
+            updateSoftLimitState();
+        }
+    }
+
+    /**
+     * Flip the soft limit state and notify the listeners until the state matches the used bytes. Another thread may
+     * change the used bytes while the listeners run, so they are checked again after every notification.
+     */
+    private void updateSoftLimitState() {
+        synchronized (softLimitLock) {
+            for (;;) {
+                long used = usedBytes.get();
+                if (!softLimitExceeded && used >= softLimit) {
+                    softLimitExceeded = true;
+                    for (LimitedByteBufAllocatorListener l: listeners) {
+                        try {
+                            l.softLimitExceeded(this);
+                        } catch (Throwable t) {
+                            logger.warn("An exception was thrown by {}.softLimitExceeded()",
+                                    l.getClass().getName(), t);
+                        }
+                    }
+                } else if (softLimitExceeded && used <= softLimit >>> 1) {
+                    softLimitExceeded = false;
+                    for (LimitedByteBufAllocatorListener l: listeners) {
+                        try {
+                            l.softLimitRecovered(this);
+                        } catch (Throwable t) {
+                            logger.warn("An exception was thrown by {}.softLimitRecovered()",
+                                    l.getClass().getName(), t);
+                        }
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(used: " + usedBytes() + ", softLimit: " + softLimit +
+                ", max: " + maxBytes + ')';
+    }
+
+    /**
+     * The bytes charged for a buffer and all buffers derived from it.
+     */
+    static final class Charge {
+        private static final AtomicIntegerFieldUpdater<Charge> CHARGED_UPDATER;
+
+        static {
+            AtomicIntegerFieldUpdater<Charge> updater =
+                    PlatformDependent.newAtomicIntegerFieldUpdater(Charge.class, "charged");
+            if (updater == null) {
+                updater = AtomicIntegerFieldUpdater.newUpdater(Charge.class, "charged");
+            }
+            CHARGED_UPDATER = updater;
+        }
+
+        // Value of charged once the bytes were given back.
+        private static final int CLOSED = -1;
+
+        private final LimitedByteBufAllocator allocator;
+        private final ByteBuf buf;
+        // Updated by CHARGED_UPDATER, sync() and close() may be called concurrently by any thread using the buffer.
+        private volatile int charged;
+
+        Charge(LimitedByteBufAllocator allocator, ByteBuf buf, int charged) {
+            this.allocator = allocator;
+            this.buf = buf;
+            this.charged = charged;
+        }
+
+        /**
+         * Charge the difference between the current capacity of the buffer and the bytes charged so far.
+         */
+        void sync() {
+            for (;;) {
+                int charged = this.charged;
+                if (charged == CLOSED) {
+                    return;
+                }
+                int capacity = buf.capacity();
+                if (capacity == charged) {
+                    return;
+                }
+                if (CHARGED_UPDATER.compareAndSet(this, charged, capacity)) {
+                    allocator.charge(capacity - charged);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Give back the charged bytes if the buffer was deallocated.
+         */
+        void close() {
+            if (buf.refCnt() != 0) {
+                return;
+            }
+            for (;;) {
+                int charged = this.charged;
+                if (charged == CLOSED) {
+                    return;
+                }
+                if (CHARGED_UPDATER.compareAndSet(this, charged, CLOSED)) {
+                    allocator.charge(-charged);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import java.util.EventListener;
+
+/**
+ * Listens to a {@link LimitedByteBufAllocator} crossing its soft limit.
+ * <p>
+ * The notifications of an allocator are serialized and always alternate between
+ * {@link #softLimitExceeded(LimitedByteBufAllocator)} and {@link #softLimitRecovered(LimitedByteBufAllocator)}.
+ * They are invoked by whichever thread crossed the limit, and other threads crossing it wait until the listeners
+ * returned, so a listener should dispatch any work to the threads that own the affected resources instead of doing
+ * it inline.
+ */
+public interface LimitedByteBufAllocatorListener extends EventListener {
+
+    /**
+     * Invoked by the allocating thread once the bytes used by the allocator reached its soft limit.
+     */
+    void softLimitExceeded(LimitedByteBufAllocator allocator);
+
+    /**
+     * Invoked by the releasing thread once the bytes used by the allocator dropped to half of its soft limit, after
+     * {@link #softLimitExceeded(LimitedByteBufAllocator)} was invoked.
+     */
+    void softLimitRecovered(LimitedByteBufAllocator allocator);
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A region of a file which is memory-mapped lazily and read through read-only {@link ByteBuf} views.
+ * <p>
+ * The file is split into regions of {@link #regionSize()} bytes which are only mapped once a view of them is
+ * requested via {@link #slice(long, int)}. Each view shares the reference count of the region it was taken from, so
+ * a region is unmapped as soon as this {@link MappedFile} and all views of the region were released, instead of
+ * whenever the garbage collector gets to it. Views can be written to a channel or passed through handlers like
+ * {@code SslHandler} without copying the content of the file to the heap first.
+ * <p>
+ * The {@link FileChannel} is not closed by this class and must stay open as long as views of regions which were not
+ * mapped yet are requested. Regions which were already mapped stay valid after it was closed.
+ */
+public final class MappedFile extends AbstractReferenceCounted {
+
+    static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+    private final int regionSize;
+    private final ReadOnlyMappedByteBuf[] regions;
+    // Regions below this index were discarded and are not cached anymore, see discardRegionsBefore(long).
+    private int discardedRegions;
+
+    MappedFile(FileChannel channel, long position, long length, int regionSize) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected: >= 0)");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length + " (expected: >= 0)");
+        }
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("regionSize: " + regionSize + " (expected: > 0)");
+        }
+        long numRegions = (length + regionSize - 1) / regionSize;
+        if (numRegions > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "length: " + length + " (expected: <= " + (long) Integer.MAX_VALUE * regionSize + ')');
+        }
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        this.regionSize = regionSize;
+        regions = new ReadOnlyMappedByteBuf[(int) numRegions];
+    }
+
+    /**
+     * Returns the number of bytes of the file that can be accessed through this {@link MappedFile}.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the size of the regions in which the file is mapped.
+     */
+    public int regionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Returns a read-only view of {@code length} bytes of the file starting at {@code index}, relative to the position
+     * this {@link MappedFile} was created with. The region that contains the view is mapped if it was not mapped yet.
+     * A view which spans more than one region is mapped on its own.
+     * <p>
+     * The returned buffer must be released by the caller. It stays readable after this {@link MappedFile} was
+     * released.
+     */
+    public ByteBuf slice(long index, int length) throws IOException {
+        if (index < 0 || length < 0 || index > this.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "index: " + index + ", length: " + length + " (expected: range(0, " + this.length + "))");
+        }
+        if (refCnt() == 0) {
+            throw new IllegalReferenceCountException(0);
+        }
+        if (length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        int regionIdx = (int) (index / regionSize);
+        long regionStart = (long) regionIdx * regionSize;
+        if (index + length <= regionStart + regionSize) {
+            synchronized (this) {
+                if (regionIdx >= discardedRegions) {
+                    return region(regionIdx).retainedSlice((int) (index - regionStart), length);
+                }
+            }
+        }
+        // Spans more than one region or the region was discarded, map it on its own.
+        return newRegion(index, length);
+    }
+
+    /**
+     * Releases the regions which end at or before {@code index}, so each of them is unmapped as soon as all its views
+     * were released instead of when this {@link MappedFile} is. Call this while reading the file sequentially to only
+     * keep the regions mapped that are still in use. Views of discarded regions requested later are mapped on their
+     * own.
+     */
+    public synchronized void discardRegionsBefore(long index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index: " + index + " (expected: >= 0)");
+        }
+        int end = (int) Math.min(regions.length, index / regionSize);
+        for (int i = discardedRegions; i < end; i ++) {
+            ReadOnlyMappedByteBuf region = regions[i];
+            if (region != null) {
+                regions[i] = null;
+                // Unmaps the region if there are no views of it left.
+                region.release();
+            }
+        }
+        discardedRegions = Math.max(discardedRegions, end);
+    }
+
+    private ReadOnlyMappedByteBuf region(int idx) throws IOException {
+        assert Thread.holdsLock(this);
+        if (refCnt() == 0) {
+            throw new IllegalReferenceCountException(0);
+        }
+        ReadOnlyMappedByteBuf region = regions[idx];
+        if (region == null) {
+            long start = (long) idx * regionSize;
+            region = newRegion(start, (int) Math.min(regionSize, length - start));
+            regions[idx] = region;
+        }
+        return region;
+    }
+
+    private ReadOnlyMappedByteBuf newRegion(long index, int length) throws IOException {
+        MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, position + index, length);
+        return new ReadOnlyMappedByteBuf(UnpooledByteBufAllocator.DEFAULT, mapped);
+    }
+
+    @Override
+    protected synchronized void deallocate() {
+        for (int i = 0; i < regions.length; i ++) {
+            ReadOnlyMappedByteBuf region = regions[i];
+            if (region != null) {
+                regions[i] = null;
+                // Unmaps the region if there are no views of it left.
+                region.release();
+            }
+        }
+    }
+
+    @Override
+    public MappedFile retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public MappedFile retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public MappedFile touch() {
+        return this;
+    }
+
+    @Override
+    public MappedFile touch(Object hint) {
+        return this;
+    }
+}
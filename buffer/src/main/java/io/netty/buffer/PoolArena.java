@@ -16,14 +16,19 @@
 
 package io.netty.buffer;
 
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
 import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Math.max;
@@ -47,6 +52,11 @@ import static java.lang.Math.max;
 abstract class PoolArena<T> implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
+    // Once that many remote frees are pending the freeing thread drains them itself, so the queue stays bounded even
+    // if the threads of the arena stop allocating.
+    static final int MAX_PENDING_REMOTE_FREES =
+            max(1, SystemPropertyUtil.getInt("io.netty.allocator.maxPendingRemoteFrees", 256));
+
     enum SizeClass {
         Tiny,
         Small,
@@ -63,6 +73,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     final int chunkSize;
     final int subpageOverflowMask;
     final int numSmallSubpagePools;
+    final boolean fineSizeClasses;
 
     /**
      * 小内存分配共用 page: 先分配10字节，再分配20字节 ，这2次分配使用的同一次page对象
@@ -70,77 +81,120 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
-    private final PoolChunkList<T> q050;
-    private final PoolChunkList<T> q025;
-    private final PoolChunkList<T> q000;
-    private final PoolChunkList<T> qInit;
-    private final PoolChunkList<T> q075;
-    private final PoolChunkList<T> q100;
+    // Each stripe has its own PoolChunkLists and lock, see PoolChunkListStripe.
+    private final PoolChunkListStripe<T>[] stripes;
+    private final AtomicInteger nextStripeIdx = new AtomicInteger();
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
     // Metrics for allocations and deallocations
-    private long allocationsNormal;
     // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
-    private long deallocationsSmall;
-    private long deallocationsNormal;
+    private final LongCounter deallocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
 
     // We need to use the LongCounter here as this is not guarded via synchronized block.
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Metrics for chunks released by PoolArenaSweeper
+    private final LongCounter releasedChunks = PlatformDependent.newLongCounter();
+    private final LongCounter releasedChunkBytes = PlatformDependent.newLongCounter();
+
+    // Metrics for thread caches backed by this arena, indexed like the MemoryRegionCaches of PoolThreadCache.
+    private final LongCounter[] tinyCacheHits;
+    private final LongCounter[] smallCacheHits;
+    private final LongCounter[] normalCacheHits;
+    private final LongCounter[] tinyCacheMisses;
+    private final LongCounter[] smallCacheMisses;
+    private final LongCounter[] normalCacheMisses;
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
+    // Number of thread caches of event loop threads bound to this arena, see PooledByteBufAllocator.
+    final AtomicInteger numBoundThreadCaches = new AtomicInteger();
+
+    // Frees done by threads other than the one that allocated the buffer, handed back in batches by the threads that
+    // allocate from this arena, the PoolArenaSweeper or, once MAX_PENDING_REMOTE_FREES are pending, the freeing
+    // thread. null if frees are always done by the freeing thread.
+    private final Queue<RemoteFree> remoteFrees;
+    private final AtomicBoolean drainingRemoteFrees;
+    private final AtomicInteger pendingRemoteFrees;
+
+    // Chunks of released huge buffers kept for reuse, null if huge chunks are always destroyed on release.
+    private final PoolHugeChunkCache<T> hugeChunkCache;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        boolean fineSizeClasses, int numStripes, boolean batchRemoteFrees,
+                        long hugeChunkCacheSize, long hugeChunkCacheIdleNanos) {
         this.parent = parent;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
         this.pageShifts = pageShifts;
         this.chunkSize = chunkSize;
-        subpageOverflowMask = ~(pageSize - 1);
+        this.fineSizeClasses = fineSizeClasses;
+        // With fine size classes everything below 4 pages is served out of (possibly multi-page) subpages.
+        subpageOverflowMask = fineSizeClasses ? ~((pageSize << 2) - 1) : ~(pageSize - 1);
         tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
         for (int i = 0; i < tinySubpagePools.length; i++) {
             //创建 sub page ,每一个对象的上下节点默认是自身
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        numSmallSubpagePools = pageShifts - 9;
+        // 512, 1024, ... pageSize / 2 or, with fine size classes, 4 classes per doubling from 512 up to 4 pages.
+        numSmallSubpagePools = fineSizeClasses ? pageShifts - 7 << 2 : pageShifts - 9;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i++) {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        q100 = new PoolChunkList<T>(null, 100, Integer.MAX_VALUE, chunkSize);
-        q075 = new PoolChunkList<T>(q100, 75, 100, chunkSize);
-        q050 = new PoolChunkList<T>(q075, 50, 100, chunkSize);
-        q025 = new PoolChunkList<T>(q050, 25, 75, chunkSize);
-        q000 = new PoolChunkList<T>(q025, 1, 50, chunkSize);
-        qInit = new PoolChunkList<T>(q000, Integer.MIN_VALUE, 25, chunkSize);
-
-        q100.prevList(q075);
-        q075.prevList(q050);
-        q050.prevList(q025);
-        q025.prevList(q000);
-        q000.prevList(null);
-        qInit.prevList(qInit);
-
-        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(6);
-        metrics.add(qInit);
-        metrics.add(q000);
-        metrics.add(q025);
-        metrics.add(q050);
-        metrics.add(q075);
-        metrics.add(q100);
+        int numNormalCaches = max(1, normalCacheIdx(chunkSize) + 1);
+        tinyCacheHits = newLongCounterArray(numTinySubpagePools);
+        tinyCacheMisses = newLongCounterArray(numTinySubpagePools);
+        smallCacheHits = newLongCounterArray(numSmallSubpagePools);
+        smallCacheMisses = newLongCounterArray(numSmallSubpagePools);
+        normalCacheHits = newLongCounterArray(numNormalCaches);
+        normalCacheMisses = newLongCounterArray(numNormalCaches);
+
+        stripes = newStripeArray(numStripes);
+        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(6 * numStripes);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new PoolChunkListStripe<T>(chunkSize);
+            metrics.addAll(stripes[i].chunkListMetrics);
+        }
         chunkListMetrics = Collections.unmodifiableList(metrics);
+
+        if (batchRemoteFrees) {
+            remoteFrees = PlatformDependent.newMpscQueue();
+            drainingRemoteFrees = new AtomicBoolean();
+            pendingRemoteFrees = new AtomicInteger();
+        } else {
+            remoteFrees = null;
+            drainingRemoteFrees = null;
+            pendingRemoteFrees = null;
+        }
+        hugeChunkCache = hugeChunkCacheSize > 0 ?
+                new PoolHugeChunkCache<T>(this, hugeChunkCacheSize, hugeChunkCacheIdleNanos) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private PoolChunkListStripe<T>[] newStripeArray(int size) {
+        return new PoolChunkListStripe[size];
+    }
+
+    /**
+     * Returns the stripe that should be used by a new {@link PoolThreadCache}. Stripes are handed out round-robin.
+     */
+    int nextStripeIdx() {
+        return stripes.length == 1 ? 0 : (nextStripeIdx.getAndIncrement() & Integer.MAX_VALUE) % stripes.length;
     }
 
     private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
@@ -176,7 +230,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return normCapacity >>> 4;
     }
 
-    static int smallIdx(int normCapacity) {
+    int smallIdx(int normCapacity) {
+        if (fineSizeClasses) {
+            return fineSizeIdx(normCapacity, 9);
+        }
         int tableIdx = 0;
         int i = normCapacity >>> 10;
         while (i != 0) {
@@ -186,7 +243,66 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return tableIdx;
     }
 
-    // capacity < pageSize
+    /**
+     * Returns the index of the {@link PoolThreadCache} normal cache that is used for the given normalized capacity.
+     */
+    int normalCacheIdx(int normCapacity) {
+        if (fineSizeClasses) {
+            // Normal size classes start at 4 pages.
+            return fineSizeIdx(normCapacity, pageShifts + 2);
+        }
+        return log2(normCapacity >> pageShifts);
+    }
+
+    /**
+     * Index of {@code normCapacity} in a table of fine size classes which starts with {@code 1 << log2Base}.
+     * Every doubling {@code (2^k, 2^(k+1)]} is split into 4 classes {@code 2^k + n * 2^(k-2)} with {@code n = 1..4}.
+     */
+    private static int fineSizeIdx(int normCapacity, int log2Base) {
+        int log2 = log2(normCapacity - 1);
+        return (log2 - log2Base << 2) + (normCapacity - (1 << log2) >>> log2 - 2);
+    }
+
+    /**
+     * Returns the number of pages of the run that backs a {@link PoolSubpage} with the given element size.
+     * With fine size classes the run is the smallest multiple of the page size that is also a multiple of
+     * {@code elemSize}, so no tail of the run is wasted. Otherwise subpages always use a single page.
+     */
+    int subpageRunPages(int elemSize) {
+        if (!fineSizeClasses || isTiny(elemSize)) {
+            return 1;
+        }
+        // lcm(elemSize, pageSize) / pageSize, pageSize is a power of two.
+        return elemSize / Math.min(Integer.lowestOneBit(elemSize), pageSize);
+    }
+
+    /**
+     * Returns the normalized capacity of the size class with the given index, which is the inverse of
+     * {@link #tinyIdx(int)}, {@link #smallIdx(int)} and {@link #normalCacheIdx(int)}.
+     */
+    int sizeClassCapacity(SizeClass sizeClass, int idx) {
+        switch (sizeClass) {
+            case Tiny:
+                return idx << 4;
+            case Small:
+                return fineSizeClasses ? fineSize(idx, 9) : 512 << idx;
+            case Normal:
+                return fineSizeClasses ? fineSize(idx, pageShifts + 2) : pageSize << idx;
+            default:
+                throw new Error();
+        }
+    }
+
+    private static int fineSize(int idx, int log2Base) {
+        int log2 = log2Base + (idx - 1 >> 2);
+        return 4 + idx - (log2 - log2Base << 2) << log2 - 2;
+    }
+
+    private static int log2(int val) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(val);
+    }
+
+    // capacity < pageSize (capacity < 4 * pageSize with fine size classes)
     boolean isTinyOrSmall(int normCapacity) {
         return (normCapacity & subpageOverflowMask) == 0;
     }
@@ -208,6 +324,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
      * @param reqCapacity
      */
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        if (remoteFrees != null) {
+            drainRemoteFrees();
+        }
 
         //规范内存大小
         final int normCapacity = normalizeCapacity(reqCapacity);
@@ -258,7 +377,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     return;
                 }
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(cache, buf, reqCapacity, normCapacity);
             return;
         }
 
@@ -271,7 +390,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                 // was able to allocate out of the cache so move on
                 return;
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(cache, buf, reqCapacity, normCapacity);
         } else {
             // Huge allocations are never served via the cache so just call allocateHuge
             allocateHuge(buf, reqCapacity);
@@ -282,36 +401,42 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     /**
-     * 分配标准内存,此方法是一个同步方法
+     * 分配标准内存,在线程所属的 stripe 上同步
+     * @param cache
      * @param buf
      * @param reqCapacity
      * @param normCapacity
      */
-    private synchronized void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
-        if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
-                q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
-                q075.allocate(buf, reqCapacity, normCapacity)) {
-            ++allocationsNormal;
-            return;
-        }
+    private void allocateNormal(PoolThreadCache cache, PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+        PoolChunkListStripe<T> stripe = stripes[isDirect() ? cache.directStripeIdx : cache.heapStripeIdx];
+        synchronized (stripe) {
+            if (!stripe.allocate(buf, reqCapacity, normCapacity)) {
+                //#oy-memory: 创建chunk并添加到列表中  Add a new chunk.
+                PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
 
-        //#oy-memory: 创建chunk并添加到列表中  Add a new chunk.
-        PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+                //tiny page 与  page 返回的 handle 不一样:  handle代表 内存树节点号(>512) handle代表内存地址(< 512)
+                long handle = c.allocate(normCapacity);
+                assert handle > 0;
 
-        //tiny page 与  page 返回的 handle 不一样:  handle代表 内存树节点号(>512) handle代表内存地址(< 512)
-        long handle = c.allocate(normCapacity);
+                c.initBuf(buf, handle, reqCapacity);
 
-        ++allocationsNormal;
-        assert handle > 0;
-
-        c.initBuf(buf, handle, reqCapacity);
-
-        //将chunk添加到list中管理
-        qInit.add(c);
+                //将chunk添加到list中管理
+                stripe.add(c);
+            }
+        }
+        allocationsNormal.increment();
     }
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
-        PoolChunk<T> chunk = newUnpooledChunk(reqCapacity);
+        final PoolChunk<T> chunk;
+        if (hugeChunkCache != null) {
+            // Round up so buffers of similar sizes can reuse each others chunks.
+            int capacity = PoolHugeChunkCache.normalizeCapacity(reqCapacity);
+            PoolChunk<T> cached = hugeChunkCache.poll(capacity);
+            chunk = cached != null ? cached : newUnpooledChunk(capacity);
+        } else {
+            chunk = newUnpooledChunk(reqCapacity);
+        }
         activeBytesHuge.add(chunk.chunkSize());
         buf.initUnpooled(chunk, reqCapacity);
         allocationsHuge.increment();
@@ -327,7 +452,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     void free(PoolChunk<T> chunk, long handle, int normCapacity, PoolThreadCache cache) {
         if (chunk.unpooled) {
             int size = chunk.chunkSize();
-            destroyChunk(chunk);
+            if (hugeChunkCache == null || !hugeChunkCache.offer(chunk)) {
+                destroyChunk(chunk);
+            }
             activeBytesHuge.add(-size);
             deallocationsHuge.increment();
         } else {
@@ -340,10 +467,81 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                 return;
             }
 
+            if (remoteFrees != null && cache != null && cache.thread != Thread.currentThread() &&
+                    numThreadCaches.get() != 0 && remoteFrees.offer(RemoteFree.newInstance(chunk, handle, sizeClass))) {
+                // handed back to the threads of this arena so the freeing thread does not need to take its locks.
+                if (pendingRemoteFrees.incrementAndGet() >= MAX_PENDING_REMOTE_FREES) {
+                    drainRemoteFrees();
+                }
+                return;
+            }
+
             freeChunk(chunk, handle, sizeClass);
         }
     }
 
+    /**
+     * Free the buffers that were released by other threads. Only one thread drains at a time, the others just move
+     * on as the frees will be done by the thread that is draining right now.
+     */
+    void drainRemoteFrees() {
+        if (remoteFrees.isEmpty() || !drainingRemoteFrees.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (;;) {
+                RemoteFree free = remoteFrees.poll();
+                if (free == null) {
+                    break;
+                }
+                pendingRemoteFrees.decrementAndGet();
+                @SuppressWarnings("unchecked")
+                PoolChunk<T> chunk = (PoolChunk<T>) free.chunk;
+                long handle = free.handle;
+                SizeClass sizeClass = free.sizeClass;
+                free.recycle();
+                freeChunk(chunk, handle, sizeClass);
+            }
+        } finally {
+            drainingRemoteFrees.set(false);
+        }
+    }
+
+    boolean batchesRemoteFrees() {
+        return remoteFrees != null;
+    }
+
+    static final class RemoteFree {
+        private static final Recycler<RemoteFree> RECYCLER = new Recycler<RemoteFree>() {
+            @Override
+            protected RemoteFree newObject(Handle<RemoteFree> handle) {
+                return new RemoteFree(handle);
+            }
+        };
+
+        static RemoteFree newInstance(PoolChunk<?> chunk, long handle, SizeClass sizeClass) {
+            RemoteFree free = RECYCLER.get();
+            free.chunk = chunk;
+            free.handle = handle;
+            free.sizeClass = sizeClass;
+            return free;
+        }
+
+        private final Handle<RemoteFree> recyclerHandle;
+        PoolChunk<?> chunk;
+        long handle;
+        SizeClass sizeClass;
+
+        private RemoteFree(Handle<RemoteFree> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        void recycle() {
+            chunk = null;
+            recyclerHandle.recycle(this);
+        }
+    }
+
     private SizeClass sizeClass(int normCapacity) {
         if (!isTinyOrSmall(normCapacity)) {
             return SizeClass.Normal;
@@ -352,21 +550,21 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        switch (sizeClass) {
+            case Normal:
+                deallocationsNormal.increment();
+                break;
+            case Small:
+                deallocationsSmall.increment();
+                break;
+            case Tiny:
+                deallocationsTiny.increment();
+                break;
+            default:
+                throw new Error();
+        }
         final boolean destroyChunk;
-        synchronized (this) {
-            switch (sizeClass) {
-                case Normal:
-                    ++deallocationsNormal;
-                    break;
-                case Small:
-                    ++deallocationsSmall;
-                    break;
-                case Tiny:
-                    ++deallocationsTiny;
-                    break;
-                default:
-                    throw new Error();
-            }
+        synchronized (chunk.stripe) {
             destroyChunk = !chunk.parent.free(chunk, handle);
         }
         if (destroyChunk) {
@@ -375,6 +573,51 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Destroys the {@link PoolChunk}s that were seen completely free by every call during at least
+     * {@code idleNanos}, so their memory is given back to the system. This is only called by the
+     * {@link PoolArenaSweeper} and so never from the allocation path.
+     *
+     * @return the number of released chunks
+     */
+    int releaseIdleChunks(long idleNanos) {
+        if (remoteFrees != null) {
+            // Chunks freed by other threads only become idle once the remote frees are done.
+            drainRemoteFrees();
+        }
+        long nanoTime = System.nanoTime();
+        int released = 0;
+        for (PoolChunkListStripe<T> stripe : stripes) {
+            // Chunks only become completely free while in qInit, chunks in the other lists are destroyed by free.
+            final List<PoolChunk<T>> idleChunks;
+            synchronized (stripe) {
+                idleChunks = stripe.qInit.removeIdleChunks(nanoTime, idleNanos);
+            }
+            if (idleChunks == null) {
+                continue;
+            }
+            // destroyChunk not need to be called while holding the synchronized lock.
+            for (int i = 0; i < idleChunks.size(); i++) {
+                PoolChunk<T> chunk = idleChunks.get(i);
+                releasedChunkBytes.add(chunk.chunkSize());
+                destroyChunk(chunk);
+            }
+            releasedChunks.add(idleChunks.size());
+            released += idleChunks.size();
+        }
+        return released;
+    }
+
+    /**
+     * Destroys the cached huge chunks that were not reused for the idle time of the huge chunk cache. This is only
+     * called by the {@link PoolArenaSweeper}.
+     *
+     * @return the number of destroyed chunks
+     */
+    int evictHugeChunks() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.evict(System.nanoTime());
+    }
+
     /**
      * 从 tiny or small subpage 数组中查询 sub page
      * 这里的运算逻辑是什么？？
@@ -382,22 +625,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
      * @return
      */
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
         if (isTiny(elemSize)) { // < 512
-            tableIdx = elemSize >>> 4;
-            table = tinySubpagePools;
-        } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx++;
-            }
-            table = smallSubpagePools;
+            return tinySubpagePools[tinyIdx(elemSize)];
         }
-
-        return table[tableIdx];
+        return smallSubpagePools[smallIdx(elemSize)];
     }
 
     /**
@@ -414,6 +645,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         if (!isTiny(reqCapacity)) { // >= 512
+            if (fineSizeClasses) {
+                // Quarter of the doubling: 2^k + n * 2^(k-2)
+                int delta = 1 << log2(reqCapacity - 1) - 2;
+                return reqCapacity + delta - 1 & -delta;
+            }
+
             // Doubled
             //https://juejin.cn/entry/6844903459112779784 找比某数大离的最近的2幂数
             //通过构造 二进制 0000 1111 + 0000 0001 = 0001 0000 达到目的
@@ -545,11 +782,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numAllocations() {
-        final long allocsNormal;
-        synchronized (this) {
-            allocsNormal = allocationsNormal;
-        }
-        return allocationsTiny.value() + allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value() +
+                allocationsHuge.value();
     }
 
     @Override
@@ -563,32 +797,29 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numNormalAllocations() {
-        return allocationsNormal;
+    public long numNormalAllocations() {
+        return allocationsNormal.value();
     }
 
     @Override
     public long numDeallocations() {
-        final long deallocs;
-        synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
-        }
-        return deallocs + deallocationsHuge.value();
+        return deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value() +
+                deallocationsHuge.value();
     }
 
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numTinyDeallocations() {
+        return deallocationsTiny.value();
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
-    public synchronized long numNormalDeallocations() {
-        return deallocationsNormal;
+    public long numNormalDeallocations() {
+        return deallocationsNormal.value();
     }
 
     @Override
@@ -605,9 +836,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     public long numActiveAllocations() {
         long val = allocationsTiny.value() + allocationsSmall.value() + allocationsHuge.value()
                 - deallocationsHuge.value();
-        synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
-        }
+        val += allocationsNormal.value() -
+                (deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value());
         return max(val, 0);
     }
 
@@ -623,11 +853,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numActiveNormalAllocations() {
-        final long val;
-        synchronized (this) {
-            val = allocationsNormal - deallocationsNormal;
-        }
-        return max(val, 0);
+        return max(numNormalAllocations() - numNormalDeallocations(), 0);
     }
 
     @Override
@@ -635,13 +861,149 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return max(numHugeAllocations() - numHugeDeallocations(), 0);
     }
 
+    @Override
+    public long numReleasedChunks() {
+        return releasedChunks.value();
+    }
+
+    @Override
+    public long numReleasedChunkBytes() {
+        return releasedChunkBytes.value();
+    }
+
+    void addCacheMetrics(SizeClass sizeClass, int idx, int hits, int misses) {
+        switch (sizeClass) {
+            case Normal:
+                addCacheMetrics(normalCacheHits, normalCacheMisses, idx, hits, misses);
+                break;
+            case Small:
+                addCacheMetrics(smallCacheHits, smallCacheMisses, idx, hits, misses);
+                break;
+            case Tiny:
+                addCacheMetrics(tinyCacheHits, tinyCacheMisses, idx, hits, misses);
+                break;
+            default:
+                throw new Error();
+        }
+    }
+
+    private static void addCacheMetrics(LongCounter[] hitCounters, LongCounter[] missCounters, int idx,
+                                        int hits, int misses) {
+        if (hits != 0) {
+            hitCounters[idx].add(hits);
+        }
+        if (misses != 0) {
+            missCounters[idx].add(misses);
+        }
+    }
+
+    @Override
+    public long numTinyCacheHits() {
+        return sum(tinyCacheHits);
+    }
+
+    @Override
+    public long numTinyCacheMisses() {
+        return sum(tinyCacheMisses);
+    }
+
+    @Override
+    public long numSmallCacheHits() {
+        return sum(smallCacheHits);
+    }
+
+    @Override
+    public long numSmallCacheMisses() {
+        return sum(smallCacheMisses);
+    }
+
+    @Override
+    public long numNormalCacheHits() {
+        return sum(normalCacheHits);
+    }
+
+    @Override
+    public long numNormalCacheMisses() {
+        return sum(normalCacheMisses);
+    }
+
+    @Override
+    public long numCacheHits(int capacity) {
+        LongCounter counter = cacheCounter(capacity, tinyCacheHits, smallCacheHits, normalCacheHits);
+        return counter == null ? 0 : counter.value();
+    }
+
+    @Override
+    public long numCacheMisses(int capacity) {
+        LongCounter counter = cacheCounter(capacity, tinyCacheMisses, smallCacheMisses, normalCacheMisses);
+        return counter == null ? 0 : counter.value();
+    }
+
+    /**
+     * Returns the counter of the size class {@code capacity} is normalized to, or {@code null} for huge capacities
+     * which are never served by thread caches.
+     */
+    private LongCounter cacheCounter(int capacity, LongCounter[] tiny, LongCounter[] small, LongCounter[] normal) {
+        int normCapacity = normalizeCapacity(capacity);
+        if (isTinyOrSmall(normCapacity)) {
+            return isTiny(normCapacity) ? tiny[tinyIdx(normCapacity)] : small[smallIdx(normCapacity)];
+        }
+        if (normCapacity > chunkSize) {
+            return null;
+        }
+        return normal[normalCacheIdx(normCapacity)];
+    }
+
+    private static LongCounter[] newLongCounterArray(int size) {
+        LongCounter[] counters = new LongCounter[size];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = PlatformDependent.newLongCounter();
+        }
+        return counters;
+    }
+
+    private static long sum(LongCounter[] counters) {
+        long sum = 0;
+        for (LongCounter counter: counters) {
+            sum += counter.value();
+        }
+        return sum;
+    }
+
+    @Override
+    public long numHugeChunkCacheHits() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.hits();
+    }
+
+    @Override
+    public long numHugeChunkCacheMisses() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.misses();
+    }
+
+    @Override
+    public long numCachedHugeChunks() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.cachedChunks();
+    }
+
+    @Override
+    public long numCachedHugeChunkBytes() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.cachedBytes();
+    }
+
+    @Override
+    public long numEvictedHugeChunks() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.evictions();
+    }
+
     @Override
     public long numActiveBytes() {
-        long val = activeBytesHuge.value();
-        synchronized (this) {
-            for (int i = 0; i < chunkListMetrics.size(); i++) {
-                for (PoolChunkMetric m : chunkListMetrics.get(i)) {
-                    val += m.chunkSize();
+        long val = activeBytesHuge.value() + numCachedHugeChunkBytes();
+        for (PoolChunkListStripe<T> stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.chunkListMetrics.size(); i++) {
+                    for (PoolChunkMetric m : stripe.chunkListMetrics.get(i)) {
+                        val += m.chunkSize();
+                    }
                 }
             }
         }
@@ -659,33 +1021,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
     @Override
-    public synchronized String toString() {
-        StringBuilder buf = new StringBuilder()
-                .append("Chunk(s) at 0~25%:")
-                .append(StringUtil.NEWLINE)
-                .append(qInit)
-                .append(StringUtil.NEWLINE)
-                .append("Chunk(s) at 0~50%:")
-                .append(StringUtil.NEWLINE)
-                .append(q000)
-                .append(StringUtil.NEWLINE)
-                .append("Chunk(s) at 25~75%:")
-                .append(StringUtil.NEWLINE)
-                .append(q025)
-                .append(StringUtil.NEWLINE)
-                .append("Chunk(s) at 50~100%:")
-                .append(StringUtil.NEWLINE)
-                .append(q050)
-                .append(StringUtil.NEWLINE)
-                .append("Chunk(s) at 75~100%:")
-                .append(StringUtil.NEWLINE)
-                .append(q075)
-                .append(StringUtil.NEWLINE)
-                .append("Chunk(s) at 100%:")
-                .append(StringUtil.NEWLINE)
-                .append(q100)
-                .append(StringUtil.NEWLINE)
-                .append("tiny subpages:");
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (PoolChunkListStripe<T> stripe : stripes) {
+            buf.append(stripe);
+        }
+        buf.append("tiny subpages:");
         appendPoolSubPages(buf, tinySubpagePools);
         buf.append(StringUtil.NEWLINE)
                 .append("small subpages:");
@@ -718,8 +1059,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class HeapArena extends PoolArena<byte[]> {
 
-        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  boolean fineSizeClasses, int numStripes, boolean batchRemoteFrees,
+                  long hugeChunkCacheSize, long hugeChunkCacheIdleNanos) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, fineSizeClasses, numStripes, batchRemoteFrees,
+                  hugeChunkCacheSize, hugeChunkCacheIdleNanos);
         }
 
         @Override
@@ -760,8 +1104,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
-        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                    boolean fineSizeClasses, int numStripes, boolean batchRemoteFrees,
+                    long hugeChunkCacheSize, long hugeChunkCacheIdleNanos) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, fineSizeClasses, numStripes, batchRemoteFrees,
+                  hugeChunkCacheSize, hugeChunkCacheIdleNanos);
         }
 
         @Override
@@ -137,4 +137,83 @@ public interface PoolArenaMetric {
      * Return the number of active bytes that are currently allocated by the arena.
      */
     long numActiveBytes();
+
+    /**
+     * Return the number of idle chunks that were released by the arena.
+     */
+    long numReleasedChunks();
+
+    /**
+     * Return the number of bytes of all idle chunks that were released by the arena.
+     */
+    long numReleasedChunkBytes();
+
+    // Thread caches count their hits and misses per size class and publish them every 64 allocations of that size
+    // class, every time they are trimmed and when they are freed, so the numbers may lag behind by a few allocations.
+    /**
+     * Return the number of tiny allocations that were served by a thread cache of the arena.
+     */
+    long numTinyCacheHits();
+
+    /**
+     * Return the number of tiny allocations that found the thread cache of the arena empty.
+     */
+    long numTinyCacheMisses();
+
+    /**
+     * Return the number of small allocations that were served by a thread cache of the arena.
+     */
+    long numSmallCacheHits();
+
+    /**
+     * Return the number of small allocations that found the thread cache of the arena empty.
+     */
+    long numSmallCacheMisses();
+
+    /**
+     * Return the number of normal allocations that were served by a thread cache of the arena.
+     */
+    long numNormalCacheHits();
+
+    /**
+     * Return the number of normal allocations that found the thread cache of the arena empty.
+     */
+    long numNormalCacheMisses();
+
+    /**
+     * Return the number of allocations of the size class {@code capacity} is rounded up to that were served by a
+     * thread cache of the arena. This is {@code 0} for huge capacities.
+     */
+    long numCacheHits(int capacity);
+
+    /**
+     * Return the number of allocations of the size class {@code capacity} is rounded up to that found the thread cache
+     * of the arena empty. This is {@code 0} for huge capacities.
+     */
+    long numCacheMisses(int capacity);
+
+    /**
+     * Return the number of huge allocations that reused a chunk of the huge chunk cache of the arena.
+     */
+    long numHugeChunkCacheHits();
+
+    /**
+     * Return the number of huge allocations that found no chunk of their size in the huge chunk cache of the arena.
+     */
+    long numHugeChunkCacheMisses();
+
+    /**
+     * Return the number of chunks that are kept in the huge chunk cache of the arena right now.
+     */
+    long numCachedHugeChunks();
+
+    /**
+     * Return the number of bytes of all chunks that are kept in the huge chunk cache of the arena right now.
+     */
+    long numCachedHugeChunkBytes();
+
+    /**
+     * Return the number of chunks that were evicted from the huge chunk cache of the arena after being idle.
+     */
+    long numEvictedHugeChunks();
 }
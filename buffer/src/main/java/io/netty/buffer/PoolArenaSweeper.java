@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically releases the idle {@link PoolChunk}s and evicts the idle cached huge chunks of the watched
+ * {@link PoolArena}s.
+ * <p>
+ * All arenas share one daemon thread which is started when the first arena is watched. An arena is only
+ * weakly referenced, so watching it does not keep its {@link PooledByteBufAllocator} alive.
+ * </p>
+ */
+final class PoolArenaSweeper {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolArenaSweeper.class);
+
+    // Do not sweep more often than every 100 ms, no matter how short the idle time is.
+    private static final long MIN_SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ScheduledExecutorService executor;
+
+    static {
+        String poolName = "poolArenaSweeper";
+        String serviceThreadPrefix = SystemPropertyUtil.get("io.netty.serviceThreadPrefix");
+        if (!StringUtil.isNullOrEmpty(serviceThreadPrefix)) {
+            poolName = serviceThreadPrefix + poolName;
+        }
+        // The thread is only created once the first task is scheduled.
+        executor = new ScheduledThreadPoolExecutor(
+                1, new DefaultThreadFactory(poolName, true, Thread.MIN_PRIORITY, null));
+    }
+
+    /**
+     * Releases the chunks of {@code arena} that stayed completely free for at least {@code idleNanos}.
+     */
+    static void watch(PoolArena<?> arena, long idleNanos) {
+        if (idleNanos <= 0) {
+            throw new IllegalArgumentException("idleNanos: " + idleNanos + " (expected: > 0)");
+        }
+        // Sweep twice per idle period, a chunk needs to be seen free by all sweeps of the period to be released.
+        schedule(new SweepTask(arena, idleNanos, false), idleNanos);
+    }
+
+    /**
+     * Evicts the cached huge chunks of {@code arena} that were not reused for at least {@code idleNanos}.
+     */
+    static void watchHugeChunkCache(PoolArena<?> arena, long idleNanos) {
+        if (idleNanos <= 0) {
+            throw new IllegalArgumentException("idleNanos: " + idleNanos + " (expected: > 0)");
+        }
+        schedule(new SweepTask(arena, idleNanos, true), idleNanos);
+    }
+
+    private static void schedule(SweepTask task, long idleNanos) {
+        long interval = Math.max(MIN_SWEEP_INTERVAL_NANOS, idleNanos >>> 1);
+        task.future = executor.scheduleWithFixedDelay(task, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class SweepTask implements Runnable {
+        private final WeakReference<PoolArena<?>> arenaRef;
+        private final long idleNanos;
+        private final boolean hugeChunks;
+        volatile ScheduledFuture<?> future;
+
+        SweepTask(PoolArena<?> arena, long idleNanos, boolean hugeChunks) {
+            arenaRef = new WeakReference<PoolArena<?>>(arena);
+            this.idleNanos = idleNanos;
+            this.hugeChunks = hugeChunks;
+        }
+
+        @Override
+        public void run() {
+            PoolArena<?> arena = arenaRef.get();
+            if (arena == null) {
+                // The allocator was collected, stop sweeping.
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                if (hugeChunks) {
+                    int evicted = arena.evictHugeChunks();
+                    if (evicted > 0 && logger.isDebugEnabled()) {
+                        logger.debug("Evicted {} idle huge chunk(s) of a {} arena.",
+                                evicted, arena.isDirect() ? "direct" : "heap");
+                    }
+                    return;
+                }
+                int released = arena.releaseIdleChunks(idleNanos);
+                if (released > 0 && logger.isDebugEnabled()) {
+                    logger.debug("Released {} idle chunk(s) of a {} arena.",
+                            released, arena.isDirect() ? "direct" : "heap");
+                }
+            } catch (Throwable t) {
+                logger.warn("Unexpected exception while releasing idle chunks.", t);
+            }
+        }
+    }
+
+    private PoolArenaSweeper() { }
+}
@@ -99,6 +99,15 @@ package io.netty.buffer;
  * memoryMap[id]= (depth_of_id, x)
  * where as per convention defined above
  * the second value (i.e, x) indicates that the first node which is free to be allocated is at depth x (from root)
+ * <p>
+ * Fine size classes:
+ * -----------------
+ * When the {@link PoolArena} uses fine size classes, runs are not always a power of 2 pages long.
+ * Algorithm: [allocatePages(n)]
+ * 1) allocate the smallest node that can hold n pages, i.e. allocateNode(maxOrder - ceil(log_2(n)))
+ * 2) walk down the subtree of that node, keeping the first n pages marked as unusable and handing the remaining
+ *    (buddy) subtrees back so they can be allocated by other requests
+ * 3) the number of pages is stored in the handle (or in the PoolSubpage) so the same walk can be repeated on free
  * <br/>
  * Ref:
  * <a href="https://juejin.im/post/5ca4a5e051882543b16e33aa">chunk1</a>
@@ -152,10 +161,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
     private final PoolSubpage<T>[] subpages;
 
 
-    /**
-     * Used to determine if the requested capacity is equal to or greater than pageSize.
-     */
-    private final int subpageOverflowMask;
     //leaf node size : default  8k
     private final int pageSize;
     //smallest page pow: 8K=2^13 pageShifts=13
@@ -175,10 +180,18 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * {@link PoolChunkList}.add0()函数
      */
     PoolChunkList<T> parent;
+    // The stripe whose lock guards this chunk, set once before the chunk is used.
+    PoolChunkListStripe<T> stripe;
     //chunk 列表 配合 PoolChunkList 使用
     PoolChunk<T> prev;
     PoolChunk<T> next;
 
+    // For pooled chunks only accessed by PoolArena.releaseIdleChunks(long) while holding the lock of the stripe.
+    // Unpooled chunks are never swept that way, PoolHugeChunkCache uses idleSinceNanos of the chunks it caches while
+    // holding its own lock.
+    boolean idle;
+    long idleSinceNanos;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
@@ -193,7 +206,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.chunkSize = chunkSize;
         unusable = (byte) (maxOrder + 1);
         log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
         assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
@@ -228,7 +240,6 @@ final class PoolChunk<T> implements PoolChunkMetric {
         memoryMap = null;
         depthMap = null;
         subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
         maxOrder = 0;
@@ -265,7 +276,7 @@ final class PoolChunk<T> implements PoolChunkMetric {
      */
     long allocate(int normCapacity) {
         //为何不用 >= 运算 ？ 性能低？
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
+        if (!arena.isTinyOrSmall(normCapacity)) { // >= pageSize
             return allocateRun(normCapacity);
         } else {
             return allocateSubpage(normCapacity);
@@ -381,6 +392,15 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * @return index in memoryMap
      */
     private long allocateRun(int normCapacity) {
+        int runPages = normCapacity >>> pageShifts;
+        if ((runPages & runPages - 1) != 0) {
+            // Not a power of 2 pages, only possible with fine size classes.
+            int id = allocatePages(runPages);
+            if (id < 0) {
+                return id;
+            }
+            return (long) runPages << Integer.SIZE | id;
+        }
 
         //计算内存所在树的层: 最大层号 - (标准内存大小值对应的log2对数值-最小节点内存的log2对数值)
         //计算normCapacity 所在的层: 假设normCapacity=8K=2^13
@@ -397,6 +417,76 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return id;
     }
 
+    /**
+     * Allocate a run of {@code pages} pages which is not necessarily a power of 2. The smallest node that can hold
+     * the run is reserved and the pages beyond the run are given back to the tree right away.
+     *
+     * @param pages number of pages
+     * @return index in memoryMap of the node the run starts at
+     */
+    private int allocatePages(int pages) {
+        int d = maxOrder - (log2(pages - 1) + 1);
+        int id = allocateNode(d);
+        if (id < 0) {
+            return id;
+        }
+        if (pages != 1 << maxOrder - d) {
+            markRun(id, pages);
+            updateParentsAlloc(id);
+        }
+        freeBytes -= pages << pageShifts;
+        return id;
+    }
+
+    /**
+     * Marks the first {@code pages} pages of the subtree rooted at {@code id} as unusable, leaving the rest free.
+     */
+    private void markRun(int id, int pages) {
+        int nodePages = 1 << maxOrder - depth(id);
+        if (pages == nodePages) {
+            setValue(id, unusable);
+            return;
+        }
+        int left = id << 1;
+        int half = nodePages >>> 1;
+        if (pages <= half) {
+            markRun(left, pages);
+        } else {
+            setValue(left, unusable);
+            markRun(left ^ 1, pages - half);
+        }
+        byte val1 = value(left);
+        byte val2 = value(left ^ 1);
+        setValue(id, val1 < val2 ? val1 : val2);
+    }
+
+    /**
+     * Reverse of {@link #markRun(int, int)}.
+     */
+    private void unmarkRun(int id, int pages) {
+        int nodePages = 1 << maxOrder - depth(id);
+        if (pages == nodePages) {
+            setValue(id, depth(id));
+            return;
+        }
+        int left = id << 1;
+        int half = nodePages >>> 1;
+        if (pages <= half) {
+            unmarkRun(left, pages);
+        } else {
+            setValue(left, depth(left));
+            unmarkRun(left ^ 1, pages - half);
+        }
+        byte val1 = value(left);
+        byte val2 = value(left ^ 1);
+        byte logChild = depth(left);
+        if (val1 == logChild && val2 == logChild) {
+            setValue(id, depth(id));
+        } else {
+            setValue(id, val1 < val2 ? val1 : val2);
+        }
+    }
+
     /**
      * Create/ initialize a new PoolSubpage of normCapacity
      * Any PoolSubpage created/ initialized here is added to subpage pool in the PoolArena that owns this PoolChunk
@@ -409,26 +499,24 @@ final class PoolChunk<T> implements PoolChunkMetric {
         // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
         // This is need as we may add it back and so alter the linked-list structure.
         PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
+        // Always 1 (a leaf) unless fine size classes are used.
+        int runPages = arena.subpageRunPages(normCapacity);
 
         synchronized (head) {
-            int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
-            int id = allocateNode(d);
+            int id = allocatePages(runPages);
             if (id < 0) {
                 return id;
             }
 
             final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
-
-            freeBytes -= pageSize;
-
+            final int runSize = runPages << pageShifts;
 
             //初始化 page
             int subpageIdx = subpageIdx(id);
             PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
+            if (subpage == null || subpage.pageSize() != runSize) {
                 //创建小内存 page
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
+                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), runSize, normCapacity);
                 subpages[subpageIdx] = subpage;
             } else {
                 //重用已存在的subpage
@@ -453,7 +541,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
         int memoryMapIdx = memoryMapIdx(handle);
         int bitmapIdx = bitmapIdx(handle);
 
-        if (bitmapIdx != 0) { // free a subpage
+        int runPages = bitmapIdx;
+        if (isSubpage(bitmapIdx)) { // free a subpage
             PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
             assert subpage != null && subpage.doNotDestroy;
 
@@ -465,9 +554,17 @@ final class PoolChunk<T> implements PoolChunkMetric {
                     return;
                 }
             }
+            runPages = subpage.pageSize() >>> pageShifts;
+        }
+
+        int nodePages = 1 << maxOrder - depth(memoryMapIdx);
+        if (runPages == 0 || runPages == nodePages) {
+            freeBytes += runLength(memoryMapIdx);
+            setValue(memoryMapIdx, depth(memoryMapIdx));
+        } else {
+            freeBytes += runPages << pageShifts;
+            unmarkRun(memoryMapIdx, runPages);
         }
-        freeBytes += runLength(memoryMapIdx);
-        setValue(memoryMapIdx, depth(memoryMapIdx));
         updateParentsFree(memoryMapIdx);
     }
 
@@ -485,12 +582,14 @@ final class PoolChunk<T> implements PoolChunkMetric {
         int bitmapIdx = bitmapIdx(handle);
 
         //通过 bitmapIdx区分 tinypage
-        if (bitmapIdx == 0) {
+        if (!isSubpage(bitmapIdx)) {
+            // bitmapIdx holds the number of pages if the run is not a power of 2 pages long.
+            int runLength = bitmapIdx == 0 ? runLength(memoryMapIdx) : bitmapIdx << pageShifts;
             //val  表示层号
             byte val = value(memoryMapIdx);
-            assert val == unusable : String.valueOf(val);
+            assert bitmapIdx != 0 || val == unusable : String.valueOf(val);
             //这里根据 节点号 计算 内存偏移与长度
-            buf.init(this, handle, runOffset(memoryMapIdx), reqCapacity, runLength(memoryMapIdx),
+            buf.init(this, handle, runOffset(memoryMapIdx), reqCapacity, runLength,
                     arena.parent.threadCache());
         } else {
             initBufWithSubpage(buf, handle, bitmapIdx, reqCapacity);
@@ -510,7 +609,7 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * @param reqCapacity
      */
     private void initBufWithSubpage(PooledByteBuf<T> buf, long handle, int bitmapIdx, int reqCapacity) {
-        assert bitmapIdx != 0;
+        assert isSubpage(bitmapIdx);
 
         int memoryMapIdx = memoryMapIdx(handle);
 
@@ -584,7 +683,9 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * @return
      */
     private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
+        // subpages of a run that spans multiple pages are stored at the first page (leaf) of the run.
+        int leafIdx = memoryMapIdx << maxOrder - depth(memoryMapIdx);
+        return leafIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
     }
 
     private static int memoryMapIdx(long handle) {
@@ -595,6 +696,11 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return (int) (handle >>> Integer.SIZE);
     }
 
+    private static boolean isSubpage(int bitmapIdx) {
+        // See PoolSubpage.toHandle(int)
+        return (bitmapIdx & 0x40000000) != 0;
+    }
+
     @Override
     public int chunkSize() {
         return chunkSize;
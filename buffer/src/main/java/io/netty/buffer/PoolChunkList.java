@@ -145,6 +145,33 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return prevList.move(chunk);
     }
 
+    /**
+     * Removes all {@link PoolChunk}s that are completely free and were already completely free on every call since
+     * at least {@code idleNanos}.
+     *
+     * @return the removed {@link PoolChunk}s or {@code null} if none was removed.
+     */
+    List<PoolChunk<T>> removeIdleChunks(long nanoTime, long idleNanos) {
+        List<PoolChunk<T>> idleChunks = null;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes() != cur.chunkSize()) {
+                cur.idle = false;
+            } else if (!cur.idle) {
+                cur.idle = true;
+                cur.idleSinceNanos = nanoTime;
+            } else if (nanoTime - cur.idleSinceNanos >= idleNanos) {
+                remove(cur);
+                if (idleChunks == null) {
+                    idleChunks = new ArrayList<PoolChunk<T>>();
+                }
+                idleChunks.add(cur);
+            }
+            cur = next;
+        }
+        return idleChunks;
+    }
+
     void add(PoolChunk<T> chunk) {
         if (chunk.usage() >= maxUsage) {
             nextList.add(chunk);
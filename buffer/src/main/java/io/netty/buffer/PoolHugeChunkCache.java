@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the unpooled {@link PoolChunk}s of released huge buffers of a {@link PoolArena}, so they can be reused by the
+ * next huge allocation of the same size instead of allocating and destroying the memory again.
+ * <p>
+ * Huge allocations are rounded up to one of 4 size classes per doubling, and the chunks are kept per size class.
+ * A chunk is only cached if the total size of the cached chunks stays within the limit, and is destroyed by
+ * {@link #evict(long)} once it was not reused for the idle time.
+ * </p>
+ */
+final class PoolHugeChunkCache<T> {
+
+    private final PoolArena<T> arena;
+    private final long maxBytes;
+    private final long idleNanos;
+
+    // The cached chunks per size, the most recently released chunk is the last one. Guarded by this.
+    private final IntObjectMap<ArrayDeque<PoolChunk<T>>> chunks = new IntObjectHashMap<ArrayDeque<PoolChunk<T>>>();
+    private long cachedBytes;
+    private int cachedChunks;
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter evictions = PlatformDependent.newLongCounter();
+
+    PoolHugeChunkCache(PoolArena<T> arena, long maxBytes, long idleNanos) {
+        this.arena = arena;
+        this.maxBytes = maxBytes;
+        this.idleNanos = idleNanos;
+    }
+
+    /**
+     * Round {@code reqCapacity} up to the next multiple of a quarter of its power of two, so that huge buffers of
+     * similar sizes can share the cached chunks.
+     */
+    static int normalizeCapacity(int reqCapacity) {
+        int delta = Integer.highestOneBit(reqCapacity - 1) >>> 2;
+        int normalized = reqCapacity + delta - 1 & -delta;
+        // Do not overflow for capacities close to Integer.MAX_VALUE.
+        return normalized < reqCapacity ? reqCapacity : normalized;
+    }
+
+    /**
+     * Returns a cached chunk of {@code capacity} bytes, or {@code null} if there is none.
+     */
+    PoolChunk<T> poll(int capacity) {
+        PoolChunk<T> chunk = null;
+        synchronized (this) {
+            ArrayDeque<PoolChunk<T>> queue = chunks.get(capacity);
+            if (queue != null) {
+                chunk = queue.pollLast();
+                if (chunk != null) {
+                    cachedBytes -= capacity;
+                    cachedChunks--;
+                }
+            }
+        }
+        if (chunk == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return chunk;
+    }
+
+    /**
+     * Cache the chunk of a released huge buffer. Returns {@code false} if the cache is full, in which case the chunk
+     * needs to be destroyed by the caller.
+     */
+    boolean offer(PoolChunk<T> chunk) {
+        int capacity = chunk.chunkSize();
+        synchronized (this) {
+            if (cachedBytes + capacity > maxBytes) {
+                return false;
+            }
+            ArrayDeque<PoolChunk<T>> queue = chunks.get(capacity);
+            if (queue == null) {
+                queue = new ArrayDeque<PoolChunk<T>>();
+                chunks.put(capacity, queue);
+            }
+            chunk.idleSinceNanos = System.nanoTime();
+            queue.addLast(chunk);
+            cachedBytes += capacity;
+            cachedChunks++;
+        }
+        return true;
+    }
+
+    /**
+     * Destroy the chunks that were not reused for the idle time and return how many were destroyed.
+     */
+    int evict(long nanoTime) {
+        List<PoolChunk<T>> evicted = null;
+        synchronized (this) {
+            for (Iterator<PrimitiveEntry<ArrayDeque<PoolChunk<T>>>> i = chunks.entries().iterator(); i.hasNext();) {
+                ArrayDeque<PoolChunk<T>> queue = i.next().value();
+                for (;;) {
+                    PoolChunk<T> chunk = queue.peekFirst();
+                    if (chunk == null || nanoTime - chunk.idleSinceNanos < idleNanos) {
+                        break;
+                    }
+                    queue.pollFirst();
+                    cachedBytes -= chunk.chunkSize();
+                    cachedChunks--;
+                    if (evicted == null) {
+                        evicted = new ArrayList<PoolChunk<T>>();
+                    }
+                    evicted.add(chunk);
+                }
+                if (queue.isEmpty()) {
+                    i.remove();
+                }
+            }
+        }
+        if (evicted == null) {
+            return 0;
+        }
+        // destroyChunk not need to be called while holding the synchronized lock.
+        for (int i = 0; i < evicted.size(); i++) {
+            arena.destroyChunk(evicted.get(i));
+        }
+        evictions.add(evicted.size());
+        return evicted.size();
+    }
+
+    long idleNanos() {
+        return idleNanos;
+    }
+
+    long hits() {
+        return hits.value();
+    }
+
+    long misses() {
+        return misses.value();
+    }
+
+    long evictions() {
+        return evictions.value();
+    }
+
+    synchronized int cachedChunks() {
+        return cachedChunks;
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+}
@@ -42,9 +42,14 @@ import java.util.Queue;
 final class PoolThreadCache {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
+    // Number of allocations of a size class after which its hits and misses are published to the arena.
+    private static final int METRICS_PUBLISH_INTERVAL = 64;
 
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
+    // The PoolChunkListStripe used for normal allocations in each arena.
+    final int heapStripeIdx;
+    final int directStripeIdx;
 
     // Hold the caches for the different size classes, which are tiny, small and normal.
     private final MemoryRegionCache<byte[]>[] tinySubPageHeapCaches;
@@ -54,14 +59,13 @@ final class PoolThreadCache {
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
-    // Used for bitshifting when calculate the index of normal caches later
-    private final int numShiftsNormalDirect;
-    private final int numShiftsNormalHeap;
     private final int freeSweepAllocationThreshold;
 
     private int allocations;
 
-    private final Thread thread = Thread.currentThread();
+    final Thread thread = Thread.currentThread();
+    // true if the arenas were bound to the thread because it is an event loop thread.
+    private final boolean bound;
     private final Runnable freeTask = new Runnable() {
         @Override
         public void run() {
@@ -74,7 +78,7 @@ final class PoolThreadCache {
 
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int tinyCacheSize, int smallCacheSize, int normalCacheSize,
-                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold, boolean bound) {
         if (maxCachedBufferCapacity < 0) {
             throw new IllegalArgumentException("maxCachedBufferCapacity: "
                     + maxCachedBufferCapacity + " (expected: >= 0)");
@@ -84,44 +88,49 @@ final class PoolThreadCache {
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.bound = bound;
         this.heapArena = heapArena;
         this.directArena = directArena;
+        heapStripeIdx = heapArena != null ? heapArena.nextStripeIdx() : 0;
+        directStripeIdx = directArena != null ? directArena.nextStripeIdx() : 0;
         if (directArena != null) {
             tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, directArena);
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small, directArena);
 
-            numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, directArena);
 
             directArena.numThreadCaches.getAndIncrement();
+            if (bound) {
+                directArena.numBoundThreadCaches.getAndIncrement();
+            }
         } else {
             // No directArea is configured so just null out all caches
             tinySubPageDirectCaches = null;
             smallSubPageDirectCaches = null;
             normalDirectCaches = null;
-            numShiftsNormalDirect = -1;
         }
         if (heapArena != null) {
             // Create the caches for the heap allocations
             tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny, heapArena);
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small, heapArena);
 
-            numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, heapArena);
 
             heapArena.numThreadCaches.getAndIncrement();
+            if (bound) {
+                heapArena.numBoundThreadCaches.getAndIncrement();
+            }
         } else {
             // No heapArea is configured so just null out all caches
             tinySubPageHeapCaches = null;
             smallSubPageHeapCaches = null;
             normalHeapCaches = null;
-            numShiftsNormalHeap = -1;
         }
 
         // The thread-local cache will keep a list of pooled buffers which must be returned to
@@ -130,13 +139,14 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches, SizeClass sizeClass) {
+            int cacheSize, int numCaches, SizeClass sizeClass, PoolArena<T> area) {
         if (cacheSize > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass);
+                cache[i] = new SubPageMemoryRegionCache<T>(
+                        area, cacheSize, sizeClass, i, area.sizeClassCapacity(sizeClass, i));
             }
             return cache;
         } else {
@@ -148,12 +158,13 @@ final class PoolThreadCache {
             int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
         if (cacheSize > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
+            int arraySize = Math.max(1, area.normalCacheIdx(max) + 1);
 
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
             for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<T>(cacheSize);
+                cache[i] = new NormalMemoryRegionCache<T>(
+                        area, cacheSize, i, area.sizeClassCapacity(SizeClass.Normal, i));
             }
             return cache;
         } else {
@@ -161,15 +172,6 @@ final class PoolThreadCache {
         }
     }
 
-    private static int log2(int val) {
-        int res = 0;
-        while (val > 1) {
-            val >>= 1;
-            res++;
-        }
-        return res;
-    }
-
     /**
      * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
@@ -253,11 +255,22 @@ final class PoolThreadCache {
         }
 
         if (directArena != null) {
-            directArena.numThreadCaches.getAndDecrement();
+            detach(directArena);
         }
 
         if (heapArena != null) {
-            heapArena.numThreadCaches.getAndDecrement();
+            detach(heapArena);
+        }
+    }
+
+    private void detach(PoolArena<?> arena) {
+        arena.numThreadCaches.getAndDecrement();
+        if (bound) {
+            arena.numBoundThreadCaches.getAndDecrement();
+        }
+        if (arena.batchesRemoteFrees()) {
+            // The thread may have been the last one to allocate from the arena, hand back what other threads freed.
+            arena.drainRemoteFrees();
         }
     }
 
@@ -314,7 +327,7 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+        int idx = area.smallIdx(normCapacity);
         if (area.isDirect()) {
             return cache(smallSubPageDirectCaches, idx);
         }
@@ -322,11 +335,10 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int normCapacity) {
+        int idx = area.normalCacheIdx(normCapacity);
         if (area.isDirect()) {
-            int idx = log2(normCapacity >> numShiftsNormalDirect);
             return cache(normalDirectCaches, idx);
         }
-        int idx = log2(normCapacity >> numShiftsNormalHeap);
         return cache(normalHeapCaches, idx);
     }
 
@@ -341,8 +353,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
-            super(size, sizeClass);
+        SubPageMemoryRegionCache(PoolArena<T> arena, int size, SizeClass sizeClass, int idx, int elemSize) {
+            super(arena, size, sizeClass, idx, elemSize);
         }
 
         @Override
@@ -356,8 +368,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(PoolArena<T> arena, int size, int idx, int elemSize) {
+            super(arena, size, SizeClass.Normal, idx, elemSize);
         }
 
         @Override
@@ -369,18 +381,40 @@ final class PoolThreadCache {
 
     /**
      * 内部维护一个队列，缓存固定大小的内存
+     *
+     * The number of entries the cache may hold adapts to the allocations of its size class. It starts at zero, so
+     * size classes a thread never uses do not take any of the thread cache budget of the allocator. The first miss
+     * reserves the configured size, and every {@link #trim()} sets it to the number of allocations (hits and misses)
+     * since the previous trim, bounded by twice the configured size and by the thread cache budget.
+     *
+     * Hits and misses are counted separately and published to the counters of the size class in the arena every
+     * {@code METRICS_PUBLISH_INTERVAL} allocations, so long-lived caches do not report stale numbers.
      * @param <T>
      */
     private abstract static class MemoryRegionCache<T> {
-        private final int size;
+        private final int initialSize;
+        private final int maxSize;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        private final int idx;
+        private final PoolArena<T> arena;
+        private final int elemSize;
+        // Written by the owning thread only, read by every thread that adds to the cache.
+        private volatile int size;
+        // Hits and misses since the last trim.
         private int allocations;
-
-        MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
-            queue = PlatformDependent.newFixedMpscQueue(this.size);
+        // Hits and misses not published to the arena yet.
+        private int hits;
+        private int misses;
+
+        MemoryRegionCache(PoolArena<T> arena, int size, SizeClass sizeClass, int idx, int elemSize) {
+            initialSize = MathUtil.safeFindNextPositivePowerOfTwo(size);
+            maxSize = MathUtil.safeFindNextPositivePowerOfTwo(initialSize << 1);
+            queue = PlatformDependent.newFixedMpscQueue(maxSize);
             this.sizeClass = sizeClass;
+            this.idx = idx;
+            this.arena = arena;
+            this.elemSize = elemSize;
         }
 
         /**
@@ -394,6 +428,9 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, long handle) {
+            if (queue.size() >= size) {
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, handle);
             boolean queued = queue.offer(entry);
             if (!queued) {
@@ -408,22 +445,34 @@ final class PoolThreadCache {
          * Allocate something out of the cache if possible and remove the entry from the cache.
          */
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
+            // allocations is not thread-safe which is fine as this is only called from the same thread all time.
+            ++ allocations;
             Entry<T> entry = queue.poll();
             if (entry == null) {
-                return false;
+                ++ misses;
+                if (size == 0) {
+                    // First demand for this size class since it was created or trimmed to nothing.
+                    size = arena.parent.reserveThreadCacheEntries(initialSize, elemSize);
+                }
+            } else {
+                initBuf(entry.chunk, entry.handle, buf, reqCapacity);
+                entry.recycle();
+                ++ hits;
             }
-            initBuf(entry.chunk, entry.handle, buf, reqCapacity);
-            entry.recycle();
-
-            // allocations is not thread-safe which is fine as this is only called from the same thread all time.
-            ++ allocations;
-            return true;
+            if (hits + misses >= METRICS_PUBLISH_INTERVAL) {
+                publishMetrics();
+            }
+            return entry != null;
         }
 
         /**
          * Clear out this cache and free up all previous cached {@link PoolChunk}s and {@code handle}s.
          */
         public final int free() {
+            publishMetrics();
+            arena.parent.releaseThreadCacheEntries(size, elemSize);
+            // Buffers that are released after the cache was freed go back to the arena.
+            size = 0;
             return free(Integer.MAX_VALUE);
         }
 
@@ -445,15 +494,34 @@ final class PoolThreadCache {
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.
          */
         public final void trim() {
-            int free = size - allocations;
+            int demand = Math.min(allocations, maxSize);
             allocations = 0;
+            publishMetrics();
+
+            int oldSize = size;
+            int newSize = demand;
+            if (newSize > oldSize) {
+                newSize = oldSize + arena.parent.reserveThreadCacheEntries(newSize - oldSize, elemSize);
+            } else if (newSize < oldSize) {
+                arena.parent.releaseThreadCacheEntries(oldSize - newSize, elemSize);
+            }
+            size = newSize;
 
-            // We not even allocated all the number that are
+            // Free the entries which do not fit anymore, or were not allocated during the last interval.
+            int free = queue.size() - newSize;
             if (free > 0) {
                 free(free);
             }
         }
 
+        private void publishMetrics() {
+            if (hits != 0 || misses != 0) {
+                arena.addCacheMetrics(sizeClass, idx, hits, misses);
+                hits = 0;
+                misses = 0;
+            }
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
         private  void freeEntry(Entry entry) {
             PoolChunk chunk = entry.chunk;
@@ -17,6 +17,7 @@
 package io.netty.buffer;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -27,6 +28,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *  设置默认参数：chunk最大不超过500M ，树高不超过15层（d=14），page size 不能低于4k
@@ -59,6 +62,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final boolean DEFAULT_FINE_SIZE_CLASSES;
+    private static final long DEFAULT_CHUNK_RELEASE_IDLE_TIME;
+    private static final int DEFAULT_NUM_CHUNK_LIST_STRIPES;
+    private static final long DEFAULT_THREAD_CACHE_BUDGET;
+    private static final boolean DEFAULT_EVENT_LOOP_ARENA_AFFINITY;
+    private static final long DEFAULT_HUGE_CHUNK_CACHE_SIZE;
+    private static final long DEFAULT_HUGE_CHUNK_CACHE_IDLE_TIME;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -131,6 +141,33 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // Use 4 size classes per doubling instead of powers of 2 for buffers of 512 bytes and more.
+        DEFAULT_FINE_SIZE_CLASSES = SystemPropertyUtil.getBoolean("io.netty.allocator.fineSizeClasses", false);
+
+        // the number of milliseconds a chunk must stay completely free before it is released, 0 disables it
+        DEFAULT_CHUNK_RELEASE_IDLE_TIME = Math.max(0,
+                SystemPropertyUtil.getLong("io.netty.allocator.chunkReleaseIdleTime", 0));
+
+        // the number of independently locked sets of chunk lists per arena used for normal allocations
+        DEFAULT_NUM_CHUNK_LIST_STRIPES = Math.max(1,
+                SystemPropertyUtil.getInt("io.netty.allocator.numChunkListStripes", 1));
+
+        // the number of bytes all thread caches of an allocator may hold together, 0 means unlimited
+        DEFAULT_THREAD_CACHE_BUDGET = Math.max(0,
+                SystemPropertyUtil.getLong("io.netty.allocator.threadCacheBudget", 0));
+
+        // bind arenas to event loop threads and batch frees of other threads back to them
+        DEFAULT_EVENT_LOOP_ARENA_AFFINITY = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.eventLoopArenaAffinity", false);
+
+        // the number of bytes of released huge buffers each arena keeps for reuse, 0 disables it
+        DEFAULT_HUGE_CHUNK_CACHE_SIZE = Math.max(0,
+                SystemPropertyUtil.getLong("io.netty.allocator.hugeChunkCacheSize", 0));
+
+        // the number of milliseconds a cached huge chunk is kept without being reused
+        DEFAULT_HUGE_CHUNK_CACHE_IDLE_TIME = Math.max(1,
+                SystemPropertyUtil.getLong("io.netty.allocator.hugeChunkCacheIdleTime", 10000));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -150,6 +187,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.fineSizeClasses: {}", DEFAULT_FINE_SIZE_CLASSES);
+            logger.debug("-Dio.netty.allocator.chunkReleaseIdleTime: {}", DEFAULT_CHUNK_RELEASE_IDLE_TIME);
+            logger.debug("-Dio.netty.allocator.numChunkListStripes: {}", DEFAULT_NUM_CHUNK_LIST_STRIPES);
+            logger.debug("-Dio.netty.allocator.threadCacheBudget: {}", DEFAULT_THREAD_CACHE_BUDGET);
+            logger.debug("-Dio.netty.allocator.eventLoopArenaAffinity: {}", DEFAULT_EVENT_LOOP_ARENA_AFFINITY);
+            logger.debug("-Dio.netty.allocator.hugeChunkCacheSize: {}", DEFAULT_HUGE_CHUNK_CACHE_SIZE);
+            logger.debug("-Dio.netty.allocator.hugeChunkCacheIdleTime: {}", DEFAULT_HUGE_CHUNK_CACHE_IDLE_TIME);
         }
     }
 
@@ -176,6 +220,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final boolean fineSizeClasses;
+    private final long chunkReleaseIdleTime;
+    private final int numChunkListStripes;
+    private final long threadCacheBudget;
+    private final boolean eventLoopArenaAffinity;
+    private final long hugeChunkCacheSize;
+    private final long hugeChunkCacheIdleTime;
+    // Bytes reserved by the caches of all threads, only maintained if there is a budget.
+    private final AtomicLong threadCacheReservedBytes = new AtomicLong();
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
 
@@ -198,14 +251,43 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
-        super(preferDirect);
+        this(new PooledByteBufAllocatorBuilder().preferDirect(preferDirect)
+                .numHeapArenas(nHeapArena).numDirectArenas(nDirectArena).pageSize(pageSize).maxOrder(maxOrder)
+                .cacheSizes(tinyCacheSize, smallCacheSize, normalCacheSize));
+    }
+
+    /**
+     * Creates an allocator with the settings of {@code builder}.
+     *
+     * @see PooledByteBufAllocatorBuilder
+     */
+    PooledByteBufAllocator(PooledByteBufAllocatorBuilder builder) {
+        super(builder.preferDirect);
+        final int nHeapArena = builder.numHeapArenas;
+        final int nDirectArena = builder.numDirectArenas;
+        final int pageSize = builder.pageSize;
+        final int maxOrder = builder.maxOrder;
+        final boolean fineSizeClasses = builder.fineSizeClasses;
+        final long chunkReleaseIdleTime = builder.chunkReleaseIdleTime;
+        final int numChunkListStripes = builder.numChunkListStripes;
+        final long threadCacheBudget = builder.threadCacheBudget;
+        final boolean eventLoopArenaAffinity = builder.eventLoopArenaAffinity;
+        final long hugeChunkCacheSize = builder.hugeChunkCacheSize;
+        final long hugeChunkCacheIdleTime = builder.hugeChunkCacheIdleTime;
 
         //线程私有缓存
         threadCache = new PoolThreadLocalCache();
 
-        this.tinyCacheSize = tinyCacheSize;
-        this.smallCacheSize = smallCacheSize;
-        this.normalCacheSize = normalCacheSize;
+        tinyCacheSize = builder.tinyCacheSize;
+        smallCacheSize = builder.smallCacheSize;
+        normalCacheSize = builder.normalCacheSize;
+        this.fineSizeClasses = fineSizeClasses;
+        this.chunkReleaseIdleTime = chunkReleaseIdleTime;
+        this.numChunkListStripes = numChunkListStripes;
+        this.threadCacheBudget = threadCacheBudget;
+        this.eventLoopArenaAffinity = eventLoopArenaAffinity;
+        this.hugeChunkCacheSize = hugeChunkCacheSize;
+        this.hugeChunkCacheIdleTime = hugeChunkCacheIdleTime;
 
         //计算内存块大小
         final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
@@ -216,16 +298,49 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         if (nDirectArena < 0) {
             throw new IllegalArgumentException("nDirectArea: " + nDirectArena + " (expected: >= 0)");
         }
+        if (chunkReleaseIdleTime < 0) {
+            throw new IllegalArgumentException(
+                    "chunkReleaseIdleTime: " + chunkReleaseIdleTime + " (expected: >= 0)");
+        }
+        if (numChunkListStripes < 1) {
+            throw new IllegalArgumentException(
+                    "numChunkListStripes: " + numChunkListStripes + " (expected: > 0)");
+        }
+        if (threadCacheBudget < 0) {
+            throw new IllegalArgumentException(
+                    "threadCacheBudget: " + threadCacheBudget + " (expected: >= 0)");
+        }
+        if (hugeChunkCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "hugeChunkCacheSize: " + hugeChunkCacheSize + " (expected: >= 0)");
+        }
+        if (hugeChunkCacheIdleTime <= 0) {
+            throw new IllegalArgumentException(
+                    "hugeChunkCacheIdleTime: " + hugeChunkCacheIdleTime + " (expected: > 0)");
+        }
+        if (fineSizeClasses && maxOrder < 3) {
+            // The largest subpage run of the fine size classes spans 7 pages.
+            throw new IllegalArgumentException("maxOrder: " + maxOrder + " (expected: 3-14 with fineSizeClasses)");
+        }
 
         int pageShifts = validateAndCalculatePageShifts(pageSize);
+        long hugeChunkIdleNanos = TimeUnit.MILLISECONDS.toNanos(hugeChunkCacheIdleTime);
 
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i++) {
-                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.HeapArena arena = new PoolArena.HeapArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize, fineSizeClasses, numChunkListStripes,
+                        eventLoopArenaAffinity, hugeChunkCacheSize, hugeChunkIdleNanos);
                 heapArenas[i] = arena;
                 metrics.add(arena);
+                if (chunkReleaseIdleTime > 0) {
+                    PoolArenaSweeper.watch(arena, TimeUnit.MILLISECONDS.toNanos(chunkReleaseIdleTime));
+                }
+                if (hugeChunkCacheSize > 0) {
+                    PoolArenaSweeper.watchHugeChunkCache(arena, hugeChunkIdleNanos);
+                }
             }
             heapArenaMetrics = Collections.unmodifiableList(metrics);
         } else {
@@ -239,10 +354,18 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             for (int i = 0; i < directArenas.length; i++) {
 
                 //#oy-memory: 创建直接内存区对象，此时未真正申请内存
-                PoolArena.DirectArena arena = new PoolArena.DirectArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.DirectArena arena = new PoolArena.DirectArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize, fineSizeClasses, numChunkListStripes,
+                        eventLoopArenaAffinity, hugeChunkCacheSize, hugeChunkIdleNanos);
                 directArenas[i] = arena;
 
                 metrics.add(arena);
+                if (chunkReleaseIdleTime > 0) {
+                    PoolArenaSweeper.watch(arena, TimeUnit.MILLISECONDS.toNanos(chunkReleaseIdleTime));
+                }
+                if (hugeChunkCacheSize > 0) {
+                    PoolArenaSweeper.watchHugeChunkCache(arena, hugeChunkIdleNanos);
+                }
             }
             directArenaMetrics = Collections.unmodifiableList(metrics);
         } else {
@@ -394,6 +517,58 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     * Default size classes - System Property: io.netty.allocator.fineSizeClasses - default false
+     */
+    public static boolean defaultFineSizeClasses() {
+        return DEFAULT_FINE_SIZE_CLASSES;
+    }
+
+    /**
+     * Default chunk release idle time - System Property: io.netty.allocator.chunkReleaseIdleTime - default 0
+     * (disabled)
+     */
+    public static long defaultChunkReleaseIdleTime() {
+        return DEFAULT_CHUNK_RELEASE_IDLE_TIME;
+    }
+
+    /**
+     * Default number of chunk list stripes per arena - System Property: io.netty.allocator.numChunkListStripes -
+     * default 1
+     */
+    public static int defaultNumChunkListStripes() {
+        return DEFAULT_NUM_CHUNK_LIST_STRIPES;
+    }
+
+    /**
+     * Default thread cache budget - System Property: io.netty.allocator.threadCacheBudget - default 0 (unlimited)
+     */
+    public static long defaultThreadCacheBudget() {
+        return DEFAULT_THREAD_CACHE_BUDGET;
+    }
+
+    /**
+     * Default event loop arena affinity - System Property: io.netty.allocator.eventLoopArenaAffinity - default false
+     */
+    public static boolean defaultEventLoopArenaAffinity() {
+        return DEFAULT_EVENT_LOOP_ARENA_AFFINITY;
+    }
+
+    /**
+     * Default huge chunk cache size per arena - System Property: io.netty.allocator.hugeChunkCacheSize - default 0
+     * (disabled)
+     */
+    public static long defaultHugeChunkCacheSize() {
+        return DEFAULT_HUGE_CHUNK_CACHE_SIZE;
+    }
+
+    /**
+     * Default huge chunk cache idle time - System Property: io.netty.allocator.hugeChunkCacheIdleTime - default 10000
+     */
+    public static long defaultHugeChunkCacheIdleTime() {
+        return DEFAULT_HUGE_CHUNK_CACHE_IDLE_TIME;
+    }
+
     @Override
     public boolean isDirectBufferPooled() {
         return directArenas != null;
@@ -428,12 +603,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
          */
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final boolean bound = eventLoopArenaAffinity && Thread.currentThread() instanceof FastThreadLocalThread;
+            final PoolArena<byte[]> heapArena = bound ? leastBoundArena(heapArenas) : leastUsedArena(heapArenas);
+            final PoolArena<ByteBuffer> directArena =
+                    bound ? leastBoundArena(directArenas) : leastUsedArena(directArenas);
 
             return new PoolThreadCache(
                     heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL, bound);
         }
 
         @Override
@@ -456,6 +633,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
             return minArena;
         }
+
+        private <T> PoolArena<T> leastBoundArena(PoolArena<T>[] arenas) {
+            if (arenas == null || arenas.length == 0) {
+                return null;
+            }
+
+            PoolArena<T> minArena = arenas[0];
+            for (int i = 1; i < arenas.length; i++) {
+                PoolArena<T> arena = arenas[i];
+                if (arena.numBoundThreadCaches.get() < minArena.numBoundThreadCaches.get()) {
+                    minArena = arena;
+                }
+            }
+
+            return minArena;
+        }
     }
 
     /**
@@ -524,6 +717,92 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return normalCacheSize;
     }
 
+    /**
+     * Return {@code true} if 4 size classes per doubling are used instead of powers of 2.
+     */
+    public boolean fineSizeClasses() {
+        return fineSizeClasses;
+    }
+
+    /**
+     * Return the number of milliseconds a chunk must stay completely free before it is released, {@code 0} if
+     * free chunks are never released.
+     */
+    public long chunkReleaseIdleTime() {
+        return chunkReleaseIdleTime;
+    }
+
+    /**
+     * Return the number of independently locked sets of chunk lists in each arena.
+     */
+    public int numChunkListStripes() {
+        return numChunkListStripes;
+    }
+
+    /**
+     * Return the number of bytes the thread-local caches of all threads may hold together, {@code 0} if unlimited.
+     */
+    public long threadCacheBudget() {
+        return threadCacheBudget;
+    }
+
+    /**
+     * Return {@code true} if arenas are bound to event loop threads.
+     */
+    public boolean eventLoopArenaAffinity() {
+        return eventLoopArenaAffinity;
+    }
+
+    /**
+     * Return the number of bytes of released huge buffers each arena keeps for reuse, {@code 0} if disabled.
+     */
+    public long hugeChunkCacheSize() {
+        return hugeChunkCacheSize;
+    }
+
+    /**
+     * Return the number of milliseconds a cached huge chunk is kept without being reused.
+     */
+    public long hugeChunkCacheIdleTime() {
+        return hugeChunkCacheIdleTime;
+    }
+
+    /**
+     * Return the number of bytes of the thread cache budget that are reserved by thread-local caches right now.
+     */
+    public long usedThreadCacheBudget() {
+        return threadCacheReservedBytes.get();
+    }
+
+    /**
+     * Reserve room for up to {@code entries} cached buffers of {@code elemSize} bytes from the thread cache budget.
+     * Returns the number of entries that fit into the budget.
+     */
+    int reserveThreadCacheEntries(int entries, int elemSize) {
+        if (threadCacheBudget == 0 || elemSize == 0) {
+            return entries;
+        }
+        for (;;) {
+            long reserved = threadCacheReservedBytes.get();
+            int fit = (int) Math.min(entries, Math.max(0, (threadCacheBudget - reserved) / elemSize));
+            if (fit == 0) {
+                return 0;
+            }
+            if (threadCacheReservedBytes.compareAndSet(reserved, reserved + (long) fit * elemSize)) {
+                return fit;
+            }
+        }
+    }
+
+    /**
+     * Give back room for {@code entries} cached buffers of {@code elemSize} bytes to the thread cache budget.
+     */
+    void releaseThreadCacheEntries(int entries, int elemSize) {
+        if (threadCacheBudget != 0) {
+            threadCacheReservedBytes.addAndGet(-(long) entries * elemSize);
+        }
+    }
+
     final PoolThreadCache threadCache() {
         return threadCache.get();
     }
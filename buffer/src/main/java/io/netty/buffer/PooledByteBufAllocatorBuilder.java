@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A {@link PooledByteBufAllocator} builder. Every setting defaults to the value of its
+ * {@code io.netty.allocator.*} system property, see the {@code default*()} methods of {@link PooledByteBufAllocator}.
+ */
+@UnstableApi
+public final class PooledByteBufAllocatorBuilder {
+
+    boolean preferDirect;
+    int numHeapArenas = PooledByteBufAllocator.defaultNumHeapArena();
+    int numDirectArenas = PooledByteBufAllocator.defaultNumDirectArena();
+    int pageSize = PooledByteBufAllocator.defaultPageSize();
+    int maxOrder = PooledByteBufAllocator.defaultMaxOrder();
+    int tinyCacheSize = PooledByteBufAllocator.defaultTinyCacheSize();
+    int smallCacheSize = PooledByteBufAllocator.defaultSmallCacheSize();
+    int normalCacheSize = PooledByteBufAllocator.defaultNormalCacheSize();
+    boolean fineSizeClasses = PooledByteBufAllocator.defaultFineSizeClasses();
+    long chunkReleaseIdleTime = PooledByteBufAllocator.defaultChunkReleaseIdleTime();
+    int numChunkListStripes = PooledByteBufAllocator.defaultNumChunkListStripes();
+    long threadCacheBudget = PooledByteBufAllocator.defaultThreadCacheBudget();
+    boolean eventLoopArenaAffinity = PooledByteBufAllocator.defaultEventLoopArenaAffinity();
+    long hugeChunkCacheSize = PooledByteBufAllocator.defaultHugeChunkCacheSize();
+    long hugeChunkCacheIdleTime = PooledByteBufAllocator.defaultHugeChunkCacheIdleTime();
+
+    /**
+     * Sets if {@link ByteBufAllocator#buffer()} allocates direct buffers. The default is {@code false}.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder preferDirect(boolean preferDirect) {
+        this.preferDirect = preferDirect;
+        return this;
+    }
+
+    /**
+     * Sets the number of heap arenas, {@code 0} disables pooling of heap buffers.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder numHeapArenas(int numHeapArenas) {
+        this.numHeapArenas = numHeapArenas;
+        return this;
+    }
+
+    /**
+     * Sets the number of direct arenas, {@code 0} disables pooling of direct buffers.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder numDirectArenas(int numDirectArenas) {
+        this.numDirectArenas = numDirectArenas;
+        return this;
+    }
+
+    /**
+     * Sets the page size, a power of 2 of at least 4096.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum order, a chunk is {@code pageSize << maxOrder} bytes large.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder maxOrder(int maxOrder) {
+        this.maxOrder = maxOrder;
+        return this;
+    }
+
+    /**
+     * Sets the number of tiny, small and normal buffers of each size class the thread-local caches hold,
+     * {@code 0} disables caching of that size.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder cacheSizes(int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this.tinyCacheSize = tinyCacheSize;
+        this.smallCacheSize = smallCacheSize;
+        this.normalCacheSize = normalCacheSize;
+        return this;
+    }
+
+    /**
+     * If {@code true} buffers of 512 bytes and more are rounded up to one of 4 size classes per doubling
+     * (e.g. 10k, 12k, 14k, 16k) instead of the next power of 2. This reduces internal fragmentation at the cost of
+     * more subpage pools and thread-local caches. Requires {@code maxOrder >= 3}.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder fineSizeClasses(boolean fineSizeClasses) {
+        this.fineSizeClasses = fineSizeClasses;
+        return this;
+    }
+
+    /**
+     * Sets the number of milliseconds a chunk must stay completely free before it is released by a background
+     * sweeper, or {@code 0} to keep free chunks forever.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder chunkReleaseIdleTime(long chunkReleaseIdleTime) {
+        this.chunkReleaseIdleTime = chunkReleaseIdleTime;
+        return this;
+    }
+
+    /**
+     * Sets the number of independently locked sets of chunk lists in each arena. Thread caches are spread over the
+     * stripes, so normal allocations of threads sharing an arena contend less, at the cost of more chunks per arena.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder numChunkListStripes(int numChunkListStripes) {
+        this.numChunkListStripes = numChunkListStripes;
+        return this;
+    }
+
+    /**
+     * Sets the number of bytes the thread-local caches of all threads may hold together, or {@code 0} for no limit.
+     * The caches of each size class grow and shrink with the allocations of their thread, up to twice the configured
+     * cache size, as long as the budget allows it.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder threadCacheBudget(long threadCacheBudget) {
+        this.threadCacheBudget = threadCacheBudget;
+        return this;
+    }
+
+    /**
+     * If {@code true} every event loop thread ({@link FastThreadLocalThread}) is bound to the arena with the fewest
+     * event loop threads, regardless of how many other threads use it. Buffers released by a thread other than the
+     * one that allocated them are queued and freed in batches by the threads allocating from the arena, instead of
+     * locking the arena from the releasing thread.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder eventLoopArenaAffinity(boolean eventLoopArenaAffinity) {
+        this.eventLoopArenaAffinity = eventLoopArenaAffinity;
+        return this;
+    }
+
+    /**
+     * Sets the number of bytes of released huge buffers (larger than the chunk size) each arena keeps for reuse by
+     * the next huge allocation of the same size, or {@code 0} to destroy them on release. Huge allocations are
+     * rounded up to one of 4 size classes per doubling when this is enabled.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder hugeChunkCacheSize(long hugeChunkCacheSize) {
+        this.hugeChunkCacheSize = hugeChunkCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of milliseconds a cached huge chunk is kept without being reused.
+     *
+     * @return {@code this}
+     */
+    public PooledByteBufAllocatorBuilder hugeChunkCacheIdleTime(long hugeChunkCacheIdleTime) {
+        this.hugeChunkCacheIdleTime = hugeChunkCacheIdleTime;
+        return this;
+    }
+
+    /**
+     * Returns a new {@link PooledByteBufAllocator} instance.
+     */
+    public PooledByteBufAllocator build() {
+        return new PooledByteBufAllocator(this);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * Read-only ByteBuf which wraps a read-only {@link MappedByteBuffer} and unmaps it once it is deallocated.
+ */
+final class ReadOnlyMappedByteBuf extends ReadOnlyByteBufferBuf {
+
+    private final MappedByteBuffer mapped;
+
+    ReadOnlyMappedByteBuf(ByteBufAllocator allocator, MappedByteBuffer mapped) {
+        super(allocator, mapped);
+        this.mapped = mapped;
+    }
+
+    @Override
+    protected void deallocate() {
+        // Only the buffer returned by FileChannel.map(...) holds the cleaner, its slices do not.
+        PlatformDependent.freeDirectBuffer(mapped);
+    }
+}
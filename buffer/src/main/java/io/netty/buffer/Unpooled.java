@@ -17,9 +17,11 @@ package io.netty.buffer;
 
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -215,6 +217,31 @@ public final class Unpooled {
         return new WrappedUnpooledUnsafeDirectByteBuf(ALLOC, memoryAddress, size, doFree);
     }
 
+    /**
+     * Creates a new {@link MappedFile} which maps the whole content of the specified {@link FileChannel} lazily and
+     * hands out read-only views of it. The file must not be truncated while it is mapped.
+     */
+    public static MappedFile wrappedMappedFile(FileChannel channel) throws IOException {
+        return wrappedMappedFile(channel, 0, channel.size());
+    }
+
+    /**
+     * Creates a new {@link MappedFile} which maps {@code length} bytes of the specified {@link FileChannel} starting at
+     * {@code position} lazily and hands out read-only views of it. The file must not be truncated while it is mapped.
+     */
+    public static MappedFile wrappedMappedFile(FileChannel channel, long position, long length) {
+        return wrappedMappedFile(channel, position, length, MappedFile.DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Creates a new {@link MappedFile} which maps {@code length} bytes of the specified {@link FileChannel} starting at
+     * {@code position} lazily in regions of {@code regionSize} bytes and hands out read-only views of it. The file
+     * must not be truncated while it is mapped.
+     */
+    public static MappedFile wrappedMappedFile(FileChannel channel, long position, long length, int regionSize) {
+        return new MappedFile(channel, position, length, regionSize);
+    }
+
     /**
      * Creates a new buffer which wraps the specified buffer's readable bytes.
      * A modification on the specified buffer's content will be visible to the
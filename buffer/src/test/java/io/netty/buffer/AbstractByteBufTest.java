@@ -2040,6 +2040,32 @@ public abstract class AbstractByteBufTest {
         assertThat(lastIndex.get(), is(CAPACITY / 4));
     }
 
+    @Test
+    public void testForEachByteDescStartsAtLastReadableByte() {
+        buffer.clear();
+        for (int i = 0; i < CAPACITY; i ++) {
+            buffer.writeByte(i + 1);
+        }
+        buffer.setIndex(CAPACITY / 4, CAPACITY / 2);
+
+        final AtomicInteger count = new AtomicInteger();
+        assertThat(buffer.forEachByteDesc(new ByteProcessor() {
+            int i = CAPACITY / 2 - 1;
+
+            @Override
+            public boolean process(byte value) throws Exception {
+                assertThat(value, is((byte) (i + 1)));
+                count.incrementAndGet();
+                i --;
+                return true;
+            }
+        }), is(-1));
+
+        assertThat(count.get(), is(buffer.readableBytes()));
+        assertThat(buffer.forEachByteDesc(new ByteProcessor.IndexOfProcessor((byte) (CAPACITY / 2))),
+                is(CAPACITY / 2 - 1));
+    }
+
     @Test
     public void testInternalNioBuffer() {
         testInternalNioBuffer(128);
@@ -15,6 +15,7 @@
  */
 package io.netty.buffer;
 
+import io.netty.util.ByteProcessor.IndexOfProcessor;
 import io.netty.util.ReferenceCountUtil;
 import org.junit.Test;
 
@@ -862,6 +863,70 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         cbuf.release();
     }
 
+    @Test
+    public void testAddComponentsInMiddle() {
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponents(true, buffer().writeByte(1), buffer().writeByte(4));
+        cbuf.addComponents(1, buffer().writeByte(2), EMPTY_BUFFER, buffer().writeByte(3));
+        cbuf.writerIndex(4);
+
+        assertEquals(5, cbuf.numComponents());
+        assertEquals(4, cbuf.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, cbuf.getByte(i));
+        }
+        assertEquals(3, cbuf.toComponentIndex(2));
+        assertEquals(3, cbuf.toByteIndex(4));
+
+        // Adding stops at the first null buffer, the following ones are released.
+        ByteBuf buf5 = buffer().writeByte(5);
+        ByteBuf buf6 = buffer().writeByte(6);
+        cbuf.addComponents(true, buf5, null, buf6);
+        assertEquals(6, cbuf.numComponents());
+        assertEquals(5, cbuf.writerIndex());
+        assertEquals(5, cbuf.getByte(4));
+        assertEquals(0, buf6.refCnt());
+        cbuf.release();
+        assertEquals(0, buf5.refCnt());
+    }
+
+    @Test
+    public void testForEachByteManyComponents() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            cbuf.addComponent(true, buffer().writeByte(i).writeByte(i).writeByte(i));
+            cbuf.addComponent(true, EMPTY_BUFFER);
+        }
+        assertEquals(300, cbuf.readableBytes());
+        assertEquals(150, cbuf.forEachByte(new IndexOfProcessor((byte) 50)));
+        assertEquals(152, cbuf.forEachByteDesc(new IndexOfProcessor((byte) 50)));
+        assertEquals(-1, cbuf.forEachByte(new IndexOfProcessor((byte) 100)));
+        assertEquals(-1, cbuf.forEachByte(0, 150, new IndexOfProcessor((byte) 50)));
+        assertEquals(151, cbuf.forEachByte(151, 100, new IndexOfProcessor((byte) 50)));
+        assertEquals(149, cbuf.forEachByteDesc(0, 150, new IndexOfProcessor((byte) 49)));
+        assertEquals(-1, cbuf.forEachByteDesc(151, 100, new IndexOfProcessor((byte) 49)));
+        cbuf.release();
+    }
+
+    @Test
+    public void testNioBuffersManyComponents() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            cbuf.addComponent(true, buffer().writeByte(i).writeByte(i));
+        }
+        ByteBuffer[] buffers = cbuf.nioBuffers(1, 198);
+        assertEquals(100, buffers.length);
+        assertEquals(1, buffers[0].remaining());
+        assertEquals(1, buffers[99].remaining());
+        int remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        assertEquals(198, remaining);
+        assertEquals(ByteBuffer.wrap(new byte[] { 0, 1, 1 }), cbuf.nioBuffer(1, 3));
+        cbuf.release();
+    }
+
     @Test
     public void testIterator() {
         CompositeByteBuf cbuf = compositeBuffer();
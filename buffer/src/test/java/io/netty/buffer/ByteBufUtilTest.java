@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.AsciiString;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -44,6 +45,31 @@ public class ByteBufUtilTest {
         assertTrue(ByteBufUtil.equals(Unpooled.wrappedBuffer(b1), iB1, Unpooled.wrappedBuffer(b2), iB2, length));
     }
 
+    @Test
+    public void testIpAddressToBytes() {
+        testIpAddressToBytes(Unpooled.buffer(64));
+        testIpAddressToBytes(Unpooled.directBuffer(64));
+    }
+
+    private static void testIpAddressToBytes(ByteBuf buf) {
+        try {
+            buf.writeByte('x');
+            int ipv6Length = ByteBufUtil.writeAscii(buf, "[fe80::200:5aee:feaa:20a2%eth0]");
+            int ipv4Index = buf.writerIndex();
+            int ipv4Length = ByteBufUtil.writeAscii(buf, "10.255.255.254");
+            buf.writeByte('.');
+            byte[] dst = new byte[16];
+
+            assertEquals(16, ByteBufUtil.ipAddressToBytes(buf, 1, ipv6Length, dst, 0));
+            assertEquals("fe8000000000000002005aeefeaa20a2", ByteBufUtil.hexDump(dst));
+            assertEquals(4, ByteBufUtil.ipAddressToBytes(buf, ipv4Index, ipv4Length, dst, 0));
+            assertEquals("0afffffe", ByteBufUtil.hexDump(dst, 0, 4));
+            assertEquals(0, ByteBufUtil.ipAddressToBytes(buf, ipv4Index, ipv4Length + 1, dst, 0));
+        } finally {
+            buf.release();
+        }
+    }
+
     private static int random(Random r, int min, int max) {
         return r.nextInt((max - min) + 1) + min;
     }
@@ -404,4 +430,57 @@ public class ByteBufUtilTest {
             buffer.release();
         }
     }
+
+    @Test
+    public void testIndexOfWordAtATime() {
+        testIndexOfWordAtATime(Unpooled.buffer(64));
+        testIndexOfWordAtATime(Unpooled.directBuffer(64));
+        testIndexOfWordAtATime(Unpooled.buffer(80).slice(13, 64));
+        testIndexOfWordAtATime(PooledByteBufAllocator.DEFAULT.directBuffer(64));
+    }
+
+    private static void testIndexOfWordAtATime(ByteBuf buf) {
+        try {
+            buf.clear().writeZero(64);
+            for (int i = 0; i < 64; i++) {
+                buf.setByte(i, 'a');
+                assertEquals(i, buf.indexOf(0, 64, (byte) 'a'));
+                assertEquals(i, buf.forEachByte(ByteProcessor.FIND_NON_NUL));
+                assertEquals(-1, buf.indexOf(i + 1, 64, (byte) 'a'));
+                assertEquals(i == 0 ? 1 : 0, buf.forEachByte(ByteProcessor.FIND_NUL));
+                buf.setByte(i, 0);
+            }
+            buf.setByte(63, 0x80);
+            assertEquals(63, buf.indexOf(0, 64, (byte) 0x80));
+            assertEquals(-1, buf.indexOf(0, 64, (byte) 0x7f));
+            assertEquals(-1, buf.indexOf(0, 64, (byte) 0x81));
+
+            buf.setByte(40, '\n');
+            buf.setByte(30, '\r');
+            assertEquals(40, buf.forEachByte(ByteProcessor.FIND_LF));
+            assertEquals(30, buf.forEachByte(ByteProcessor.FIND_CR));
+            assertEquals(30, buf.forEachByte(ByteProcessor.FIND_CRLF));
+            assertEquals(40, buf.forEachByte(31, 33, ByteProcessor.FIND_CRLF));
+            assertEquals(-1, buf.forEachByte(41, 23, ByteProcessor.FIND_CRLF));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testIndexOfNeedle() {
+        ByteBuf haystack = Unpooled.copiedBuffer("abcabcabd--abcabd", CharsetUtil.US_ASCII);
+        ByteBuf needle = Unpooled.copiedBuffer("abcabd", CharsetUtil.US_ASCII);
+        try {
+            assertEquals(3, ByteBufUtil.indexOf(needle, haystack));
+            haystack.readerIndex(4);
+            assertEquals(11, ByteBufUtil.indexOf(needle, haystack));
+            haystack.writerIndex(haystack.writerIndex() - 1);
+            assertEquals(-1, ByteBufUtil.indexOf(needle, haystack));
+            assertEquals(4, ByteBufUtil.indexOf(Unpooled.EMPTY_BUFFER, haystack));
+        } finally {
+            haystack.release();
+            needle.release();
+        }
+    }
 }
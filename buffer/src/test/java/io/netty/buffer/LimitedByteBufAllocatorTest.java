@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LimitedByteBufAllocatorTest {
+
+    @Test
+    public void testChargesCapacity() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024);
+        ByteBuf buf = allocator.heapBuffer(128);
+        assertEquals(128, allocator.usedBytes());
+
+        buf.capacity(256);
+        assertEquals(256, allocator.usedBytes());
+        buf.writerIndex(buf.capacity());
+        buf.writeInt(1);
+        assertEquals(buf.capacity(), allocator.usedBytes());
+
+        assertTrue(buf.release());
+        assertEquals(0, allocator.usedBytes());
+    }
+
+    @Test
+    public void testDerivedBuffers() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024);
+        ByteBuf buf = allocator.directBuffer(128);
+        ByteBuf slice = buf.retainedSlice(0, 64);
+
+        // The buffer is still referenced by the slice.
+        assertFalse(buf.release());
+        assertEquals(128, allocator.usedBytes());
+        assertTrue(slice.release());
+        assertEquals(0, allocator.usedBytes());
+    }
+
+    @Test
+    public void testLimit() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024);
+        ByteBuf buf = allocator.heapBuffer(1000);
+        try {
+            allocator.heapBuffer(100);
+            fail();
+        } catch (AllocationLimitExceededException expected) {
+            // expected
+        }
+        assertEquals(1000, allocator.usedBytes());
+        assertTrue(buf.release());
+        assertTrue(allocator.heapBuffer(100).release());
+        assertEquals(0, allocator.usedBytes());
+    }
+
+    @Test
+    public void testNestedLimits() {
+        LimitedByteBufAllocator parent = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024);
+        LimitedByteBufAllocator child1 = new LimitedByteBufAllocator(parent, 768);
+        LimitedByteBufAllocator child2 = new LimitedByteBufAllocator(parent, 768);
+        assertSame(parent, child1.parent());
+
+        ByteBuf buf1 = child1.buffer(512);
+        assertEquals(512, child1.usedBytes());
+        assertEquals(512, parent.usedBytes());
+        try {
+            // Fits into the limit of child2 but not into the one of the parent.
+            child2.buffer(768);
+            fail();
+        } catch (AllocationLimitExceededException expected) {
+            // expected
+        }
+        assertEquals(0, child2.usedBytes());
+        assertEquals(512, parent.usedBytes());
+
+        ByteBuf buf2 = child2.buffer(512);
+        assertEquals(1024, parent.usedBytes());
+        assertTrue(buf1.release());
+        assertTrue(buf2.release());
+        assertEquals(0, parent.usedBytes());
+    }
+
+    @Test
+    public void testSoftLimitListener() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024, 512);
+        final List<String> events = new ArrayList<String>();
+        allocator.addListener(new LimitedByteBufAllocatorListener() {
+            @Override
+            public void softLimitExceeded(LimitedByteBufAllocator allocator) {
+                events.add("exceeded");
+            }
+
+            @Override
+            public void softLimitRecovered(LimitedByteBufAllocator allocator) {
+                events.add("recovered");
+            }
+        });
+
+        ByteBuf buf1 = allocator.buffer(256);
+        ByteBuf buf2 = allocator.buffer(256);
+        assertTrue(allocator.isSoftLimitExceeded());
+        ByteBuf buf3 = allocator.buffer(256);
+        assertEquals(1, events.size());
+
+        // Only recovers once half of the soft limit is reached.
+        assertTrue(buf1.release());
+        assertTrue(allocator.isSoftLimitExceeded());
+        assertEquals(1, events.size());
+        assertTrue(buf2.release());
+        assertFalse(allocator.isSoftLimitExceeded());
+        assertTrue(buf3.release());
+        assertEquals(2, events.size());
+        assertEquals("exceeded", events.get(0));
+        assertEquals("recovered", events.get(1));
+    }
+
+    @Test(timeout = 10000)
+    public void testSoftLimitNotificationsDoNotOvertakeEachOther() throws Exception {
+        final LimitedByteBufAllocator allocator =
+                new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 4096, 1024);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch exceededEntered = new CountDownLatch(1);
+        final CountDownLatch exceededProceed = new CountDownLatch(1);
+        allocator.addListener(new LimitedByteBufAllocatorListener() {
+            @Override
+            public void softLimitExceeded(LimitedByteBufAllocator allocator) {
+                exceededEntered.countDown();
+                try {
+                    exceededProceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("exceeded");
+            }
+
+            @Override
+            public void softLimitRecovered(LimitedByteBufAllocator allocator) {
+                events.add("recovered");
+            }
+        });
+
+        final AtomicReference<ByteBuf> buf = new AtomicReference<ByteBuf>();
+        Thread allocating = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                buf.set(allocator.buffer(2048));
+            }
+        });
+        allocating.start();
+        exceededEntered.await();
+
+        // The buffer is only published once the allocation returned, so release the bytes it was charged directly.
+        Thread releasing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                allocator.charge(-2048);
+            }
+        });
+        releasing.start();
+        while (releasing.getState() != Thread.State.BLOCKED && releasing.isAlive()) {
+            Thread.sleep(1);
+        }
+
+        // The recovery must wait for the listeners of the exceeded notification.
+        assertTrue(events.isEmpty());
+        exceededProceed.countDown();
+        allocating.join();
+        releasing.join();
+
+        assertEquals(Arrays.asList("exceeded", "recovered"), events);
+        assertFalse(allocator.isSoftLimitExceeded());
+        allocator.charge(2048);
+        assertTrue(buf.get().release());
+        assertEquals(0, allocator.usedBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentReleaseGivesBackOnce() throws Exception {
+        final LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 1024);
+        for (int i = 0; i < 1000; i++) {
+            ByteBuf buf = allocator.heapBuffer(128);
+            final ByteBuf[] slices = new ByteBuf[4];
+            for (int j = 0; j < slices.length; j++) {
+                slices[j] = buf.retainedSlice(0, 64);
+            }
+            assertFalse(buf.release());
+
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[slices.length];
+            for (int j = 0; j < threads.length; j++) {
+                final ByteBuf slice = slices[j];
+                threads[j] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        slice.release();
+                    }
+                });
+                threads[j].start();
+            }
+            start.countDown();
+            for (Thread t: threads) {
+                t.join();
+            }
+            assertEquals(0, allocator.usedBytes());
+        }
+    }
+
+    @Test
+    public void testPooledAllocator() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(PooledByteBufAllocator.DEFAULT, 1024 * 1024);
+        ByteBuf buf = allocator.directBuffer(1000);
+        // The pooled allocator rounds up to the next size class.
+        assertEquals(buf.capacity(), allocator.usedBytes());
+        assertTrue(buf.release());
+        assertEquals(0, allocator.usedBytes());
+    }
+}
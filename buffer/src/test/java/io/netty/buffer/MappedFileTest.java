@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.IllegalReferenceCountException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedFileTest {
+
+    private static final int REGION_SIZE = 1024;
+
+    private final byte[] bytes = new byte[REGION_SIZE * 3 + 100];
+    private File file;
+    private RandomAccessFile raf;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < bytes.length; i ++) {
+            bytes[i] = (byte) i;
+        }
+        file = File.createTempFile("netty-mapped-", ".tmp");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        raf = new RandomAccessFile(file, "r");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        raf.close();
+        file.delete();
+    }
+
+    @Test
+    public void testSlicesShareRegion() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel(), 0, bytes.length, REGION_SIZE);
+        assertEquals(bytes.length, mapped.length());
+
+        ByteBuf a = mapped.slice(10, 100);
+        ByteBuf b = mapped.slice(REGION_SIZE - 50, 50);
+        assertContent(10, a);
+        assertContent(REGION_SIZE - 50, b);
+        assertFalse(a.isWritable());
+
+        ByteBuf region = a.unwrap();
+        assertSame(region, b.unwrap());
+        assertEquals(3, region.refCnt());
+
+        assertTrue(mapped.release());
+        assertEquals(2, region.refCnt());
+        // The views stay readable until they are released.
+        assertContent(10, a);
+        assertFalse(a.release());
+        assertTrue(b.release());
+        assertEquals(0, region.refCnt());
+    }
+
+    @Test
+    public void testSliceSpanningRegions() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel(), 0, bytes.length, REGION_SIZE);
+        ByteBuf buf = mapped.slice(REGION_SIZE - 10, REGION_SIZE * 2);
+        assertContent(REGION_SIZE - 10, buf);
+        assertTrue(mapped.release());
+        assertContent(REGION_SIZE - 10, buf);
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testPosition() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel(), 100, bytes.length - 100, REGION_SIZE);
+        ByteBuf last = mapped.slice(mapped.length() - 10, 10);
+        assertContent(bytes.length - 10, last);
+        assertFalse(last.release());
+        assertTrue(mapped.release());
+        assertEquals(0, last.refCnt());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel());
+        try {
+            mapped.slice(bytes.length - 10, 11);
+        } finally {
+            mapped.release();
+        }
+    }
+
+    @Test
+    public void testSliceAfterRelease() throws Exception {
+        FileChannel channel = raf.getChannel();
+        MappedFile mapped = Unpooled.wrappedMappedFile(channel);
+        assertTrue(mapped.release());
+        try {
+            mapped.slice(0, 10);
+            fail();
+        } catch (IllegalReferenceCountException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDiscardRegionsBefore() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel(), 0, bytes.length, REGION_SIZE);
+        ByteBuf first = mapped.slice(0, 10);
+        ByteBuf second = mapped.slice(REGION_SIZE, 10);
+        ByteBuf region = first.unwrap();
+        assertEquals(2, region.refCnt());
+
+        // Only the first region ends before the index.
+        mapped.discardRegionsBefore(REGION_SIZE + 10);
+        assertEquals(1, region.refCnt());
+        assertEquals(2, second.unwrap().refCnt());
+        assertContent(0, first);
+        assertTrue(first.release());
+        assertEquals(0, region.refCnt());
+
+        // A discarded region is mapped again on its own.
+        ByteBuf again = mapped.slice(20, 10);
+        assertContent(20, again);
+        assertTrue(again.release());
+
+        assertFalse(second.release());
+        assertTrue(mapped.release());
+    }
+
+    @Test
+    public void testSliceSpanningRegionsAfterRelease() throws Exception {
+        MappedFile mapped = Unpooled.wrappedMappedFile(raf.getChannel(), 0, bytes.length, REGION_SIZE);
+        assertTrue(mapped.release());
+        try {
+            mapped.slice(REGION_SIZE - 10, REGION_SIZE);
+            fail();
+        } catch (IllegalReferenceCountException expected) {
+            // expected
+        }
+    }
+
+    private void assertContent(int fileOffset, ByteBuf buf) {
+        for (int i = 0; i < buf.readableBytes(); i ++) {
+            assertEquals(bytes[fileOffset + i], buf.getByte(buf.readerIndex() + i));
+        }
+    }
+}
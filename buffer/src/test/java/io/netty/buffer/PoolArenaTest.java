@@ -25,11 +25,74 @@ public class PoolArenaTest {
 
     @Test
     public void testNormalizeCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, false, 1, false, 0, 0);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
         int[] expectedResult = {0, 16, 512, 1024, 1024, 2048};
         for (int i = 0; i < reqCapacities.length; i ++) {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testNormalizeCapacityFineSizeClasses() throws Exception {
+        PoolArena<ByteBuffer> arena =
+                new PoolArena.DirectArena(null, 8192, 11, 13, 16 * 1024 * 1024, true, 1, false, 0, 0);
+        int[] reqCapacities = {0, 15, 510, 512, 513, 1023, 1025, 9 * 1024, 33 * 1024, 65 * 1024};
+        int[] expectedResult = {0, 16, 512, 512, 640, 1024, 1280, 10 * 1024, 40 * 1024, 80 * 1024};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testNormalizeHugeCapacity() throws Exception {
+        int mb = 1024 * 1024;
+        int[] reqCapacities = {16 * mb + 1, 17 * mb, 20 * mb, 20 * mb + 1, 33 * mb, Integer.MAX_VALUE};
+        int[] expectedResult = {20 * mb, 20 * mb, 20 * mb, 24 * mb, 40 * mb, Integer.MAX_VALUE};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], PoolHugeChunkCache.normalizeCapacity(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testFineSizeClassIndexes() throws Exception {
+        PoolArena<ByteBuffer> arena =
+                new PoolArena.DirectArena(null, 8192, 11, 13, 16 * 1024 * 1024, true, 1, false, 0, 0);
+        Assert.assertEquals(24, arena.numSmallSubpagePools);
+        Assert.assertEquals(0, arena.smallIdx(512));
+        Assert.assertEquals(1, arena.smallIdx(640));
+        Assert.assertEquals(4, arena.smallIdx(1024));
+        Assert.assertEquals(5, arena.smallIdx(1280));
+        Assert.assertEquals(23, arena.smallIdx(28 * 1024));
+        Assert.assertTrue(arena.isTinyOrSmall(28 * 1024));
+        Assert.assertFalse(arena.isTinyOrSmall(32 * 1024));
+        Assert.assertEquals(0, arena.normalCacheIdx(32 * 1024));
+        Assert.assertEquals(1, arena.normalCacheIdx(40 * 1024));
+        Assert.assertEquals(4, arena.normalCacheIdx(64 * 1024));
+        Assert.assertEquals(5, arena.normalCacheIdx(80 * 1024));
+        Assert.assertEquals(5, arena.subpageRunPages(640));
+        Assert.assertEquals(1, arena.subpageRunPages(1024));
+        Assert.assertEquals(7, arena.subpageRunPages(28 * 1024));
+    }
+
+    @Test
+    public void testSizeClassCapacity() throws Exception {
+        for (boolean fineSizeClasses : new boolean[] { false, true }) {
+            PoolArena<ByteBuffer> arena =
+                    new PoolArena.DirectArena(null, 8192, 11, 13, 16 * 1024 * 1024, fineSizeClasses, 1, false, 0, 0);
+            for (int reqCapacity = 0; reqCapacity <= 1024 * 1024; reqCapacity += 16) {
+                int normCapacity = arena.normalizeCapacity(reqCapacity);
+                if (PoolArena.isTiny(normCapacity)) {
+                    Assert.assertEquals(normCapacity, arena.sizeClassCapacity(
+                            PoolArena.SizeClass.Tiny, PoolArena.tinyIdx(normCapacity)));
+                } else if (arena.isTinyOrSmall(normCapacity)) {
+                    Assert.assertEquals(normCapacity, arena.sizeClassCapacity(
+                            PoolArena.SizeClass.Small, arena.smallIdx(normCapacity)));
+                } else {
+                    Assert.assertEquals(normCapacity, arena.sizeClassCapacity(
+                            PoolArena.SizeClass.Normal, arena.normalCacheIdx(normCapacity)));
+                }
+            }
+        }
+    }
 }
@@ -16,6 +16,8 @@
 
 package io.netty.buffer;
 
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -25,6 +27,8 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.LockSupport;
@@ -32,6 +36,8 @@ import java.util.concurrent.locks.LockSupport;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class PooledByteBufAllocatorTest {
@@ -149,6 +155,407 @@ public class PooledByteBufAllocatorTest {
         assertFalse(lists.get(5).iterator().hasNext());
     }
 
+    @Test
+    public void testFineSizeClassesRunLength() {
+        int chunkSize = 16 * 1024 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .fineSizeClasses(true).build();
+        assertTrue(allocator.fineSizeClasses());
+        ByteBuf small = allocator.heapBuffer(9 * 1024);
+        ByteBuf normal = allocator.heapBuffer(33 * 1024);
+        try {
+            PoolChunkMetric chunk = allocator.heapArenas().get(0).chunkLists().get(0).iterator().next();
+            // 10k subpage elements live in a run of 5 pages, 33k is served by a run of 5 pages.
+            assertEquals(chunkSize - 2 * 40 * 1024, chunk.freeBytes());
+        } finally {
+            assertTrue(small.release());
+            assertTrue(normal.release());
+        }
+    }
+
+    @Test
+    public void testFineSizeClassesAllocateAndFree() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .fineSizeClasses(true).build();
+        Random random = new Random(42);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 2048; i++) {
+            ByteBuf buf = allocator.heapBuffer(random.nextInt(256 * 1024));
+            buf.writeInt(i);
+            buffers.add(buf);
+        }
+        for (int i = 0; i < buffers.size(); i++) {
+            ByteBuf buf = buffers.get(i);
+            assertEquals(i, buf.readInt());
+            assertTrue(buf.release());
+        }
+        PoolArenaMetric arena = allocator.heapArenas().get(0);
+        // The last subpage of every pool is kept around, so account for the runs backing them.
+        int retained = 0;
+        List<PoolSubpageMetric> subpages = new ArrayList<PoolSubpageMetric>(arena.tinySubpages());
+        subpages.addAll(arena.smallSubpages());
+        for (PoolSubpageMetric subpage : subpages) {
+            assertEquals(subpage.maxNumElements(), subpage.numAvailable());
+            retained += subpage.pageSize();
+        }
+        int used = 0;
+        for (PoolChunkListMetric list : arena.chunkLists()) {
+            for (PoolChunkMetric chunk : list) {
+                used += chunk.chunkSize() - chunk.freeBytes();
+            }
+        }
+        assertEquals(retained, used);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFineSizeClassesRequireMaxOrder() {
+        new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(2).cacheSizes(0, 0, 0)
+                .fineSizeClasses(true).build();
+    }
+
+    @Test
+    public void testReleaseIdleChunks() {
+        int chunkSize = 16 * 1024 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 0, 8192, 11, 0, 0, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.heapArenas().get(0);
+        ByteBuf buffer = allocator.heapBuffer(64 * 1024);
+        List<PoolChunkListMetric> lists = arena.chunkLists();
+
+        // Chunks in use are never released.
+        assertEquals(0, arena.releaseIdleChunks(0));
+        assertEquals(0, arena.releaseIdleChunks(0));
+        assertTrue(buffer.release());
+        assertTrue(lists.get(0).iterator().hasNext());
+
+        // The first call only notices the chunk became free.
+        assertEquals(0, arena.releaseIdleChunks(0));
+        assertTrue(lists.get(0).iterator().hasNext());
+        assertEquals(1, arena.releaseIdleChunks(0));
+        assertFalse(lists.get(0).iterator().hasNext());
+        assertEquals(1, arena.numReleasedChunks());
+        assertEquals(chunkSize, arena.numReleasedChunkBytes());
+
+        // The arena keeps working after its chunk was released.
+        assertTrue(allocator.heapBuffer(64 * 1024).release());
+        assertTrue(lists.get(0).iterator().hasNext());
+    }
+
+    @Test(timeout = 5000)
+    public void testIdleChunksReleasedInBackground() throws InterruptedException {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(1).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .chunkReleaseIdleTime(100).build();
+        assertEquals(100, allocator.chunkReleaseIdleTime());
+        assertTrue(allocator.directBuffer(64 * 1024).release());
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        while (arena.numReleasedChunks() == 0) {
+            Thread.sleep(50);
+        }
+        assertFalse(arena.chunkLists().get(0).iterator().hasNext());
+        assertEquals(0, arena.numActiveBytes());
+    }
+
+    @Test
+    public void testHugeChunkCache() {
+        int mb = 1024 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .hugeChunkCacheSize(64 * mb).hugeChunkCacheIdleTime(60000).build();
+        assertEquals(64 * mb, allocator.hugeChunkCacheSize());
+        PoolArena<?> arena = (PoolArena<?>) allocator.heapArenas().get(0);
+
+        ByteBuf buffer = allocator.heapBuffer(17 * mb);
+        assertEquals(17 * mb, buffer.capacity());
+        assertEquals(1, arena.numHugeChunkCacheMisses());
+        assertTrue(buffer.release());
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(20 * mb, arena.numCachedHugeChunkBytes());
+        assertEquals(20 * mb, arena.numActiveBytes());
+
+        // Buffers of the same size class reuse the chunk.
+        buffer = allocator.heapBuffer(18 * mb);
+        assertEquals(18 * mb, buffer.capacity());
+        assertEquals(1, arena.numHugeChunkCacheHits());
+        assertEquals(0, arena.numCachedHugeChunks());
+        assertTrue(buffer.release());
+
+        // The cache never holds more than its size, the other chunks are destroyed.
+        ByteBuf[] buffers = new ByteBuf[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.heapBuffer(20 * mb);
+        }
+        for (ByteBuf b : buffers) {
+            assertTrue(b.release());
+        }
+        assertEquals(3, arena.numCachedHugeChunks());
+        assertEquals(60 * mb, arena.numCachedHugeChunkBytes());
+        assertEquals(0, arena.numActiveHugeAllocations());
+
+        // Nothing is idle for long enough yet.
+        assertEquals(0, arena.evictHugeChunks());
+        assertEquals(3, arena.numCachedHugeChunks());
+    }
+
+    @Test(timeout = 5000)
+    public void testHugeChunksEvictedInBackground() throws InterruptedException {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(1).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .hugeChunkCacheSize(64 * 1024 * 1024).hugeChunkCacheIdleTime(100).build();
+        assertTrue(allocator.directBuffer(32 * 1024 * 1024).release());
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        assertEquals(1, arena.numCachedHugeChunks());
+        while (arena.numEvictedHugeChunks() == 0) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, arena.numCachedHugeChunks());
+        assertEquals(0, arena.numActiveBytes());
+    }
+
+    @Test
+    public void testChunkListStripes() throws InterruptedException {
+        final int numStripes = 4;
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                        .numChunkListStripes(numStripes).build();
+        assertEquals(numStripes, allocator.numChunkListStripes());
+        PoolArenaMetric arena = allocator.heapArenas().get(0);
+        assertEquals(6 * numStripes, arena.chunkLists().size());
+
+        // Each new thread cache uses the next stripe, so every thread ends up with its own chunk.
+        final List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < numStripes; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ByteBuf buffer = allocator.heapBuffer(64 * 1024);
+                    synchronized (buffers) {
+                        buffers.add(buffer);
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        int numChunks = 0;
+        for (PoolChunkListMetric list : arena.chunkLists()) {
+            for (PoolChunkMetric ignored : list) {
+                numChunks++;
+            }
+        }
+        assertEquals(numStripes, numChunks);
+        assertEquals(numStripes, arena.numNormalAllocations());
+
+        // Release from another thread than the one that allocated.
+        for (ByteBuf buffer : buffers) {
+            assertTrue(buffer.release());
+        }
+        assertEquals(numStripes, arena.numNormalDeallocations());
+        assertEquals(0, arena.numActiveAllocations());
+    }
+
+    @Test
+    public void testThreadCacheHitsAndMisses() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11);
+        PoolArenaMetric arena = allocator.heapArenas().get(0);
+
+        // The first allocation misses the empty cache, the second one gets the buffer released before.
+        assertTrue(allocator.heapBuffer(1024).release());
+        assertTrue(allocator.heapBuffer(1024).release());
+        assertEquals(0, arena.numSmallCacheHits());
+
+        allocator.threadCache().trim();
+        assertEquals(1, arena.numSmallCacheHits());
+        assertEquals(1, arena.numSmallCacheMisses());
+        assertEquals(0, arena.numNormalCacheHits());
+        assertEquals(0, arena.numTinyCacheMisses());
+        // The buffer is still cached as its size class was used since the last trim.
+        assertEquals(0, arena.numSmallDeallocations());
+
+        // A size class that was not used since the last trim gives its cached buffers back.
+        allocator.threadCache().trim();
+        assertEquals(1, arena.numSmallDeallocations());
+    }
+
+    @Test
+    public void testThreadCacheMetricsPerSizeClass() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11);
+        PoolArenaMetric arena = allocator.heapArenas().get(0);
+
+        // The metrics of a size class are published every 64 allocations, without waiting for a trim.
+        for (int i = 0; i < 64; i++) {
+            assertTrue(allocator.heapBuffer(1024).release());
+        }
+        assertEquals(63, arena.numCacheHits(1024));
+        assertEquals(1, arena.numCacheMisses(1024));
+        // Capacities are rounded up to their size class.
+        assertEquals(63, arena.numCacheHits(1000));
+        assertEquals(0, arena.numCacheHits(2048));
+        assertEquals(0, arena.numCacheMisses(2048));
+        assertEquals(0, arena.numCacheHits(Integer.MAX_VALUE));
+        assertEquals(63, arena.numSmallCacheHits());
+        assertEquals(1, arena.numSmallCacheMisses());
+    }
+
+    @Test
+    public void testThreadCacheBudget() throws InterruptedException {
+        final int budget = 64 * 1024;
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(1).numDirectArenas(1).pageSize(8192).maxOrder(11).cacheSizes(512, 256, 64)
+                        .threadCacheBudget(budget).build();
+        assertEquals(budget, allocator.threadCacheBudget());
+
+        final PoolThreadCache cache = allocator.threadCache();
+        // Size classes that were never used do not take any of the budget.
+        assertEquals(0, allocator.usedThreadCacheBudget());
+        assertTrue(allocator.heapBuffer(16).release());
+        final long used = allocator.usedThreadCacheBudget();
+        assertTrue(used > 0);
+        assertTrue(used < budget);
+
+        // Another thread still gets room for the size class it uses.
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(allocator.heapBuffer(32).release());
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(allocator.usedThreadCacheBudget() > used);
+        assertTrue(allocator.usedThreadCacheBudget() <= budget);
+
+        // Filling the budget leaves nothing for size classes used later.
+        assertTrue(allocator.heapBuffer(1024).release());
+        assertTrue(allocator.usedThreadCacheBudget() <= budget);
+
+        cache.free();
+        assertTrue(allocator.usedThreadCacheBudget() <= budget - used);
+    }
+
+    @Test
+    public void testEventLoopArenaAffinity() throws Exception {
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(2).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                        .eventLoopArenaAffinity(true).build();
+        assertTrue(allocator.eventLoopArenaAffinity());
+        Callable<PoolArena<?>> arenaOfThread = new Callable<PoolArena<?>>() {
+            @Override
+            public PoolArena<?> call() {
+                return allocator.threadCache().heapArena;
+            }
+        };
+
+        // A thread which is not an event loop takes the first arena, but does not keep an event loop from using it.
+        PoolArena<?> arena = arenaOfThread.call();
+        EventExecutor executor1 = new DefaultEventExecutor();
+        EventExecutor executor2 = new DefaultEventExecutor();
+        try {
+            PoolArena<?> arena1 = executor1.submit(arenaOfThread).get();
+            PoolArena<?> arena2 = executor2.submit(arenaOfThread).get();
+            assertSame(arena, arena1);
+            assertNotSame(arena1, arena2);
+        } finally {
+            executor1.shutdownGracefully(0, 0, MILLISECONDS).syncUninterruptibly();
+            executor2.shutdownGracefully(0, 0, MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testEventLoopArenaAffinityBatchesRemoteFrees() throws Exception {
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                        .eventLoopArenaAffinity(true).build();
+        final PoolArenaMetric arena = allocator.heapArenas().get(0);
+        final Callable<ByteBuf> allocate = new Callable<ByteBuf>() {
+            @Override
+            public ByteBuf call() {
+                return allocator.heapBuffer(64 * 1024);
+            }
+        };
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            ByteBuf buffer = executor.submit(allocate).get();
+
+            // Released by another thread, so it is only freed when the event loop allocates next time.
+            assertTrue(buffer.release());
+            assertEquals(0, arena.numNormalDeallocations());
+
+            assertTrue(executor.submit(allocate).get().release());
+            assertEquals(1, arena.numNormalDeallocations());
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testRemoteFreesDrainedOnceTooManyArePending() throws Exception {
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                        .eventLoopArenaAffinity(true).build();
+        final PoolArenaMetric arena = allocator.heapArenas().get(0);
+        final int numBuffers = PoolArena.MAX_PENDING_REMOTE_FREES;
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            List<ByteBuf> buffers = executor.submit(new Callable<List<ByteBuf>>() {
+                @Override
+                public List<ByteBuf> call() {
+                    List<ByteBuf> buffers = new ArrayList<ByteBuf>(numBuffers);
+                    for (int i = 0; i < numBuffers; i++) {
+                        buffers.add(allocator.heapBuffer(1024));
+                    }
+                    return buffers;
+                }
+            }).get();
+
+            for (int i = 0; i < numBuffers - 1; i++) {
+                assertTrue(buffers.get(i).release());
+            }
+            assertEquals(0, arena.numDeallocations());
+
+            // The event loop does not allocate anymore, so the releasing thread drains the frees itself.
+            assertTrue(buffers.get(numBuffers - 1).release());
+            assertEquals(numBuffers, arena.numDeallocations());
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testRemoteFreesDrainedBySweeper() throws Exception {
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocatorBuilder().preferDirect(true)
+                        .numHeapArenas(1).numDirectArenas(0).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                        .chunkReleaseIdleTime(100).eventLoopArenaAffinity(true).build();
+        final PoolArenaMetric arena = allocator.heapArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            ByteBuf buffer = executor.submit(new Callable<ByteBuf>() {
+                @Override
+                public ByteBuf call() {
+                    return allocator.heapBuffer(64 * 1024);
+                }
+            }).get();
+
+            assertTrue(buffer.release());
+            assertEquals(0, arena.numNormalDeallocations());
+
+            // The event loop is idle, the sweeper does the free and then releases the chunk.
+            while (arena.numNormalDeallocations() == 0 || arena.numReleasedChunks() == 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
     // The ThreadDeathWatcher sleeps 1s, give it double that time.
     @Test (timeout = 2000)
     public void testThreadCacheDestroyedByThreadDeathWatcher() {
@@ -16,7 +16,14 @@
 
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.AsciiString;
+import io.netty.util.internal.MathUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Standard HTTP header names.
@@ -347,5 +354,122 @@ public final class HttpHeaderNames {
      */
     public static final AsciiString WWW_AUTHENTICATE = new AsciiString("www-authenticate");
 
+    /**
+     * Open addressing table of all the constants above, so decoders can look up the constant for a header name
+     * without allocating. Must be initialized after the constants.
+     */
+    private static final AsciiString[] TABLE;
+    private static final int TABLE_MASK;
+    private static final int MAX_NAME_LENGTH;
+
+    static {
+        List<AsciiString> names = new ArrayList<AsciiString>();
+        for (Field field : HttpHeaderNames.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers) && field.getType() == AsciiString.class) {
+                try {
+                    names.add((AsciiString) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        // Keep the table at most a quarter full, so lookups of unknown names usually hit an empty slot right away.
+        AsciiString[] table = new AsciiString[MathUtil.findNextPositivePowerOfTwo(names.size() * 4)];
+        int mask = table.length - 1;
+        int maxLength = 0;
+        for (AsciiString name : names) {
+            int index = hash(name, 0, name.length()) & mask;
+            while (table[index] != null) {
+                index = index + 1 & mask;
+            }
+            table[index] = name;
+            maxLength = Math.max(maxLength, name.length());
+        }
+        TABLE = table;
+        TABLE_MASK = mask;
+        MAX_NAME_LENGTH = maxLength;
+    }
+
+    /**
+     * Returns the constant of this class whose content equals the chars of {@code name} in
+     * {@code [start, end)}, or {@code null} if there is none. The comparison is case sensitive, as all the constants
+     * are lowercase. This is meant for HTTP/2 (HPACK), where header names must be lowercase; HTTP/1.x names are
+     * commonly sent in mixed case and would rarely match.
+     */
+    public static AsciiString lookup(CharSequence name, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > MAX_NAME_LENGTH) {
+            return null;
+        }
+        for (int index = hash(name, start, end) & TABLE_MASK;; index = index + 1 & TABLE_MASK) {
+            AsciiString candidate = TABLE[index];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.length() == length && regionEquals(candidate, name, start)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Returns the constant of this class whose content equals the {@code length} bytes of {@code buf} starting at
+     * {@code index}, or {@code null} if there is none. The comparison is case sensitive, as all the constants are
+     * lowercase.
+     */
+    public static AsciiString lookup(ByteBuf buf, int index, int length) {
+        if (length <= 0 || length > MAX_NAME_LENGTH) {
+            return null;
+        }
+        int hash = 0;
+        for (int i = index, end = index + length; i < end; i++) {
+            hash = hash * 31 + (buf.getByte(i) & 0xFF);
+        }
+        for (int i = hash & TABLE_MASK;; i = i + 1 & TABLE_MASK) {
+            AsciiString candidate = TABLE[i];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.length() == length && regionEquals(candidate, buf, index)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Returns the constant of this class whose content equals {@code name}, or {@code name} itself if there is none.
+     */
+    public static CharSequence intern(CharSequence name) {
+        AsciiString constant = lookup(name, 0, name.length());
+        return constant != null ? constant : name;
+    }
+
+    private static int hash(CharSequence name, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + name.charAt(i);
+        }
+        return hash;
+    }
+
+    private static boolean regionEquals(AsciiString constant, CharSequence name, int start) {
+        for (int i = 0; i < constant.length(); i++) {
+            if (constant.charAt(i) != name.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(AsciiString constant, ByteBuf buf, int index) {
+        for (int i = 0; i < constant.length(); i++) {
+            if (constant.byteAt(i) != buf.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private HttpHeaderNames() { }
 }
@@ -23,7 +23,6 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.PrematureChannelClosureException;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.ByteProcessor;
 import io.netty.util.internal.AppendableCharSequence;
 
 import java.util.List;
@@ -775,7 +774,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         return 0;
     }
 
-    private static class HeaderParser implements ByteProcessor {
+    private static class HeaderParser {
         private final AppendableCharSequence seq;
         private final int maxLength;
         private int size;
@@ -788,39 +787,49 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         public AppendableCharSequence parse(ByteBuf buffer) {
             final int oldSize = size;
             seq.reset();
-            int i = buffer.forEachByte(this);
-            if (i == -1) {
-                size = oldSize;
+            final int readerIndex = buffer.readerIndex();
+            final int writerIndex = buffer.writerIndex();
+            // Find the end of the line a word at a time, instead of passing every byte through a ByteProcessor.
+            final int lfIndex = buffer.indexOf(readerIndex, writerIndex, HttpConstants.LF);
+            if (lfIndex == -1) {
+                // Fail early if the incomplete line is already too long.
+                if (oldSize + writerIndex - readerIndex > maxLength &&
+                        oldSize + nonCrBytes(buffer, readerIndex, writerIndex) > maxLength) {
+                    throw newException(maxLength);
+                }
                 return null;
             }
-            buffer.readerIndex(i + 1);
-            return seq;
-        }
 
-        public void reset() {
-            size = 0;
-        }
-
-        @Override
-        public boolean process(byte value) throws Exception {
-            char nextByte = (char) value;
-            if (nextByte == HttpConstants.CR) {
-                return true;
-            }
-            if (nextByte == HttpConstants.LF) {
-                return false;
+            for (int i = readerIndex; i < lfIndex; i ++) {
+                char nextByte = (char) buffer.getByte(i);
+                if (nextByte == HttpConstants.CR) {
+                    continue;
+                }
+                if (++ size > maxLength) {
+                    // TODO: Respond with Bad Request and discard the traffic
+                    //    or close the connection.
+                    //       No need to notify the upstream handlers - just log.
+                    //       If decoding a response, just throw an exception.
+                    throw newException(maxLength);
+                }
+                seq.append(nextByte);
             }
+            buffer.readerIndex(lfIndex + 1);
+            return seq;
+        }
 
-            if (++ size > maxLength) {
-                // TODO: Respond with Bad Request and discard the traffic
-                //    or close the connection.
-                //       No need to notify the upstream handlers - just log.
-                //       If decoding a response, just throw an exception.
-                throw newException(maxLength);
+        private static int nonCrBytes(ByteBuf buffer, int fromIndex, int toIndex) {
+            int count = toIndex - fromIndex;
+            for (int i = fromIndex; i < toIndex; i ++) {
+                if (buffer.getByte(i) == HttpConstants.CR) {
+                    count --;
+                }
             }
+            return count;
+        }
 
-            seq.append(nextByte);
-            return true;
+        public void reset() {
+            size = 0;
         }
 
         protected TooLongFrameException newException(int maxLength) {
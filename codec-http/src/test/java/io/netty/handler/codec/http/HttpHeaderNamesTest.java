@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HttpHeaderNamesTest {
+
+    @Test
+    public void testLookupCharSequence() {
+        assertSame(HttpHeaderNames.CONTENT_LENGTH, HttpHeaderNames.lookup("content-length", 0, 14));
+        assertSame(HttpHeaderNames.HOST, HttpHeaderNames.lookup("xhostx", 1, 5));
+        assertSame(HttpHeaderNames.WWW_AUTHENTICATE, HttpHeaderNames.lookup("www-authenticate", 0, 16));
+        // The lookup is case sensitive.
+        assertNull(HttpHeaderNames.lookup("Content-Length", 0, 14));
+        assertNull(HttpHeaderNames.lookup("x-custom", 0, 8));
+        assertNull(HttpHeaderNames.lookup("", 0, 0));
+    }
+
+    @Test
+    public void testLookupByteBuf() {
+        ByteBuf buf = Unpooled.copiedBuffer("::accept-encoding::", CharsetUtil.US_ASCII);
+        try {
+            assertSame(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderNames.lookup(buf, 2, 15));
+            assertSame(HttpHeaderNames.ACCEPT, HttpHeaderNames.lookup(buf, 2, 6));
+            assertNull(HttpHeaderNames.lookup(buf, 1, 15));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testIntern() {
+        assertSame(HttpHeaderNames.TRAILER, HttpHeaderNames.intern(new StringBuilder("trailer")));
+        String custom = "x-custom";
+        assertSame(custom, HttpHeaderNames.intern(custom));
+    }
+}
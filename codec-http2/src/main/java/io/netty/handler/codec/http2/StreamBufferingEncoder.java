@@ -21,13 +21,15 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
+import io.netty.util.collection.IntPriorityQueue;
 import io.netty.util.internal.UnstableApi;
 
 import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Queue;
-import java.util.TreeMap;
 
 import static io.netty.handler.codec.http2.Http2CodecUtil.SMALLEST_MAX_CONCURRENT_STREAMS;
 import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
@@ -99,7 +101,11 @@ public class StreamBufferingEncoder extends DecoratingHttp2ConnectionEncoder {
      * Buffer for any streams and corresponding frames that could not be created due to the maximum
      * concurrent stream limit being hit.
      */
-    private final TreeMap<Integer, PendingStream> pendingStreams = new TreeMap<Integer, PendingStream>();
+    private final IntObjectMap<PendingStream> pendingStreams = new IntObjectHashMap<PendingStream>();
+    /**
+     * The ids of the {@link #pendingStreams}, so the streams can be created in the order of their ids.
+     */
+    private final IntPriorityQueue pendingStreamIds = new IntPriorityQueue();
     private int maxConcurrentStreams;
     private boolean closed;
 
@@ -157,6 +163,7 @@ public class StreamBufferingEncoder extends DecoratingHttp2ConnectionEncoder {
         if (pendingStream == null) {
             pendingStream = new PendingStream(ctx, streamId);
             pendingStreams.put(streamId, pendingStream);
+            pendingStreamIds.offer(streamId);
         }
         pendingStream.frames.add(new HeadersFrame(headers, streamDependency, weight, exclusive,
                 padding, endOfStream, promise));
@@ -173,6 +180,7 @@ public class StreamBufferingEncoder extends DecoratingHttp2ConnectionEncoder {
         // of the promises and releasing of the ByteBufs here.
         PendingStream stream = pendingStreams.remove(streamId);
         if (stream != null) {
+            pendingStreamIds.remove(streamId);
             // Sending a RST_STREAM to a buffered stream will succeed the promise of all frames
             // associated with the stream, as sending a RST_STREAM means that someone "doesn't care"
             // about the stream anymore and thus there is not point in failing the promises and invoking
@@ -223,7 +231,7 @@ public class StreamBufferingEncoder extends DecoratingHttp2ConnectionEncoder {
                 // Fail all buffered streams.
                 Http2ChannelClosedException e = new Http2ChannelClosedException();
                 while (!pendingStreams.isEmpty()) {
-                    PendingStream stream = pendingStreams.pollFirstEntry().getValue();
+                    PendingStream stream = pollFirstPendingStream();
                     stream.close(e);
                 }
             }
@@ -234,24 +242,31 @@ public class StreamBufferingEncoder extends DecoratingHttp2ConnectionEncoder {
 
     private void tryCreatePendingStreams() {
         while (!pendingStreams.isEmpty() && canCreateStream()) {
-            Map.Entry<Integer, PendingStream> entry = pendingStreams.pollFirstEntry();
-            PendingStream pendingStream = entry.getValue();
+            PendingStream pendingStream = pollFirstPendingStream();
             pendingStream.sendFrames();
         }
     }
 
     private void cancelGoAwayStreams(int lastStreamId, long errorCode, ByteBuf debugData) {
-        Iterator<PendingStream> iter = pendingStreams.values().iterator();
+        Iterator<PrimitiveEntry<PendingStream>> iter = pendingStreams.entries().iterator();
         Exception e = new Http2GoAwayException(lastStreamId, errorCode, ByteBufUtil.getBytes(debugData));
         while (iter.hasNext()) {
-            PendingStream stream = iter.next();
+            PendingStream stream = iter.next().value();
             if (stream.streamId > lastStreamId) {
                 iter.remove();
+                pendingStreamIds.remove(stream.streamId);
                 stream.close(e);
             }
         }
     }
 
+    /**
+     * Removes and returns the buffered stream with the lowest id.
+     */
+    private PendingStream pollFirstPendingStream() {
+        return pendingStreams.remove(pendingStreamIds.poll());
+    }
+
     /**
      * Determines whether or not we're allowed to create a new stream right now.
      */
@@ -32,6 +32,7 @@
 package io.netty.handler.codec.http2.internal.hpack;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http2.Http2Exception;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.internal.hpack.HpackUtil.IndexType;
@@ -241,7 +242,7 @@ public final class Decoder {
                         throw notEnoughDataException(in);
                     }
 
-                    name = readStringLiteral(in, nameLength, huffmanEncoded);
+                    name = readName(in, nameLength, huffmanEncoded);
 
                     state = READ_LITERAL_HEADER_VALUE_LENGTH_PREFIX;
                     break;
@@ -415,6 +416,19 @@ public final class Decoder {
         throw connectionError(ENHANCE_YOUR_CALM, "Header size exceeded max allowed bytes (%d)", maxHeadersLength);
     }
 
+    private CharSequence readName(ByteBuf in, int length, boolean huffmanEncoded) throws Http2Exception {
+        if (huffmanEncoded) {
+            return HttpHeaderNames.intern(huffmanDecoder.decode(in, length));
+        }
+        // Use the constant for well-known header names instead of allocating a new byte array.
+        AsciiString knownName = HttpHeaderNames.lookup(in, in.readerIndex(), length);
+        if (knownName != null) {
+            in.skipBytes(length);
+            return knownName;
+        }
+        return readStringLiteral(in, length, false);
+    }
+
     private CharSequence readStringLiteral(ByteBuf in, int length, boolean huffmanEncoded) throws Http2Exception {
         if (huffmanEncoded) {
             return huffmanDecoder.decode(in, length);
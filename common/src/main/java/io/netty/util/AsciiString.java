@@ -47,6 +47,8 @@ import static io.netty.util.internal.ObjectUtil.checkNotNull;
 public final class AsciiString implements CharSequence, Comparable<CharSequence> {
     public static final AsciiString EMPTY_STRING = new AsciiString("");
     private static final char MAX_CHAR_VALUE = 255;
+    // The byte arrays are only compared and searched a word at a time if unaligned reads are supported.
+    private static final boolean WORD_OPS = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
 
     public static final int INDEX_NOT_FOUND = -1;
 
@@ -529,22 +531,51 @@ public final class AsciiString implements CharSequence, Comparable<CharSequence>
 
         if (string.getClass() == AsciiString.class) {
             AsciiString rhs = (AsciiString) string;
-            for (int i = arrayOffset(), j = rhs.arrayOffset(); i < length(); ++i, ++j) {
-                if (!equalsIgnoreCase(value[i], rhs.value[j])) {
+            return equalsIgnoreCase(value, offset, rhs.value, rhs.offset, length);
+        }
+
+        for (int i = offset, j = 0; j < length; ++i, ++j) {
+            if (!equalsIgnoreCase(b2c(value[i]), string.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int i = 0;
+        if (WORD_OPS) {
+            for (int wordEnd = length - 7; i < wordEnd; i += 8) {
+                long aWord = PlatformDependent.getLong(a, aOffset + i);
+                long bWord = PlatformDependent.getLong(b, bOffset + i);
+                if (aWord != bWord && toLowerCase(aWord) != toLowerCase(bWord)) {
                     return false;
                 }
             }
-            return true;
         }
-
-        for (int i = arrayOffset(), j = 0; i < length(); ++i, ++j) {
-            if (!equalsIgnoreCase(b2c(value[i]), string.charAt(j))) {
+        for (; i < length; ++i) {
+            if (!equalsIgnoreCase(a[aOffset + i], b[bOffset + i])) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Converts the upper case ASCII letters in all 8 bytes of {@code word} to lower case, like
+     * {@link #toLowerCase(byte)} does for a single byte.
+     */
+    private static long toLowerCase(long word) {
+        long heptets = word & 0x7F7F7F7F7F7F7F7FL;
+        // The high bit of each byte is set if the low 7 bits are >= 'A', respectively > 'Z'. There is no carry into
+        // the next byte as the sums are at most 0xBE.
+        long aboveA = heptets + 0x3F3F3F3F3F3F3F3FL;
+        long aboveZ = heptets + 0x2525252525252525L;
+        // Bytes with the high bit set are not ASCII letters.
+        long upperCase = aboveA & ~aboveZ & ~word & 0x8080808080808080L;
+        return word | upperCase >>> 2;
+    }
+
     /**
      * Copies the characters in this string to a character array.
      *
@@ -691,26 +722,79 @@ public final class AsciiString implements CharSequence, Comparable<CharSequence>
         if (firstChar > MAX_CHAR_VALUE) {
             return -1;
         }
-        ByteProcessor IndexOfVisitor = new IndexOfProcessor((byte) firstChar);
-        try {
-            for (;;) {
-                int i = forEachByte(start, thisLen - start, IndexOfVisitor);
-                if (i == -1 || subCount + i > thisLen) {
-                    return -1; // handles subCount > count || start >= count
-                }
-                int o1 = i, o2 = 0;
-                while (++o2 < subCount && b2c(value[++o1 + arrayOffset()]) == subString.charAt(o2)) {
-                    // Intentionally empty
-                }
-                if (o2 == subCount) {
-                    return i;
+        final byte firstByte = (byte) firstChar;
+        final int lastStart = thisLen - subCount;
+        for (int i = start; i <= lastStart; ++i) {
+            // Find the candidates by searching the first byte, which is done a word at a time where possible.
+            i = indexOfByte(firstByte, i, lastStart + 1);
+            if (i == -1) {
+                return -1;
+            }
+            if (regionEquals(i + 1, subString, 1, subCount - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if the {@code length} bytes starting at {@code thisStart} equal the chars of
+     * {@code string} starting at {@code start}. The caller must have checked the bounds.
+     */
+    private boolean regionEquals(int thisStart, CharSequence string, int start, int length) {
+        if (string.getClass() == AsciiString.class) {
+            AsciiString rhs = (AsciiString) string;
+            return PlatformDependent.equals(value, offset + thisStart, rhs.value, rhs.offset + start, length);
+        }
+        for (int i = offset + thisStart, end = i + length; i < end; ++i, ++start) {
+            if (b2c(value[i]) != string.charAt(start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first occurrence of {@code b} in {@code [fromIndex, toIndex)} of this string, or
+     * {@code -1}.
+     */
+    private int indexOfByte(byte b, int fromIndex, int toIndex) {
+        final byte[] value = this.value;
+        final int end = offset + toIndex;
+        int i = offset + fromIndex;
+        if (WORD_OPS) {
+            final long pattern = (b & 0xFFL) * 0x0101010101010101L;
+            for (int wordEnd = end - 7; i < wordEnd; i += 8) {
+                long matches = matches(PlatformDependent.getLong(value, i), pattern);
+                if (matches != 0) {
+                    return i + firstMatch(matches) - offset;
                 }
-                start = i + 1;
             }
-        } catch (Exception e) {
-            PlatformDependent.throwException(e);
-            return -1;
         }
+        for (; i < end; ++i) {
+            if (value[i] == b) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a word with the high bit set in every byte of {@code word} that equals the byte of {@code pattern}, and
+     * all other bits cleared.
+     */
+    private static long matches(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    /**
+     * Returns the position in memory of the first byte flagged by {@link #matches(long, long)}.
+     */
+    private static int firstMatch(long matches) {
+        return (PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ?
+                Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3;
     }
 
     /**
@@ -733,12 +817,7 @@ public final class AsciiString implements CharSequence, Comparable<CharSequence>
             return -1;
         }
 
-        try {
-            return forEachByte(start, thisLen - start, new IndexOfProcessor((byte) ch));
-        } catch (Exception e) {
-            PlatformDependent.throwException(e);
-            return -1;
-        }
+        return indexOfByte((byte) ch, start, thisLen);
     }
 
     /**
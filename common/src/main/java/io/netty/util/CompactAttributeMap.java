@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * {@link AttributeMap} implementation that keeps the attributes in a copy-on-write array sorted by
+ * {@link AttributeKey#id()}. Lookups are lock-free binary searches, and adding or removing an attribute replaces the
+ * array with a compare and set.
+ * <p>
+ * Compared to {@link DefaultAttributeMap} there are no bucket array and no linked list nodes, so a map with {@code n}
+ * attributes only needs one array of {@code n} references and the {@code n} attributes themselves. This is meant for
+ * maps that rarely change after their attributes were added, like the attributes of a {@code Channel}.
+ * <p>
+ * This is opt-in: {@link DefaultAttributeMap} stays the superclass of the channel implementations, extend this class
+ * instead where the smaller footprint matters.
+ */
+@UnstableApi
+public class CompactAttributeMap implements AttributeMap {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<CompactAttributeMap, CompactAttribute[]> ATTRIBUTES_UPDATER;
+    private static final CompactAttribute<?>[] EMPTY_ATTRIBUTES = new CompactAttribute<?>[0];
+
+    static {
+        @SuppressWarnings("rawtypes")
+        AtomicReferenceFieldUpdater<CompactAttributeMap, CompactAttribute[]> updater =
+                PlatformDependent.newAtomicReferenceFieldUpdater(CompactAttributeMap.class, "attributes");
+        if (updater == null) {
+            updater = AtomicReferenceFieldUpdater.newUpdater(
+                    CompactAttributeMap.class, CompactAttribute[].class, "attributes");
+        }
+        ATTRIBUTES_UPDATER = updater;
+    }
+
+    // Sorted by the id of the keys, never contains two attributes with the same key. Updated by ATTRIBUTES_UPDATER.
+    private volatile CompactAttribute<?>[] attributes = EMPTY_ATTRIBUTES;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> Attribute<T> attr(AttributeKey<T> key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        CompactAttribute<T> newAttribute = null;
+        for (;;) {
+            final CompactAttribute<?>[] attributes = this.attributes;
+            final int index = indexOf(attributes, key);
+            final CompactAttribute<?>[] newAttributes;
+            if (index >= 0) {
+                final CompactAttribute<?> attribute = attributes[index];
+                if (!attribute.isRemoved()) {
+                    return (Attribute<T>) attribute;
+                }
+                // The attribute is being removed, replace it by a new one.
+                if (newAttribute == null) {
+                    newAttribute = new CompactAttribute<T>(this, key);
+                }
+                newAttributes = attributes.clone();
+                newAttributes[index] = newAttribute;
+            } else {
+                if (newAttribute == null) {
+                    newAttribute = new CompactAttribute<T>(this, key);
+                }
+                final int insertionIndex = -(index + 1);
+                newAttributes = new CompactAttribute<?>[attributes.length + 1];
+                System.arraycopy(attributes, 0, newAttributes, 0, insertionIndex);
+                newAttributes[insertionIndex] = newAttribute;
+                System.arraycopy(attributes, insertionIndex, newAttributes, insertionIndex + 1,
+                                 attributes.length - insertionIndex);
+            }
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attributes, newAttributes)) {
+                return newAttribute;
+            }
+        }
+    }
+
+    @Override
+    public <T> boolean hasAttr(AttributeKey<T> key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        final CompactAttribute<?>[] attributes = this.attributes;
+        final int index = indexOf(attributes, key);
+        return index >= 0 && !attributes[index].isRemoved();
+    }
+
+    private void removeAttribute(CompactAttribute<?> attribute) {
+        for (;;) {
+            final CompactAttribute<?>[] attributes = this.attributes;
+            final int index = indexOf(attributes, attribute.key);
+            if (index < 0 || attributes[index] != attribute) {
+                // Already replaced by a new attribute for the same key.
+                return;
+            }
+            final CompactAttribute<?>[] newAttributes;
+            if (attributes.length == 1) {
+                newAttributes = EMPTY_ATTRIBUTES;
+            } else {
+                newAttributes = new CompactAttribute<?>[attributes.length - 1];
+                System.arraycopy(attributes, 0, newAttributes, 0, index);
+                System.arraycopy(attributes, index + 1, newAttributes, index, attributes.length - index - 1);
+            }
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attributes, newAttributes)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the attribute for {@code key} in {@code attributes}, or {@code -(insertion point) - 1} like
+     * {@link java.util.Arrays#binarySearch(int[], int)} does.
+     */
+    private static int indexOf(CompactAttribute<?>[] attributes, AttributeKey<?> key) {
+        final int id = key.id();
+        int low = 0;
+        int high = attributes.length - 1;
+        while (low <= high) {
+            int mid = low + high >>> 1;
+            AttributeKey<?> midKey = attributes[mid].key;
+            if (midKey == key) {
+                return mid;
+            }
+            int midId = midKey.id();
+            if (midId < id) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class CompactAttribute<T> extends AtomicReference<T> implements Attribute<T> {
+
+        private static final long serialVersionUID = 1828092409373282186L;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<CompactAttribute, CompactAttributeMap> MAP_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(CompactAttribute.class, CompactAttributeMap.class, "map");
+
+        private final AttributeKey<T> key;
+        // Set to null once the attribute is removed via getAndRemove() or remove(). Updated by MAP_UPDATER.
+        private volatile CompactAttributeMap map;
+
+        CompactAttribute(CompactAttributeMap map, AttributeKey<T> key) {
+            this.map = map;
+            this.key = key;
+        }
+
+        @Override
+        public AttributeKey<T> key() {
+            return key;
+        }
+
+        boolean isRemoved() {
+            return map == null;
+        }
+
+        @Override
+        public T setIfAbsent(T value) {
+            while (!compareAndSet(null, value)) {
+                T old = get();
+                if (old != null) {
+                    return old;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public T getAndRemove() {
+            CompactAttributeMap map = this.map;
+            T oldValue = getAndSet(null);
+            remove0(map);
+            return oldValue;
+        }
+
+        @Override
+        public void remove() {
+            CompactAttributeMap map = this.map;
+            set(null);
+            remove0(map);
+        }
+
+        private void remove0(CompactAttributeMap map) {
+            if (map != null && MAP_UPDATER.compareAndSet(this, map, null)) {
+                map.removeAttribute(this);
+            }
+        }
+    }
+}
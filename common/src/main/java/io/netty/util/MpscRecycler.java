@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.Recycler.Handle;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Light-weight object pool based on a thread-local stack, which is an alternative to {@link Recycler} for objects
+ * that are mostly recycled by another thread than the one that obtained them.
+ * <p>
+ * Objects recycled by the thread that owns the stack are pushed to it directly. Objects recycled by any other thread
+ * are handed back through a single bounded multi-producer single-consumer queue per owner thread, which the owner
+ * drains in batches once its stack is empty. Unlike {@link Recycler} no per-thread queues have to be linked, looked up
+ * or reclaimed. If the return queue is full the object is dropped and left to the garbage collector.
+ * <p>
+ * Each instance counts the hits, misses and drops of the type it recycles, see {@link #hits()}, {@link #misses()}
+ * and {@link #drops()}.
+ *
+ * @param <T> the type of the pooled object
+ */
+public abstract class MpscRecycler<T> {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MpscRecycler.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final Handle NOOP_HANDLE = new Handle() {
+        @Override
+        public void recycle(Object object) {
+            // NOOP
+        }
+    };
+    private static final int DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD = 32768; // Use 32k instances as default.
+    private static final int DEFAULT_MAX_CAPACITY_PER_THREAD;
+    private static final int DEFAULT_RETURN_QUEUE_CAPACITY;
+    private static final int INITIAL_CAPACITY;
+    // The maximal number of objects that are moved from the return queue to the stack by a single get().
+    private static final int DRAIN_BATCH_SIZE = 64;
+    // The number of counted events after which the thread-local counts are added to the metrics.
+    private static final int METRICS_FLUSH_INTERVAL = 128;
+
+    static {
+        int maxCapacityPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxCapacityPerThread",
+                SystemPropertyUtil.getInt("io.netty.recycler.maxCapacity", DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD));
+        if (maxCapacityPerThread < 0) {
+            maxCapacityPerThread = DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD;
+        }
+        DEFAULT_MAX_CAPACITY_PER_THREAD = maxCapacityPerThread;
+
+        DEFAULT_RETURN_QUEUE_CAPACITY = safeFindNextPositivePowerOfTwo(
+                max(SystemPropertyUtil.getInt("io.netty.recycler.returnQueueCapacity", 2048), DRAIN_BATCH_SIZE));
+
+        if (logger.isDebugEnabled()) {
+            if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
+                logger.debug("-Dio.netty.recycler.returnQueueCapacity: disabled");
+            } else {
+                logger.debug("-Dio.netty.recycler.returnQueueCapacity: {}", DEFAULT_RETURN_QUEUE_CAPACITY);
+            }
+        }
+
+        INITIAL_CAPACITY = min(DEFAULT_MAX_CAPACITY_PER_THREAD, 256);
+    }
+
+    private final int maxCapacityPerThread;
+    private final int returnQueueCapacity;
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+    private final LongCounter drops = PlatformDependent.newLongCounter();
+
+    private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
+        @Override
+        protected Stack<T> initialValue() {
+            return new Stack<T>(MpscRecycler.this, Thread.currentThread(), maxCapacityPerThread, returnQueueCapacity);
+        }
+
+        @Override
+        protected void onRemoval(Stack<T> stack) {
+            stack.flushMetrics();
+        }
+    };
+
+    protected MpscRecycler() {
+        this(DEFAULT_MAX_CAPACITY_PER_THREAD);
+    }
+
+    protected MpscRecycler(int maxCapacityPerThread) {
+        this(maxCapacityPerThread, DEFAULT_RETURN_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param maxCapacityPerThread the maximal number of objects kept by each thread, {@code 0} disables pooling
+     * @param returnQueueCapacity the maximal number of objects recycled by other threads that can be queued for each
+     *                            thread before they are dropped
+     */
+    protected MpscRecycler(int maxCapacityPerThread, int returnQueueCapacity) {
+        if (returnQueueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                    "returnQueueCapacity: " + returnQueueCapacity + " (expected: > 0)");
+        }
+        this.maxCapacityPerThread = max(0, maxCapacityPerThread);
+        this.returnQueueCapacity = returnQueueCapacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final T get() {
+        if (maxCapacityPerThread == 0) {
+            return newObject((Handle<T>) NOOP_HANDLE);
+        }
+        Stack<T> stack = threadLocal.get();
+        DefaultHandle<T> handle = stack.pop();
+        if (handle == null) {
+            handle = new DefaultHandle<T>(stack);
+            handle.value = newObject(handle);
+        }
+        return handle.value;
+    }
+
+    /**
+     * Returns the number of {@link #get()} calls that returned a pooled object. The counts of each thread are added
+     * in batches, so the returned value may lag behind.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of {@link #get()} calls that had to create a new object. The counts of each thread are added
+     * in batches, so the returned value may lag behind.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    /**
+     * Returns the number of recycled objects that were not pooled because the stack of the owner thread or its return
+     * queue were full. The counts of each thread are added in batches, so the returned value may lag behind.
+     */
+    public long drops() {
+        return drops.value();
+    }
+
+    final int threadLocalSize() {
+        return threadLocal.get().size;
+    }
+
+    final void flushThreadLocalMetrics() {
+        threadLocal.get().flushMetrics();
+    }
+
+    protected abstract T newObject(Handle<T> handle);
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "(hits: " + hits() + ", misses: " + misses() + ", drops: " + drops() + ')';
+    }
+
+    static final class DefaultHandle<T> implements Handle<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<DefaultHandle> STATE_UPDATER;
+
+        static {
+            @SuppressWarnings("rawtypes")
+            AtomicIntegerFieldUpdater<DefaultHandle> updater =
+                    PlatformDependent.newAtomicIntegerFieldUpdater(DefaultHandle.class, "state");
+            if (updater == null) {
+                updater = AtomicIntegerFieldUpdater.newUpdater(DefaultHandle.class, "state");
+            }
+            STATE_UPDATER = updater;
+        }
+
+        private static final int STATE_CLAIMED = 0;
+        private static final int STATE_AVAILABLE = 1;
+
+        private volatile int state;
+        private final Stack<T> stack;
+        private T value;
+
+        DefaultHandle(Stack<T> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        public void recycle(T object) {
+            if (object != value) {
+                throw new IllegalArgumentException("object does not belong to handle");
+            }
+            stack.push(this);
+        }
+
+        void claim() {
+            // Only the owner thread pops handles, so no atomic update is needed.
+            STATE_UPDATER.lazySet(this, STATE_CLAIMED);
+        }
+
+        void release(boolean ownerThread) {
+            if (ownerThread) {
+                if (state != STATE_CLAIMED) {
+                    throw new IllegalStateException("recycled already");
+                }
+                STATE_UPDATER.lazySet(this, STATE_AVAILABLE);
+            } else if (!STATE_UPDATER.compareAndSet(this, STATE_CLAIMED, STATE_AVAILABLE)) {
+                throw new IllegalStateException("recycled already");
+            }
+        }
+    }
+
+    static final class Stack<T> {
+        final MpscRecycler<T> parent;
+        final Thread thread;
+
+        private final int maxCapacity;
+        private final int returnQueueCapacity;
+        private DefaultHandle<?>[] elements;
+        private int size;
+        // Created on the first recycle by another thread, as most stacks never need it.
+        private volatile Queue<DefaultHandle<T>> returnQueue;
+
+        private int pendingHits;
+        private int pendingMisses;
+        private int pendingDrops;
+        private int pendingOps;
+
+        Stack(MpscRecycler<T> parent, Thread thread, int maxCapacity, int returnQueueCapacity) {
+            this.parent = parent;
+            this.thread = thread;
+            this.maxCapacity = maxCapacity;
+            this.returnQueueCapacity = returnQueueCapacity;
+            elements = new DefaultHandle[min(INITIAL_CAPACITY, maxCapacity)];
+        }
+
+        @SuppressWarnings("unchecked")
+        DefaultHandle<T> pop() {
+            int size = this.size;
+            if (size == 0) {
+                size = drain();
+                if (size == 0) {
+                    pendingMisses ++;
+                    countOp();
+                    return null;
+                }
+            }
+            size --;
+            DefaultHandle<T> ret = (DefaultHandle<T>) elements[size];
+            elements[size] = null;
+            this.size = size;
+            ret.claim();
+            pendingHits ++;
+            countOp();
+            return ret;
+        }
+
+        /**
+         * Moves a batch of the objects that were recycled by other threads to the stack and returns the new size.
+         */
+        private int drain() {
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                return 0;
+            }
+            int size = this.size;
+            int end = min(size + DRAIN_BATCH_SIZE, maxCapacity);
+            if (end > elements.length) {
+                elements = Arrays.copyOf(elements, min(max(elements.length << 1, end), maxCapacity));
+            }
+            DefaultHandle<?>[] elements = this.elements;
+            while (size < end) {
+                DefaultHandle<T> handle = returnQueue.poll();
+                if (handle == null) {
+                    break;
+                }
+                elements[size ++] = handle;
+            }
+            this.size = size;
+            return size;
+        }
+
+        void push(DefaultHandle<T> item) {
+            if (thread == Thread.currentThread()) {
+                item.release(true);
+                pushNow(item);
+            } else {
+                item.release(false);
+                pushLater(item);
+            }
+        }
+
+        private void pushNow(DefaultHandle<T> item) {
+            int size = this.size;
+            if (size >= maxCapacity) {
+                pendingDrops ++;
+                countOp();
+                return;
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, min(size << 1, maxCapacity));
+            }
+            elements[size] = item;
+            this.size = size + 1;
+        }
+
+        private void pushLater(DefaultHandle<T> item) {
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                returnQueue = newReturnQueue();
+            }
+            if (!returnQueue.offer(item)) {
+                parent.drops.increment();
+            }
+        }
+
+        private synchronized Queue<DefaultHandle<T>> newReturnQueue() {
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                this.returnQueue = returnQueue = PlatformDependent.newFixedMpscQueue(returnQueueCapacity);
+            }
+            return returnQueue;
+        }
+
+        private void countOp() {
+            if (++ pendingOps == METRICS_FLUSH_INTERVAL) {
+                flushMetrics();
+            }
+        }
+
+        void flushMetrics() {
+            if (pendingHits != 0) {
+                parent.hits.add(pendingHits);
+                pendingHits = 0;
+            }
+            if (pendingMisses != 0) {
+                parent.misses.add(pendingMisses);
+                pendingMisses = 0;
+            }
+            if (pendingDrops != 0) {
+                parent.drops.add(pendingDrops);
+                pendingDrops = 0;
+            }
+            pendingOps = 0;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
@@ -34,7 +35,6 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.StringTokenizer;
 
 /**
  * A class that holds a number of network-related constants.
@@ -127,6 +127,11 @@ public final class NetUtil {
      */
     private static final boolean IPV6_ADDRESSES_PREFERRED = Boolean.getBoolean("java.net.preferIPv6Addresses");
 
+    /**
+     * The lower case hex digits used for the words of IPv6 addresses.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     /**
      * The logger being used by this class
      */
@@ -312,135 +317,229 @@ public final class NetUtil {
      * performed here.
      */
     public static byte[] createByteArrayFromIpAddressString(String ipAddressString) {
+        byte[] bytes = new byte[IPV6_BYTE_COUNT];
+        switch (ipAddressToBytes(ipAddressString, 0, ipAddressString.length(), bytes, 0)) {
+            case IPV4_BYTE_COUNT:
+                byte[] ipv4Bytes = new byte[IPV4_BYTE_COUNT];
+                System.arraycopy(bytes, 0, ipv4Bytes, 0, IPV4_BYTE_COUNT);
+                return ipv4Bytes;
+            case IPV6_BYTE_COUNT:
+                return bytes;
+            default:
+                return null;
+        }
+    }
 
-        if (isValidIpV4Address(ipAddressString)) {
-            StringTokenizer tokenizer = new StringTokenizer(ipAddressString, ".");
-            String token;
-            int tempInt;
-            byte[] byteAddress = new byte[IPV4_BYTE_COUNT];
-            for (int i = 0; i < IPV4_BYTE_COUNT; i ++) {
-                token = tokenizer.nextToken();
-                tempInt = Integer.parseInt(token);
-                byteAddress[i] = (byte) tempInt;
-            }
+    /**
+     * Parses the IPv4 or IPv6 address in {@code ip} between {@code start} (inclusive) and {@code end} (exclusive)
+     * into {@code dst} without creating any garbage. The same formats as {@link #isValidIpV4Address(String)} and
+     * {@link #isValidIpV6Address(String)} are accepted, including surrounding brackets and a scope ID.
+     * <p>
+     * {@code dst} must have room for {@code 16} bytes at {@code dstIndex} unless {@code ip} is known to be an IPv4
+     * address. If {@code ip} is not valid, the content of {@code dst} is undefined.
+     *
+     * @return {@code 4} for an IPv4 address, {@code 16} for an IPv6 address and {@code 0} if {@code ip} is not valid
+     */
+    public static int ipAddressToBytes(CharSequence ip, int start, int end, byte[] dst, int dstIndex) {
+        if (ip instanceof AsciiString) {
+            AsciiString ascii = (AsciiString) ip;
+            int offset = ascii.arrayOffset();
+            return ipAddressToBytes(null, ascii.array(), offset + start, offset + end, dst, dstIndex);
+        }
+        return ipAddressToBytes(ip, null, start, end, dst, dstIndex);
+    }
+
+    /**
+     * Parses the IPv4 or IPv6 address in the US-ASCII encoded {@code ip} between {@code start} (inclusive) and
+     * {@code end} (exclusive) into {@code dst}.
+     *
+     * @see #ipAddressToBytes(CharSequence, int, int, byte[], int)
+     */
+    public static int ipAddressToBytes(byte[] ip, int start, int end, byte[] dst, int dstIndex) {
+        return ipAddressToBytes(null, ip, start, end, dst, dstIndex);
+    }
+
+    /**
+     * Parses the IPv4 address in {@code ip} between {@code start} (inclusive) and {@code end} (exclusive) into an
+     * {@code int} in network byte order without creating any garbage.
+     *
+     * @return the address as an unsigned {@code int}, or {@code -1} if {@code ip} is not a valid IPv4 address
+     */
+    public static long ipV4AddressToLong(CharSequence ip, int start, int end) {
+        if (ip instanceof AsciiString) {
+            AsciiString ascii = (AsciiString) ip;
+            int offset = ascii.arrayOffset();
+            return ipV4AddressToLong(null, ascii.array(), offset + start, offset + end);
+        }
+        return ipV4AddressToLong(ip, null, start, end);
+    }
+
+    /**
+     * Parses the US-ASCII encoded IPv4 address in {@code ip} between {@code start} (inclusive) and {@code end}
+     * (exclusive) into an {@code int} in network byte order.
+     *
+     * @see #ipV4AddressToLong(CharSequence, int, int)
+     */
+    public static long ipV4AddressToLong(byte[] ip, int start, int end) {
+        return ipV4AddressToLong(null, ip, start, end);
+    }
 
-            return byteAddress;
+    /**
+     * Either {@code chars} or {@code bytes} holds the input, so the same parser serves {@link CharSequence}s and
+     * US-ASCII byte arrays without copying.
+     */
+    private static int ipAddressToBytes(CharSequence chars, byte[] bytes, int start, int end,
+                                        byte[] dst, int dstIndex) {
+        long ipv4 = ipV4AddressToLong(chars, bytes, start, end);
+        if (ipv4 >= 0) {
+            dst[dstIndex] = (byte) (ipv4 >>> 24);
+            dst[dstIndex + 1] = (byte) (ipv4 >>> 16);
+            dst[dstIndex + 2] = (byte) (ipv4 >>> 8);
+            dst[dstIndex + 3] = (byte) ipv4;
+            return IPV4_BYTE_COUNT;
         }
 
-        if (isValidIpV6Address(ipAddressString)) {
-            if (ipAddressString.charAt(0) == '[') {
-                ipAddressString = ipAddressString.substring(1, ipAddressString.length() - 1);
+        // Strip [] and the interface name/index after the percent sign.
+        if (start < end && charAt(chars, bytes, start) == '[') {
+            if (charAt(chars, bytes, end - 1) != ']') {
+                return 0;
             }
+            start ++;
+            end --;
+        }
+        for (int i = start; i < end; i ++) {
+            if (charAt(chars, bytes, i) == '%') {
+                end = i;
+                break;
+            }
+        }
+        return ipV6AddressToBytes(chars, bytes, start, end, dst, dstIndex) ? IPV6_BYTE_COUNT : 0;
+    }
 
-            int percentPos = ipAddressString.indexOf('%');
-            if (percentPos >= 0) {
-                ipAddressString = ipAddressString.substring(0, percentPos);
+    private static boolean ipV6AddressToBytes(CharSequence chars, byte[] bytes, int start, int end,
+                                              byte[] dst, int dstIndex) {
+        int words = 0;
+        int compressIndex = -1;
+        int i = start;
+        if (end - start >= 2 && charAt(chars, bytes, i) == ':') {
+            if (charAt(chars, bytes, i + 1) != ':') {
+                return false;
             }
+            compressIndex = 0;
+            i += 2;
+        }
 
-            StringTokenizer tokenizer = new StringTokenizer(ipAddressString, ":.", true);
-            ArrayList<String> hexStrings = new ArrayList<String>();
-            ArrayList<String> decStrings = new ArrayList<String>();
-            String token = "";
-            String prevToken = "";
-            int doubleColonIndex = -1; // If a double colon exists, we need to
-            // insert 0s.
-
-            // Go through the tokens, including the seperators ':' and '.'
-            // When we hit a : or . the previous token will be added to either
-            // the hex list or decimal list. In the case where we hit a ::
-            // we will save the index of the hexStrings so we can add zeros
-            // in to fill out the string
-            while (tokenizer.hasMoreTokens()) {
-                prevToken = token;
-                token = tokenizer.nextToken();
-
-                if (":".equals(token)) {
-                    if (":".equals(prevToken)) {
-                        doubleColonIndex = hexStrings.size();
-                    } else if (!prevToken.isEmpty()) {
-                        hexStrings.add(prevToken);
-                    }
-                } else if (".".equals(token)) {
-                    decStrings.add(prevToken);
+        while (i < end) {
+            int wordStart = i;
+            int value = 0;
+            int digit;
+            while (i < end && (digit = hexValue(charAt(chars, bytes, i))) >= 0) {
+                if (i - wordStart == IPV6_MAX_CHAR_BETWEEN_SEPARATOR) {
+                    return false;
                 }
+                value = value << 4 | digit;
+                i ++;
             }
 
-            if (":".equals(prevToken)) {
-                if (":".equals(token)) {
-                    doubleColonIndex = hexStrings.size();
-                } else {
-                    hexStrings.add(token);
+            if (i < end && charAt(chars, bytes, i) == '.') {
+                // The last 32 bits are represented as IPv4 x:x:x:x:x:x:d.d.d.d
+                long ipv4;
+                if (words > IPV6_WORD_COUNT - 2 || (ipv4 = ipV4AddressToLong(chars, bytes, wordStart, end)) < 0) {
+                    return false;
                 }
-            } else if (".".equals(prevToken)) {
-                decStrings.add(token);
+                int index = dstIndex + (words << 1);
+                dst[index] = (byte) (ipv4 >>> 24);
+                dst[index + 1] = (byte) (ipv4 >>> 16);
+                dst[index + 2] = (byte) (ipv4 >>> 8);
+                dst[index + 3] = (byte) ipv4;
+                words += 2;
+                break;
             }
-
-            // figure out how many hexStrings we should have
-            // also check if it is a IPv4 address
-            int hexStringsLength = 8;
-
-            // If we have an IPv4 address tagged on at the end, subtract
-            // 4 bytes, or 2 hex words from the total
-            if (!decStrings.isEmpty()) {
-                hexStringsLength -= 2;
+            if (i == wordStart || words == IPV6_WORD_COUNT) {
+                return false;
             }
+            int index = dstIndex + (words << 1);
+            dst[index] = (byte) (value >>> 8);
+            dst[index + 1] = (byte) value;
+            words ++;
 
-            // if we hit a double Colon add the appropriate hex strings
-            if (doubleColonIndex != -1) {
-                int numberToInsert = hexStringsLength - hexStrings.size();
-                for (int i = 0; i < numberToInsert; i ++) {
-                    hexStrings.add(doubleColonIndex, "0");
+            if (i == end) {
+                break;
+            }
+            if (charAt(chars, bytes, i) != ':' || ++ i == end) {
+                return false;
+            }
+            if (charAt(chars, bytes, i) == ':') {
+                if (compressIndex >= 0) {
+                    return false;
                 }
+                compressIndex = words;
+                i ++;
             }
+        }
 
-            byte[] ipByteArray = new byte[IPV6_BYTE_COUNT];
+        if (compressIndex < 0) {
+            return words == IPV6_WORD_COUNT;
+        }
+        // "::" stands for at least one word of zeros.
+        if (words == IPV6_WORD_COUNT) {
+            return false;
+        }
+        int shift = (IPV6_WORD_COUNT - words) << 1;
+        int compressStart = dstIndex + (compressIndex << 1);
+        for (int j = dstIndex + (words << 1) - 1; j >= compressStart; j --) {
+            dst[j + shift] = dst[j];
+        }
+        for (int j = compressStart; j < compressStart + shift; j ++) {
+            dst[j] = 0;
+        }
+        return true;
+    }
 
-            // Finally convert these strings to bytes...
-            for (int i = 0; i < hexStrings.size(); i ++) {
-                convertToBytes(hexStrings.get(i), ipByteArray, i << 1);
+    private static long ipV4AddressToLong(CharSequence chars, byte[] bytes, int start, int end) {
+        long address = 0;
+        int words = 0;
+        int i = start;
+        for (;;) {
+            int wordStart = i;
+            int value = 0;
+            int c;
+            while (i < end && (c = charAt(chars, bytes, i)) >= '0' && c <= '9') {
+                if (i - wordStart == IPV4_MAX_CHAR_BETWEEN_SEPARATOR) {
+                    return -1;
+                }
+                value = value * 10 + c - '0';
+                i ++;
             }
-
-            // Now if there are any decimal values, we know where they go...
-            for (int i = 0; i < decStrings.size(); i ++) {
-                ipByteArray[i + 12] = (byte) (Integer.parseInt(decStrings.get(i)) & 255);
+            if (i == wordStart || value > 255) {
+                return -1;
+            }
+            address = address << 8 | value;
+            if (++ words == IPV4_BYTE_COUNT) {
+                return i == end ? address : -1;
             }
-            return ipByteArray;
+            if (i == end || charAt(chars, bytes, i) != '.') {
+                return -1;
+            }
+            i ++;
         }
-        return null;
     }
 
-    /**
-     * Converts a 4 character hex word into a 2 byte word equivalent
-     */
-    private static void convertToBytes(String hexWord, byte[] ipByteArray, int byteIndex) {
-
-        int hexWordLength = hexWord.length();
-        int hexWordIndex = 0;
-        ipByteArray[byteIndex] = 0;
-        ipByteArray[byteIndex + 1] = 0;
-        int charValue;
-
-        // high order 4 bits of first byte
-        if (hexWordLength > 3) {
-            charValue = getIntValue(hexWord.charAt(hexWordIndex ++));
-            ipByteArray[byteIndex] |= charValue << 4;
-        }
+    private static int charAt(CharSequence chars, byte[] bytes, int index) {
+        return bytes != null ? bytes[index] & 0xff : chars.charAt(index);
+    }
 
-        // low order 4 bits of the first byte
-        if (hexWordLength > 2) {
-            charValue = getIntValue(hexWord.charAt(hexWordIndex ++));
-            ipByteArray[byteIndex] |= charValue;
+    private static int hexValue(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
         }
-
-        // high order 4 bits of second byte
-        if (hexWordLength > 1) {
-            charValue = getIntValue(hexWord.charAt(hexWordIndex ++));
-            ipByteArray[byteIndex + 1] |= charValue << 4;
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
         }
-
-        // low order 4 bits of the first byte
-        charValue = getIntValue(hexWord.charAt(hexWordIndex));
-        ipByteArray[byteIndex + 1] |= charValue & 15;
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 
     private static int getIntValue(char c) {
@@ -984,105 +1083,124 @@ public final class NetUtil {
             throw new IllegalArgumentException("Unhandled type: " + ip.getClass());
         }
 
-        final byte[] bytes = ip.getAddress();
-        final int[] words = new int[IPV6_WORD_COUNT];
-        int i;
-        for (i = 0; i < words.length; ++i) {
-            words[i] = ((bytes[i << 1] & 0xff) << 8) | (bytes[(i << 1) + 1] & 0xff);
+        return toAddressString(new StringBuilder(IPV6_MAX_CHAR_COUNT), ip.getAddress(), 0, IPV6_BYTE_COUNT,
+                               ipv4Mapped).toString();
+    }
+
+    /**
+     * Appends the text representation of the 4-byte or 16-byte address in {@code bytes} to {@code dst} without
+     * creating any garbage. The format is the same as the one of {@link #toAddressString(InetAddress, boolean)}.
+     *
+     * @throws IllegalArgumentException
+     *         if {@code length} is not {@code 4} nor {@code 16}
+     */
+    public static <T extends Appendable> T toAddressString(T dst, byte[] bytes, int offset, int length,
+                                                           boolean ipv4Mapped) {
+        try {
+            if (length == IPV4_BYTE_COUNT) {
+                appendIpV4(dst, bytes[offset], bytes[offset + 1], bytes[offset + 2], bytes[offset + 3]);
+            } else if (length == IPV6_BYTE_COUNT) {
+                appendIpV6(dst, bytes, offset, ipv4Mapped);
+            } else {
+                throw new IllegalArgumentException("length: " + length + " (expected: 4 or 16)");
+            }
+        } catch (IOException e) {
+            PlatformDependent.throwException(e);
+        }
+        return dst;
+    }
+
+    /**
+     * Appends the text representation of the IPv4 address {@code i}, in network byte order, to {@code dst} without
+     * creating any garbage.
+     */
+    public static <T extends Appendable> T intToIpAddress(T dst, int i) {
+        try {
+            appendIpV4(dst, i >>> 24, i >>> 16, i >>> 8, i);
+        } catch (IOException e) {
+            PlatformDependent.throwException(e);
         }
+        return dst;
+    }
+
+    private static void appendIpV4(Appendable dst, int b0, int b1, int b2, int b3) throws IOException {
+        appendDecimalByte(dst, b0);
+        dst.append('.');
+        appendDecimalByte(dst, b1);
+        dst.append('.');
+        appendDecimalByte(dst, b2);
+        dst.append('.');
+        appendDecimalByte(dst, b3);
+    }
 
+    private static void appendDecimalByte(Appendable dst, int value) throws IOException {
+        value &= 0xff;
+        if (value >= 100) {
+            dst.append((char) ('0' + value / 100));
+        }
+        if (value >= 10) {
+            dst.append((char) ('0' + value / 10 % 10));
+        }
+        dst.append((char) ('0' + value % 10));
+    }
+
+    private static void appendIpV6(Appendable dst, byte[] bytes, int offset, boolean ipv4Mapped)
+            throws IOException {
         // Find longest run of 0s, tie goes to first found instance
         int currentStart = -1;
-        int currentLength = 0;
-        int shortestStart = -1;
-        int shortestLength = 0;
-        for (i = 0; i < words.length; ++i) {
-            if (words[i] == 0) {
+        int longestStart = -1;
+        int longestLength = 0;
+        for (int i = 0; i <= IPV6_WORD_COUNT; ++i) {
+            if (i < IPV6_WORD_COUNT && ipV6Word(bytes, offset, i) == 0) {
                 if (currentStart < 0) {
                     currentStart = i;
                 }
             } else if (currentStart >= 0) {
-                currentLength = i - currentStart;
-                if (currentLength > shortestLength) {
-                    shortestStart = currentStart;
-                    shortestLength = currentLength;
+                if (i - currentStart > longestLength) {
+                    longestStart = currentStart;
+                    longestLength = i - currentStart;
                 }
                 currentStart = -1;
             }
         }
-        // If the array ends on a streak of zeros, make sure we account for it
-        if (currentStart >= 0) {
-            currentLength = i - currentStart;
-            if (currentLength > shortestLength) {
-                shortestStart = currentStart;
-                shortestLength = currentLength;
-            }
-        }
         // Ignore the longest streak if it is only 1 long
-        if (shortestLength == 1) {
-            shortestLength = 0;
-            shortestStart = -1;
+        if (longestLength == 1) {
+            longestStart = -1;
         }
+        final int longestEnd = longestStart + longestLength;
 
-        // Translate to string taking into account longest consecutive 0s
-        final int shortestEnd = shortestStart + shortestLength;
-        final StringBuilder b = new StringBuilder(IPV6_MAX_CHAR_COUNT);
-        if (shortestEnd < 0) { // Optimization when there is no compressing needed
-            b.append(Integer.toHexString(words[0]));
-            for (i = 1; i < words.length; ++i) {
-                b.append(':');
-                b.append(Integer.toHexString(words[i]));
-            }
-        } else { // General case that can handle compressing (and not compressing)
-            // Loop unroll the first index (so we don't constantly check i==0 cases in loop)
-            final boolean isIpv4Mapped;
-            if (inRangeEndExclusive(0, shortestStart, shortestEnd)) {
-                b.append("::");
-                isIpv4Mapped = ipv4Mapped && (shortestEnd == 5 && words[5] == 0xffff);
-            } else {
-                b.append(Integer.toHexString(words[0]));
-                isIpv4Mapped = false;
+        if (ipv4Mapped && longestStart == 0 && longestEnd == 5 && ipV6Word(bytes, offset, 5) == 0xffff) {
+            dst.append("::ffff:");
+            appendIpV4(dst, bytes[offset + 12], bytes[offset + 13], bytes[offset + 14], bytes[offset + 15]);
+            return;
+        }
+
+        for (int i = 0; i < IPV6_WORD_COUNT; ++i) {
+            if (i == longestStart) {
+                dst.append("::");
+                i = longestEnd - 1;
+                continue;
             }
-            for (i = 1; i < words.length; ++i) {
-                if (!inRangeEndExclusive(i, shortestStart, shortestEnd)) {
-                    if (!inRangeEndExclusive(i - 1, shortestStart, shortestEnd)) {
-                        // If the last index was not part of the shortened sequence
-                        if (!isIpv4Mapped || i == 6) {
-                            b.append(':');
-                        } else {
-                            b.append('.');
-                        }
-                    }
-                    if (isIpv4Mapped && i > 5) {
-                        b.append(words[i] >> 8);
-                        b.append('.');
-                        b.append(words[i] & 0xff);
-                    } else {
-                        b.append(Integer.toHexString(words[i]));
-                    }
-                } else if (!inRangeEndExclusive(i - 1, shortestStart, shortestEnd)) {
-                    // If we are in the shortened sequence and the last index was not
-                    b.append("::");
-                }
+            if (i != 0 && i != longestEnd) {
+                dst.append(':');
             }
+            appendHexWord(dst, ipV6Word(bytes, offset, i));
         }
+    }
 
-        return b.toString();
+    private static int ipV6Word(byte[] bytes, int offset, int word) {
+        int index = offset + (word << 1);
+        return (bytes[index] & 0xff) << 8 | bytes[index + 1] & 0xff;
     }
 
-    /**
-     * Does a range check on {@code value} if is within {@code start} (inclusive) and {@code end} (exclusive).
-     * @param value The value to checked if is within {@code start} (inclusive) and {@code end} (exclusive)
-     * @param start The start of the range (inclusive)
-     * @param end The end of the range (exclusive)
-     * @return
-     * <ul>
-     * <li>{@code true} if {@code value} if is within {@code start} (inclusive) and {@code end} (exclusive)</li>
-     * <li>{@code false} otherwise</li>
-     * </ul>
-     */
-    private static boolean inRangeEndExclusive(int value, int start, int end) {
-        return value >= start && value < end;
+    private static void appendHexWord(Appendable dst, int word) throws IOException {
+        int shift = 12;
+        while (shift > 0 && (word >>> shift & 0xf) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            dst.append(HEX_DIGITS[word >>> shift & 0xf]);
+        }
     }
 
     /**
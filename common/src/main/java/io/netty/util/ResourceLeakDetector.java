@@ -16,6 +16,7 @@
 
 package io.netty.util;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -27,6 +28,7 @@ import java.lang.ref.ReferenceQueue;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,6 +46,16 @@ public class ResourceLeakDetector<T> {
     private static final int DEFAULT_MAX_RECORDS = 4;
     private static final int MAX_RECORDS;
 
+    private static final String PROP_SAMPLING_INTERVAL = "io.netty.leakDetection.samplingInterval";
+    private static final String PROP_TRACK_SITES = "io.netty.leakDetection.trackSites";
+    private static final String PROP_SITE_DEPTH = "io.netty.leakDetection.siteDepth";
+    private static final int DEFAULT_SITE_DEPTH = 6;
+    private static final int SITE_DEPTH;
+    // Rounded up to a power of two by the constructor.
+    static final int DEFAULT_SAMPLING_INTERVAL;
+    // Should be power of two.
+    private static final int SITE_TABLE_SIZE = 1024;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -70,6 +82,7 @@ public class ResourceLeakDetector<T> {
     }
 
     private static Level level;
+    private static boolean trackSites;
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
 
@@ -100,17 +113,20 @@ public class ResourceLeakDetector<T> {
         }
 
         MAX_RECORDS = SystemPropertyUtil.getInt(PROP_MAX_RECORDS, DEFAULT_MAX_RECORDS);
+        DEFAULT_SAMPLING_INTERVAL = Math.max(1, SystemPropertyUtil.getInt(PROP_SAMPLING_INTERVAL, 128));
+        SITE_DEPTH = Math.max(1, SystemPropertyUtil.getInt(PROP_SITE_DEPTH, DEFAULT_SITE_DEPTH));
 
         ResourceLeakDetector.level = level;
+        trackSites = SystemPropertyUtil.getBoolean(PROP_TRACK_SITES, false);
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
             logger.debug("-D{}: {}", PROP_MAX_RECORDS, MAX_RECORDS);
+            logger.debug("-D{}: {}", PROP_SAMPLING_INTERVAL, DEFAULT_SAMPLING_INTERVAL);
+            logger.debug("-D{}: {}", PROP_TRACK_SITES, trackSites);
+            logger.debug("-D{}: {}", PROP_SITE_DEPTH, SITE_DEPTH);
         }
     }
 
-    // Should be power of two.
-    static final int DEFAULT_SAMPLING_INTERVAL = 128;
-
     /**
      * @deprecated Use {@link #setLevel(Level)} instead.
      */
@@ -143,6 +159,24 @@ public class ResourceLeakDetector<T> {
         return level;
     }
 
+    /**
+     * Enables or disables the tracking of allocation sites. If enabled, every sampled allocation records the hash of
+     * its allocation site instead of a full stack trace on every access, and leaks are counted per site (see
+     * {@link #leakSites()}). Only the first leak of each site is logged. Combined with {@link Level#SIMPLE} and a
+     * larger sampling interval ({@code -Dio.netty.leakDetection.samplingInterval}) this is cheap enough for
+     * production.
+     */
+    public static void setSiteTrackingEnabled(boolean enabled) {
+        trackSites = enabled;
+    }
+
+    /**
+     * Returns {@code true} if allocation sites are tracked.
+     */
+    public static boolean isSiteTrackingEnabled() {
+        return trackSites;
+    }
+
     /** the linked list of active resources */
     private final DefaultResourceLeak head = new DefaultResourceLeak(null);
     private final DefaultResourceLeak tail = new DefaultResourceLeak(null);
@@ -159,6 +193,9 @@ public class ResourceLeakDetector<T> {
 
     private long leakCheckCnt;
 
+    private final ResourceLeakSiteTable sites = new ResourceLeakSiteTable(SITE_TABLE_SIZE);
+    private final LongCounter leakCount = PlatformDependent.newLongCounter();
+
     /**
      * @deprecated use {@link ResourceLeakDetectorFactory#newResourceLeakDetector(Class, int, long)}.
      */
@@ -233,6 +270,23 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Returns the number of sampled resources that were garbage-collected without being released.
+     */
+    public long leakCount() {
+        return leakCount.value();
+    }
+
+    /**
+     * Returns a snapshot of the allocation sites that were sampled while site tracking was enabled, with the number of
+     * leaks of each site.
+     *
+     * @see #setSiteTrackingEnabled(boolean)
+     */
+    public List<ResourceLeakSite> leakSites() {
+        return sites.sites();
+    }
+
     private void reportLeak(Level level) {
         if (!logger.isErrorEnabled()) {
             for (;;) {
@@ -241,7 +295,12 @@ public class ResourceLeakDetector<T> {
                 if (ref == null) {
                     break;
                 }
-                ref.close();
+                if (ref.close()) {
+                    leakCount.increment();
+                    if (ref.site != null) {
+                        ref.site.leaked();
+                    }
+                }
             }
             return;
         }
@@ -266,6 +325,15 @@ public class ResourceLeakDetector<T> {
                 continue;
             }
 
+            leakCount.increment();
+            if (ref.site != null) {
+                // Leaks are counted per site, only the first one of a site is logged.
+                if (ref.site.leaked()) {
+                    reportSiteLeak(resourceType, ref.site);
+                }
+                continue;
+            }
+
             String records = ref.toString();
             if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
                 if (records.isEmpty()) {
@@ -301,6 +369,17 @@ public class ResourceLeakDetector<T> {
                 resourceType, PROP_LEVEL, Level.ADVANCED.name().toLowerCase(), simpleClassName(this));
     }
 
+    /**
+     * This method is called when the first leak of an allocation site is detected while site tracking is enabled. It
+     * can be overridden for tracking how many times leaks have been detected.
+     */
+    protected void reportSiteLeak(String resourceType, ResourceLeakSite site) {
+        logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
+                "Further leaks of the same allocation site are only counted, see {}.leakSites(). " +
+                "Allocation site {}:{}",
+                resourceType, simpleClassName(this), Integer.toHexString(site.hash()), site.location());
+    }
+
     /**
      * This method is called when instance leaks are detected. It can be overridden for tracking how many times leaks
      * have been detected.
@@ -315,6 +394,7 @@ public class ResourceLeakDetector<T> {
         private final String creationRecord;
         private final Deque<String> lastRecords = new ArrayDeque<String>();
         private final AtomicBoolean freed;
+        final ResourceLeakSite site;
         private DefaultResourceLeak prev;
         private DefaultResourceLeak next;
         private int removedRecords;
@@ -329,6 +409,7 @@ public class ResourceLeakDetector<T> {
                 } else {
                     creationRecord = null;
                 }
+                site = trackSites ? sampleSite() : null;
 
                 // TODO: Use CAS to update the list.
                 synchronized (head) {
@@ -341,6 +422,7 @@ public class ResourceLeakDetector<T> {
                 freed = new AtomicBoolean();
             } else {
                 creationRecord = null;
+                site = null;
                 freed = new AtomicBoolean(true);
             }
         }
@@ -434,6 +516,32 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Returns the site of the allocation that called {@link #open(Object)}, identified by the first frames that are
+     * neither in this class nor in an allocator.
+     */
+    private ResourceLeakSite sampleSite() {
+        StackTraceElement[] frames = new Throwable().getStackTrace();
+        int from = 0;
+        while (from < frames.length && isInternalFrame(frames[from].getClassName())) {
+            from ++;
+        }
+        int to = Math.min(frames.length, from + SITE_DEPTH);
+        ResourceLeakSite site = sites.site(frames, from, to);
+        if (site != null) {
+            site.sampled();
+        }
+        return site;
+    }
+
+    private static boolean isInternalFrame(String className) {
+        String detectorClassName = ResourceLeakDetector.class.getName();
+        return className.startsWith(detectorClassName) &&
+               (className.length() == detectorClassName.length() ||
+                className.charAt(detectorClassName.length()) == '$') ||
+               className.endsWith("ByteBufAllocator");
+    }
+
     private static final String[] STACK_TRACE_ELEMENT_EXCLUSIONS = {
             "io.netty.util.ReferenceCountUtil.touch(",
             "io.netty.buffer.AdvancedLeakAwareByteBuf.touch(",
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The leak statistics of one allocation site, collected by a {@link ResourceLeakDetector} with site tracking enabled.
+ *
+ * @see ResourceLeakDetector#leakSites()
+ */
+public final class ResourceLeakSite {
+
+    private final int hash;
+    private final String location;
+    private final LongCounter sampledAllocations = PlatformDependent.newLongCounter();
+    private final LongCounter leaks = PlatformDependent.newLongCounter();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    ResourceLeakSite(int hash, String location) {
+        this.hash = hash;
+        this.location = location;
+    }
+
+    /**
+     * Returns the hash of the stack frames of the allocation site, which identifies the site.
+     */
+    public int hash() {
+        return hash;
+    }
+
+    /**
+     * Returns the stack frames of the allocation site, as recorded the first time the site was sampled.
+     */
+    public String location() {
+        return location;
+    }
+
+    /**
+     * Returns the number of allocations of this site that were sampled for leak detection.
+     */
+    public long sampledAllocations() {
+        return sampledAllocations.value();
+    }
+
+    /**
+     * Returns the number of sampled allocations of this site that were garbage-collected without being released.
+     */
+    public long leaks() {
+        return leaks.value();
+    }
+
+    void sampled() {
+        sampledAllocations.increment();
+    }
+
+    /**
+     * Count a leak and return {@code true} if it is the first leak of this site.
+     */
+    boolean leaked() {
+        leaks.increment();
+        return !reported.get() && reported.compareAndSet(false, true);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceLeakSite(hash: " + Integer.toHexString(hash) + ", sampled: " + sampledAllocations() +
+                ", leaks: " + leaks() + ')' + location;
+    }
+}
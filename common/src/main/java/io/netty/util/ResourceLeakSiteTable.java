@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.netty.util.internal.StringUtil.NEWLINE;
+
+/**
+ * A fixed-size, lock-free open addressing table of {@link ResourceLeakSite}s keyed by the hash of their stack frames.
+ * Sites are never removed, so a site is added with a single CAS and looked up without any synchronization.
+ */
+final class ResourceLeakSiteTable {
+
+    // Give up after this many occupied slots, the site is then not tracked.
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicReferenceArray<ResourceLeakSite> sites;
+    private final int mask;
+
+    ResourceLeakSiteTable(int capacity) {
+        sites = new AtomicReferenceArray<ResourceLeakSite>(capacity);
+        mask = capacity - 1;
+        assert (capacity & mask) == 0;
+    }
+
+    /**
+     * Returns the site of the stack frames {@code [from, to)}, adding it if it is new. Returns {@code null} if the
+     * table is too full to add it.
+     */
+    ResourceLeakSite site(StackTraceElement[] frames, int from, int to) {
+        int hash = hash(frames, from, to);
+        String location = null;
+        for (int i = 0, idx = hash & mask; i < MAX_PROBES; i ++, idx = idx + 1 & mask) {
+            ResourceLeakSite site = sites.get(idx);
+            if (site == null) {
+                if (location == null) {
+                    location = location(frames, from, to);
+                }
+                ResourceLeakSite newSite = new ResourceLeakSite(hash, location);
+                if (sites.compareAndSet(idx, null, newSite)) {
+                    return newSite;
+                }
+                // Lost the race, check what the other thread added.
+                site = sites.get(idx);
+            }
+            if (site.hash() == hash) {
+                return site;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a snapshot of all sites.
+     */
+    List<ResourceLeakSite> sites() {
+        List<ResourceLeakSite> list = new ArrayList<ResourceLeakSite>();
+        for (int i = 0; i < sites.length(); i ++) {
+            ResourceLeakSite site = sites.get(i);
+            if (site != null) {
+                list.add(site);
+            }
+        }
+        return list;
+    }
+
+    private static int hash(StackTraceElement[] frames, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i ++) {
+            StackTraceElement e = frames[i];
+            hash = 31 * hash + e.getClassName().hashCode();
+            hash = 31 * hash + e.getMethodName().hashCode();
+            hash = 31 * hash + e.getLineNumber();
+        }
+        // Spread the bits, as the low bits are used as the index.
+        return hash ^ hash >>> 16;
+    }
+
+    private static String location(StackTraceElement[] frames, int from, int to) {
+        StringBuilder buf = new StringBuilder(128 * (to - from));
+        for (int i = from; i < to; i ++) {
+            buf.append(NEWLINE).append('\t').append(frames[i]);
+        }
+        return buf.toString();
+    }
+}
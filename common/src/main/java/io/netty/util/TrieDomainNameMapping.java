@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.netty.util.DomainNameMapping.normalizeHostname;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Maps a domain name to its associated value object, like {@link DomainNameMapping}, but keeps the mappings in a trie
+ * of the reversed labels of the host names. A lookup therefore takes time proportional to the number of labels of the
+ * host name instead of the number of mappings, which matters for tables with many thousands of host names such as
+ * the certificates of a {@code SniHandler}.
+ * <p>
+ * DNS wildcard is supported as hostname, so you can use {@code *.netty.io} to match both {@code netty.io}
+ * and {@code downloads.netty.io}. Unlike {@link DomainNameMapping} the result does not depend on the order in which
+ * the mappings were added: an exact match is preferred over a wildcard match, and a longer wildcard over a shorter one.
+ * </p>
+ * <p>
+ * The whole table can be replaced with {@link #replace(Map)} while lookups are in progress. Lookups never block, they
+ * either see the old or the new table.
+ * </p>
+ */
+@UnstableApi
+public final class TrieDomainNameMapping<V> implements Mapping<String, V> {
+
+    private volatile Table<V> table;
+
+    /**
+     * Creates a new mapping without any host names.
+     *
+     * @param defaultValue the default value for {@link #map(String)} to return when nothing matches the input
+     */
+    public TrieDomainNameMapping(V defaultValue) {
+        this(Collections.<String, V>emptyMap(), defaultValue);
+    }
+
+    /**
+     * Creates a new mapping.
+     *
+     * @param mappings     the (optionally wildcard) host names and the values they map to
+     * @param defaultValue the default value for {@link #map(String)} to return when nothing matches the input
+     */
+    public TrieDomainNameMapping(Map<String, ? extends V> mappings, V defaultValue) {
+        table = new Table<V>(mappings, checkNotNull(defaultValue, "defaultValue"));
+    }
+
+    /**
+     * Replaces all mappings by {@code mappings}. The new table is built by the calling thread and then published
+     * atomically, so concurrent calls of {@link #map(String)} are not blocked.
+     */
+    public void replace(Map<String, ? extends V> mappings) {
+        replace(mappings, table.defaultValue);
+    }
+
+    /**
+     * Replaces all mappings by {@code mappings} and the default value by {@code defaultValue}.
+     *
+     * @see #replace(Map)
+     */
+    public void replace(Map<String, ? extends V> mappings, V defaultValue) {
+        table = new Table<V>(mappings, checkNotNull(defaultValue, "defaultValue"));
+    }
+
+    @Override
+    public V map(String hostname) {
+        Table<V> table = this.table;
+        if (hostname == null) {
+            return table.defaultValue;
+        }
+        return table.map(normalizeHostname(hostname));
+    }
+
+    /**
+     * Returns a read-only {@link Map} of the domain mapping patterns and their associated value objects.
+     */
+    public Map<String, V> asMap() {
+        return table.map;
+    }
+
+    @Override
+    public String toString() {
+        Table<V> table = this.table;
+        return StringUtil.simpleClassName(this) + "(default: " + table.defaultValue + ", map: " + table.map + ')';
+    }
+
+    private static final class Table<V> {
+        final V defaultValue;
+        final Map<String, V> map;
+        final Node<V> root;
+
+        Table(Map<String, ? extends V> mappings, V defaultValue) {
+            this.defaultValue = defaultValue;
+            Map<String, V> map = new LinkedHashMap<String, V>(mappings.size() * 4 / 3 + 1);
+            // The same labels (e.g. "com") appear in many host names, so they are shared between the nodes.
+            Map<String, String> labels = new HashMap<String, String>();
+            NodeBuilder<V> root = new NodeBuilder<V>();
+            for (Map.Entry<String, ? extends V> entry : mappings.entrySet()) {
+                String hostname = normalizeHostname(checkNotNull(entry.getKey(), "hostname"));
+                V value = checkNotNull(entry.getValue(), "value");
+                map.put(hostname, value);
+                root.add(hostname, value, labels);
+            }
+            this.map = Collections.unmodifiableMap(map);
+            this.root = root.build();
+        }
+
+        V map(String hostname) {
+            V wildcardValue = defaultValue;
+            Node<V> node = root;
+            int end = hostname.length();
+            for (;;) {
+                int dot = hostname.lastIndexOf('.', end - 1);
+                Node<V> child = node.child(hostname, dot + 1, end);
+                if (child == null) {
+                    return wildcardValue;
+                }
+                if (dot < 0) {
+                    // All labels matched. A wildcard also matches the domain itself, so *.netty.io matches netty.io.
+                    if (child.exactValue != null) {
+                        return child.exactValue;
+                    }
+                    return child.wildcardValue != null ? child.wildcardValue : wildcardValue;
+                }
+                if (child.wildcardValue != null) {
+                    wildcardValue = child.wildcardValue;
+                }
+                node = child;
+                end = dot;
+            }
+        }
+    }
+
+    /**
+     * An immutable node of the trie. The children are sorted by their label, so they can be found by a binary search
+     * without creating a substring of the host name.
+     */
+    private static final class Node<V> {
+        private static final String[] EMPTY_LABELS = new String[0];
+        @SuppressWarnings("rawtypes")
+        private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+        final V exactValue;
+        final V wildcardValue;
+        private final String[] labels;
+        private final Node<V>[] children;
+
+        Node(V exactValue, V wildcardValue, String[] labels, Node<V>[] children) {
+            this.exactValue = exactValue;
+            this.wildcardValue = wildcardValue;
+            this.labels = labels;
+            this.children = children;
+        }
+
+        Node<V> child(String hostname, int start, int end) {
+            String[] labels = this.labels;
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = low + high >>> 1;
+                int cmp = compare(labels[mid], hostname, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Compares {@code label} with the region {@code [start, end)} of {@code hostname} like
+         * {@link String#compareTo(String)} does.
+         */
+        private static int compare(String label, String hostname, int start, int end) {
+            int length = end - start;
+            int min = Math.min(label.length(), length);
+            for (int i = 0; i < min; i++) {
+                int cmp = label.charAt(i) - hostname.charAt(start + i);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return label.length() - length;
+        }
+    }
+
+    private static final class NodeBuilder<V> {
+        V exactValue;
+        V wildcardValue;
+        Map<String, NodeBuilder<V>> children;
+
+        void add(String hostname, V value, Map<String, String> labels) {
+            boolean wildcard = hostname.startsWith("*.");
+            int start = wildcard ? 2 : 0;
+            NodeBuilder<V> node = this;
+            int end = hostname.length();
+            for (;;) {
+                int dot = hostname.lastIndexOf('.', end - 1);
+                if (dot < start - 1) {
+                    dot = start - 1;
+                }
+                node = node.child(hostname.substring(dot + 1, end), labels);
+                if (dot < start) {
+                    break;
+                }
+                end = dot;
+            }
+            // Like DomainNameMapping the first mapping of a host name wins.
+            if (wildcard) {
+                if (node.wildcardValue == null) {
+                    node.wildcardValue = value;
+                }
+            } else if (node.exactValue == null) {
+                node.exactValue = value;
+            }
+        }
+
+        private NodeBuilder<V> child(String label, Map<String, String> labels) {
+            String shared = labels.get(label);
+            if (shared == null) {
+                labels.put(label, label);
+                shared = label;
+            }
+            if (children == null) {
+                children = new HashMap<String, NodeBuilder<V>>(4);
+            }
+            NodeBuilder<V> child = children.get(shared);
+            if (child == null) {
+                child = new NodeBuilder<V>();
+                children.put(shared, child);
+            }
+            return child;
+        }
+
+        Node<V> build() {
+            if (children == null) {
+                // Most nodes are leaves, so they share the empty arrays.
+                @SuppressWarnings("unchecked")
+                Node<V>[] children = Node.EMPTY_CHILDREN;
+                return new Node<V>(exactValue, wildcardValue, Node.EMPTY_LABELS, children);
+            }
+            String[] labels = children.keySet().toArray(new String[children.size()]);
+            Arrays.sort(labels);
+            Node<V>[] nodes = newNodeArray(labels.length);
+            for (int i = 0; i < labels.length; i++) {
+                nodes[i] = children.get(labels[i]).build();
+            }
+            return new Node<V>(exactValue, wildcardValue, labels, nodes);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newNodeArray(int length) {
+            return new Node[length];
+        }
+    }
+}
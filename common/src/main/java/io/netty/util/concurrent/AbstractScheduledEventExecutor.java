@@ -16,6 +16,9 @@
 package io.netty.util.concurrent;
 
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -28,8 +31,41 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    private static final long TIMER_WHEEL_TICK_NANOS;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    static {
+        TIMER_WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(1, SystemPropertyUtil.getLong("io.netty.eventexecutor.timerWheelTickMillis", 10)));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.timerWheelTickMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(TIMER_WHEEL_TICK_NANOS));
+        }
+    }
+
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
 
+    private TimerWheel timerWheel;
+    // The deadline of the earliest timerWheelTick in the scheduledTaskQueue, Long.MAX_VALUE if there is none.
+    private long timerWheelTickDeadline = Long.MAX_VALUE;
+    private final Runnable timerWheelTick = new Runnable() {
+        @Override
+        public void run() {
+            long nanoTime = nanoTime();
+            if (timerWheelTickDeadline <= nanoTime) {
+                // This is the earliest tick. Later ones, armed before an earlier task was added, just find nothing
+                // to do when they run.
+                timerWheelTickDeadline = Long.MAX_VALUE;
+            }
+            timerWheel.expire(nanoTime);
+            if (!timerWheel.isEmpty()) {
+                scheduleTimerWheelTick(timerWheel.nextExpirationNanos());
+            }
+        }
+    };
+
     protected AbstractScheduledEventExecutor() {
     }
 
@@ -72,6 +108,11 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         }
 
         scheduledTaskQueue.clear();
+
+        if (timerWheel != null) {
+            timerWheel.cancelAll();
+            timerWheelTickDeadline = Long.MAX_VALUE;
+        }
     }
 
     /**
@@ -190,6 +231,113 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
                 ScheduledFutureTask.deadlineNanos(unit.toNanos(initialDelay)), -unit.toNanos(delay)));
     }
 
+    /**
+     * Creates and executes a one-shot action that becomes enabled after the given delay and may run up to
+     * {@code tolerance} later than that.
+     * <p>
+     * If the tolerance is at least the tick of the timer wheel of this executor
+     * ({@code -Dio.netty.eventexecutor.timerWheelTickMillis}, 10 milliseconds by default), the task is put on the
+     * timer wheel instead of the priority queue that holds the other scheduled tasks. Scheduling and cancelling such a
+     * task is {@code O(1)}, and a cancelled task is only dropped once the wheel passes by its slot. This fits timeouts
+     * which are scheduled and cancelled often but are not sensitive to the exact time they fire, like idle or read
+     * timeouts of many connections. Otherwise this method behaves like {@link #schedule(Runnable, long, TimeUnit)}.
+     */
+    public ScheduledFuture<?> schedule(Runnable command, long delay, long tolerance, TimeUnit unit) {
+        ObjectUtil.checkNotNull(command, "command");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (tolerance < 0) {
+            throw new IllegalArgumentException(
+                    String.format("tolerance: %d (expected: >= 0)", tolerance));
+        }
+        if (unit.toNanos(tolerance) < TIMER_WHEEL_TICK_NANOS) {
+            return schedule(command, delay, unit);
+        }
+        if (delay < 0) {
+            throw new IllegalArgumentException(
+                    String.format("delay: %d (expected: >= 0)", delay));
+        }
+        return scheduleOnTimerWheel(new ScheduledFutureTask<Void>(
+                this, command, null, ScheduledFutureTask.deadlineNanos(unit.toNanos(delay))));
+    }
+
+    /**
+     * Creates and executes a {@link ScheduledFuture} that becomes enabled after the given delay and may run up to
+     * {@code tolerance} later than that.
+     *
+     * @see #schedule(Runnable, long, long, TimeUnit)
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, long tolerance, TimeUnit unit) {
+        ObjectUtil.checkNotNull(callable, "callable");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (tolerance < 0) {
+            throw new IllegalArgumentException(
+                    String.format("tolerance: %d (expected: >= 0)", tolerance));
+        }
+        if (unit.toNanos(tolerance) < TIMER_WHEEL_TICK_NANOS) {
+            return schedule(callable, delay, unit);
+        }
+        if (delay < 0) {
+            throw new IllegalArgumentException(
+                    String.format("delay: %d (expected: >= 0)", delay));
+        }
+        return scheduleOnTimerWheel(new ScheduledFutureTask<V>(
+                this, callable, ScheduledFutureTask.deadlineNanos(unit.toNanos(delay))));
+    }
+
+    /**
+     * Schedules {@code command} on {@code executor} via {@link #schedule(Runnable, long, long, TimeUnit)} if it is an
+     * {@link AbstractScheduledEventExecutor}, or via {@link EventExecutor#schedule(Runnable, long, TimeUnit)}
+     * otherwise. This lets code which only knows the {@link EventExecutor}, like a handler using
+     * {@code ChannelHandlerContext.executor()}, opt in to the timer wheel without a cast.
+     */
+    public static ScheduledFuture<?> scheduleWithTolerance(
+            EventExecutor executor, Runnable command, long delay, long tolerance, TimeUnit unit) {
+        ObjectUtil.checkNotNull(executor, "executor");
+        if (executor instanceof AbstractScheduledEventExecutor) {
+            return ((AbstractScheduledEventExecutor) executor).schedule(command, delay, tolerance, unit);
+        }
+        return executor.schedule(command, delay, unit);
+    }
+
+    private <V> ScheduledFuture<V> scheduleOnTimerWheel(final ScheduledFutureTask<V> task) {
+        // Set before the task is published, so cancel() never removes it from the scheduledTaskQueue.
+        task.coarse = true;
+        if (inEventLoop()) {
+            addToTimerWheel(task);
+        } else {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    addToTimerWheel(task);
+                }
+            });
+        }
+
+        return task;
+    }
+
+    private void addToTimerWheel(ScheduledFutureTask<?> task) {
+        if (task.isCancelled()) {
+            return;
+        }
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel(TIMER_WHEEL_TICK_NANOS, TIMER_WHEEL_SIZE);
+        }
+        scheduleTimerWheelTick(timerWheel.add(task));
+    }
+
+    /**
+     * The timer wheel is driven by a task in the scheduledTaskQueue which is armed for the first tick at which a task
+     * of the wheel expires, so the event loops do not need to know about the wheel and an executor whose wheel only
+     * holds a far away timeout does not wake up on every tick.
+     */
+    private void scheduleTimerWheelTick(long deadlineNanos) {
+        if (deadlineNanos < timerWheelTickDeadline) {
+            timerWheelTickDeadline = deadlineNanos;
+            scheduledTaskQueue().add(new ScheduledFutureTask<Void>(this, timerWheelTick, null, deadlineNanos));
+        }
+    }
+
     <V> ScheduledFuture<V> schedule(final ScheduledFutureTask<V> task) {
         if (inEventLoop()) {
             scheduledTaskQueue().add(task);
@@ -61,6 +61,20 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * Threading - synchronized(this). We must support adding listeners when there is no EventExecutor.
      */
     private Object listeners;
+    /**
+     * The second and third listener are stored inline so the common case of a few listeners per promise does not
+     * need to allocate a {@link DefaultFutureListeners}. Only used while {@link #listeners} is a single
+     * {@link GenericFutureListener}; {@link #listener2} is always filled before {@link #listener3}.
+     *
+     * Threading - synchronized(this).
+     */
+    private GenericFutureListener<?> listener2;
+    private GenericFutureListener<?> listener3;
+    /**
+     * Lazily created task which is used to notify the listeners if this can not be done on the calling stack.
+     * It is reused for every notification of this promise.
+     */
+    private Runnable notifyListenersTask;
     /**
      * Threading - synchronized(this). We are required to hold the monitor to use Java's underlying wait()/notifyAll().
      */
@@ -99,7 +113,6 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @Override
     public Promise<V> setSuccess(V result) {
         if (setSuccess0(result)) {
-            notifyListeners();
             return this;
         }
         throw new IllegalStateException("complete already: " + this);
@@ -108,7 +121,6 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @Override
     public boolean trySuccess(V result) {
         if (setSuccess0(result)) {
-            notifyListeners();
             return true;
         }
         return false;
@@ -117,7 +129,6 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @Override
     public Promise<V> setFailure(Throwable cause) {
         if (setFailure0(cause)) {
-            notifyListeners();
             return this;
         }
         throw new IllegalStateException("complete already: " + this, cause);
@@ -126,7 +137,6 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @Override
     public boolean tryFailure(Throwable cause) {
         if (setFailure0(cause)) {
-            notifyListeners();
             return true;
         }
         return false;
@@ -318,8 +328,9 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
         if (RESULT_UPDATER.compareAndSet(this, null, CANCELLATION_CAUSE_HOLDER)) {
-            checkNotifyWaiters();
-            notifyListeners();
+            if (checkNotifyWaiters()) {
+                notifyListeners();
+            }
             return true;
         }
         return false;
@@ -432,12 +443,16 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             }
         }
 
-        safeExecute(executor, new Runnable() {
-            @Override
-            public void run() {
-                notifyListenersNow();
-            }
-        });
+        Runnable task = notifyListenersTask;
+        if (task == null) {
+            notifyListenersTask = task = new Runnable() {
+                @Override
+                public void run() {
+                    notifyListenersNow();
+                }
+            };
+        }
+        safeExecute(executor, task);
     }
 
     /**
@@ -472,6 +487,8 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
     private void notifyListenersNow() {
         Object listeners;
+        GenericFutureListener<?> listener2;
+        GenericFutureListener<?> listener3;
         synchronized (this) {
             // Only proceed if there are listeners to notify and we are not already notifying listeners.
             if (notifyingListeners || this.listeners == null) {
@@ -479,13 +496,21 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             }
             notifyingListeners = true;
             listeners = this.listeners;
-            this.listeners = null;
+            listener2 = this.listener2;
+            listener3 = this.listener3;
+            clearListeners();
         }
         for (;;) {
             if (listeners instanceof DefaultFutureListeners) {
                 notifyListeners0((DefaultFutureListeners) listeners);
             } else {
                 notifyListener0(this, (GenericFutureListener<? extends Future<V>>) listeners);
+                if (listener2 != null) {
+                    notifyListener0(this, listener2);
+                    if (listener3 != null) {
+                        notifyListener0(this, listener3);
+                    }
+                }
             }
             synchronized (this) {
                 if (this.listeners == null) {
@@ -495,11 +520,19 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
                     return;
                 }
                 listeners = this.listeners;
-                this.listeners = null;
+                listener2 = this.listener2;
+                listener3 = this.listener3;
+                clearListeners();
             }
         }
     }
 
+    private void clearListeners() {
+        listeners = null;
+        listener2 = null;
+        listener3 = null;
+    }
+
     private void notifyListeners0(DefaultFutureListeners listeners) {
         GenericFutureListener<?>[] a = listeners.listeners();
         int size = listeners.size();
@@ -522,8 +555,19 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             listeners = listener;
         } else if (listeners instanceof DefaultFutureListeners) {
             ((DefaultFutureListeners) listeners).add(listener);
+        } else if (listener2 == null) {
+            listener2 = listener;
+        } else if (listener3 == null) {
+            listener3 = listener;
         } else {
-            listeners = new DefaultFutureListeners((GenericFutureListener<? extends Future<V>>) listeners, listener);
+            // Inline storage is exhausted, move all listeners to a DefaultFutureListeners preserving their order.
+            DefaultFutureListeners dfl = new DefaultFutureListeners(
+                    (GenericFutureListener<? extends Future<V>>) listeners, listener2);
+            dfl.add(listener3);
+            dfl.add(listener);
+            listeners = dfl;
+            listener2 = null;
+            listener3 = null;
         }
     }
 
@@ -531,7 +575,14 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         if (listeners instanceof DefaultFutureListeners) {
             ((DefaultFutureListeners) listeners).remove(listener);
         } else if (listeners == listener) {
-            listeners = null;
+            listeners = listener2;
+            listener2 = listener3;
+            listener3 = null;
+        } else if (listener2 == listener) {
+            listener2 = listener3;
+            listener3 = null;
+        } else if (listener3 == listener) {
+            listener3 = null;
         }
     }
 
@@ -546,16 +597,24 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     private boolean setValue0(Object objResult) {
         if (RESULT_UPDATER.compareAndSet(this, null, objResult) ||
             RESULT_UPDATER.compareAndSet(this, UNCANCELLABLE, objResult)) {
-            checkNotifyWaiters();
+            if (checkNotifyWaiters()) {
+                notifyListeners();
+            }
             return true;
         }
         return false;
     }
 
-    private synchronized void checkNotifyWaiters() {
+    /**
+     * Wakes up all waiters and returns {@code true} if there are listeners to notify. Checking the listeners while
+     * already holding the monitor allows promises without listeners (like most write promises) to skip
+     * {@link #notifyListeners()} and its stack depth tracking entirely.
+     */
+    private synchronized boolean checkNotifyWaiters() {
         if (waiters > 0) {
             notifyAll();
         }
+        return listeners != null;
     }
 
     private void incWaiters() {
@@ -719,11 +778,34 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             }
 
             return copy;
-        } else if (listeners instanceof GenericProgressiveFutureListener) {
-            return listeners;
+        } else if (listener2 == null) {
+            // Only one listener was added.
+            return listeners instanceof GenericProgressiveFutureListener ? listeners : null;
         } else {
-            // Only one listener was added and it's not a progressive listener.
-            return null;
+            // Up to three listeners are stored inline.
+            Object l1 = listeners instanceof GenericProgressiveFutureListener ? listeners : null;
+            Object l2 = listener2 instanceof GenericProgressiveFutureListener ? listener2 : null;
+            Object l3 = listener3 instanceof GenericProgressiveFutureListener ? listener3 : null;
+            int progressiveSize = (l1 != null ? 1 : 0) + (l2 != null ? 1 : 0) + (l3 != null ? 1 : 0);
+            switch (progressiveSize) {
+                case 0:
+                    return null;
+                case 1:
+                    return l1 != null ? l1 : l2 != null ? l2 : l3;
+            }
+
+            GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
+            int j = 0;
+            if (l1 != null) {
+                copy[j ++] = (GenericProgressiveFutureListener<?>) l1;
+            }
+            if (l2 != null) {
+                copy[j ++] = (GenericProgressiveFutureListener<?>) l2;
+            }
+            if (l3 != null) {
+                copy[j] = (GenericProgressiveFutureListener<?>) l3;
+            }
+            return copy;
         }
     }
 
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime metrics of a {@link SingleThreadEventExecutor}. All values are updated by the executor thread only (except
+ * the number of wakeups) and can be read from any other {@link Thread} without locking.
+ *
+ * <p>Metrics are only collected if {@code -Dio.netty.eventexecutor.metrics=true} is set, see
+ * {@link SingleThreadEventExecutor#metrics()}.
+ *
+ * <p>Durations are recorded in histograms with power of two buckets: bucket {@code 0} holds durations of {@code 0}
+ * nanoseconds and bucket {@code i} holds durations {@code >= 2^(i-1)} and {@code < 2^i} nanoseconds. The last bucket
+ * also holds all longer durations.
+ */
+@UnstableApi
+public final class EventExecutorMetrics {
+
+    /**
+     * The number of buckets of each histogram. The last bucket starts at {@code 2^30} nanoseconds, which is about one
+     * second.
+     */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    /**
+     * One in how many tasks is used to measure the queueing delay.
+     */
+    static final int QUEUE_DELAY_SAMPLE_INTERVAL = 16;
+
+    private static final int TASKS = 0;
+    private static final int TASK_NANOS = 1;
+    private static final int QUEUE_DELAY_SAMPLES = 2;
+    private static final int QUEUE_DELAY_NANOS = 3;
+    private static final int SELECTS = 4;
+    private static final int SELECT_NANOS = 5;
+    private static final int IO_PROCESSINGS = 6;
+    private static final int IO_NANOS = 7;
+    private static final int TASK_HISTOGRAM = 8;
+    private static final int QUEUE_DELAY_HISTOGRAM = TASK_HISTOGRAM + HISTOGRAM_BUCKETS;
+    private static final int SLOTS = QUEUE_DELAY_HISTOGRAM + HISTOGRAM_BUCKETS;
+
+    // Single writer, so lazySet(...) is enough to publish the values to other threads.
+    private final AtomicLongArray values = new AtomicLongArray(SLOTS);
+    private final LongCounter wakeups = PlatformDependent.newLongCounter();
+    // Racy by design, it is only used to pick the tasks for which the queueing delay is measured.
+    private int submittedTasks;
+
+    EventExecutorMetrics() { }
+
+    /**
+     * Returns the number of executed tasks.
+     */
+    public long tasks() {
+        return values.get(TASKS);
+    }
+
+    /**
+     * Returns the total time in nanoseconds spent on executing tasks.
+     */
+    public long taskTimeNanos() {
+        return values.get(TASK_NANOS);
+    }
+
+    /**
+     * Returns a copy of the histogram of the task execution times.
+     */
+    public long[] taskTimeHistogram() {
+        return histogram(TASK_HISTOGRAM);
+    }
+
+    /**
+     * Returns the number of tasks for which the queueing delay was measured. Only one in
+     * {@value #QUEUE_DELAY_SAMPLE_INTERVAL} tasks is sampled to keep the overhead low.
+     */
+    public long queueDelaySamples() {
+        return values.get(QUEUE_DELAY_SAMPLES);
+    }
+
+    /**
+     * Returns the total time in nanoseconds the sampled tasks waited in the task queue.
+     */
+    public long queueDelayNanos() {
+        return values.get(QUEUE_DELAY_NANOS);
+    }
+
+    /**
+     * Returns a copy of the histogram of the queueing delays of the sampled tasks.
+     */
+    public long[] queueDelayHistogram() {
+        return histogram(QUEUE_DELAY_HISTOGRAM);
+    }
+
+    /**
+     * Returns how often the executor waited for I/O events, for example in {@code Selector.select(...)} or
+     * {@code epoll_wait(...)}.
+     */
+    public long selects() {
+        return values.get(SELECTS);
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor waited for I/O events.
+     */
+    public long selectTimeNanos() {
+        return values.get(SELECT_NANOS);
+    }
+
+    /**
+     * Returns how often the executor processed I/O events.
+     */
+    public long ioProcessings() {
+        return values.get(IO_PROCESSINGS);
+    }
+
+    /**
+     * Returns the total time in nanoseconds the executor spent on processing I/O events.
+     */
+    public long ioTimeNanos() {
+        return values.get(IO_NANOS);
+    }
+
+    /**
+     * Returns how often the executor was woken up by another {@link Thread}.
+     */
+    public long wakeups() {
+        return wakeups.value();
+    }
+
+    /**
+     * Returns the exclusive upper bound in nanoseconds of the given histogram bucket, or {@link Long#MAX_VALUE} for
+     * the last bucket.
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        if (bucket < 0 || bucket >= HISTOGRAM_BUCKETS) {
+            throw new IndexOutOfBoundsException("bucket: " + bucket + " (expected: 0-" + (HISTOGRAM_BUCKETS - 1) + ')');
+        }
+        return bucket == HISTOGRAM_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    static int bucket(long nanos) {
+        return Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    private long[] histogram(int offset) {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < histogram.length; i ++) {
+            histogram[i] = values.get(offset + i);
+        }
+        return histogram;
+    }
+
+    private void add(int slot, long delta) {
+        values.lazySet(slot, values.get(slot) + delta);
+    }
+
+    void recordTask(long nanos) {
+        add(TASKS, 1);
+        add(TASK_NANOS, nanos);
+        add(TASK_HISTOGRAM + bucket(nanos), 1);
+    }
+
+    void recordQueueDelay(long nanos) {
+        add(QUEUE_DELAY_SAMPLES, 1);
+        add(QUEUE_DELAY_NANOS, nanos);
+        add(QUEUE_DELAY_HISTOGRAM + bucket(nanos), 1);
+    }
+
+    void recordSelect(long nanos) {
+        add(SELECTS, 1);
+        add(SELECT_NANOS, nanos);
+    }
+
+    void recordIoProcessing(long nanos) {
+        add(IO_PROCESSINGS, 1);
+        add(IO_NANOS, nanos);
+    }
+
+    void recordWakeup() {
+        wakeups.increment();
+    }
+
+    /**
+     * Returns the given task or, for one in {@value #QUEUE_DELAY_SAMPLE_INTERVAL} tasks, a wrapper which records how
+     * long the task waited in the task queue once it is run.
+     */
+    Runnable sampleQueueDelay(Runnable task) {
+        if (++ submittedTasks % QUEUE_DELAY_SAMPLE_INTERVAL != 0) {
+            return task;
+        }
+        return new QueueDelaySample(task);
+    }
+
+    private final class QueueDelaySample implements Runnable {
+        private final Runnable task;
+        private final long submitTime = System.nanoTime();
+
+        QueueDelaySample(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            recordQueueDelay(System.nanoTime() - submitTime);
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -39,6 +39,8 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     private long deadlineNanos;
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
+    // true if the task is kept in the TimerWheel of the executor, which drops cancelled tasks lazily.
+    boolean coarse;
 
     ScheduledFutureTask(
             AbstractScheduledEventExecutor executor,
@@ -149,7 +151,7 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
         boolean canceled = super.cancel(mayInterruptIfRunning);
-        if (canceled) {
+        if (canceled && !coarse) {
             ((AbstractScheduledEventExecutor) executor()).removeScheduled(this);
         }
         return canceled;
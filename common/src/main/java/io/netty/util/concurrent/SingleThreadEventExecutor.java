@@ -51,6 +51,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    /**
+     * {@code true} if {@link EventExecutorMetrics} are collected. As this is a constant the JIT removes all
+     * instrumentation if metrics are disabled.
+     */
+    @UnstableApi
+    protected static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -88,6 +96,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                                                                    ThreadProperties.class, "threadProperties");
         }
         PROPERTIES_UPDATER = propertiesUpdater;
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.metrics: {}", METRICS_ENABLED);
+        }
     }
 
     /**
@@ -127,6 +139,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
 
+    private final EventExecutorMetrics metrics = METRICS_ENABLED ? new EventExecutorMetrics() : null;
+
     /**
      * Create a new instance
      *
@@ -401,7 +415,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
         for (;;) {
-            safeExecute(task);
+            runTask(task);
             task = pollTaskFrom(taskQueue);
             if (task == null) {
                 return true;
@@ -425,7 +439,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
-            safeExecute(task);
+            runTask(task);
 
             runTasks ++;
 
@@ -450,6 +464,57 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return true;
     }
 
+    private void runTask(Runnable task) {
+        if (METRICS_ENABLED) {
+            long startTime = System.nanoTime();
+            safeExecute(task);
+            metrics.recordTask(System.nanoTime() - startTime);
+        } else {
+            safeExecute(task);
+        }
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetrics} of this executor, or {@code null} if metrics are disabled. Metrics are
+     * enabled via {@code -Dio.netty.eventexecutor.metrics=true}.
+     */
+    @UnstableApi
+    public EventExecutorMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Records the time in nanoseconds the executor spent waiting for I/O events. Does nothing if metrics are
+     * disabled. Must be called from within the executor thread.
+     */
+    @UnstableApi
+    protected final void recordSelect(long selectTimeNanos) {
+        if (METRICS_ENABLED) {
+            metrics.recordSelect(selectTimeNanos);
+        }
+    }
+
+    /**
+     * Records the time in nanoseconds the executor spent on processing I/O events. Does nothing if metrics are
+     * disabled. Must be called from within the executor thread.
+     */
+    @UnstableApi
+    protected final void recordIoProcessing(long ioTimeNanos) {
+        if (METRICS_ENABLED) {
+            metrics.recordIoProcessing(ioTimeNanos);
+        }
+    }
+
+    /**
+     * Records that the executor thread was woken up by another thread. Does nothing if metrics are disabled.
+     */
+    @UnstableApi
+    protected final void recordWakeup() {
+        if (METRICS_ENABLED) {
+            metrics.recordWakeup();
+        }
+    }
+
     /**
      * Invoked before returning from {@link #runAllTasks()} and {@link #runAllTasks(long)}.
      */
@@ -494,7 +559,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (!inEventLoop || STATE_UPDATER.get(this) == ST_SHUTTING_DOWN) {
             // Use offer as we actually only need this to unblock the thread and if offer fails we do not care as there
             // is already something in the queue.
-            taskQueue.offer(WAKEUP_TASK);
+            if (taskQueue.offer(WAKEUP_TASK)) {
+                recordWakeup();
+            }
         }
     }
 
@@ -766,6 +833,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (task == null) {
             throw new NullPointerException("task");
         }
+        execute(task, !addTaskWakesUp && wakesUpForTask(task));
+    }
+
+    private void execute(Runnable task, boolean wakeup) {
+        if (METRICS_ENABLED) {
+            task = metrics.sampleQueueDelay(task);
+        }
         //inEventLoop() 实现调用了inEventLoop(Thread.currentThread),判断当前线程
         boolean inEventLoop = inEventLoop();
         if (inEventLoop) {
@@ -780,11 +854,51 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             }
         }
 
-        if (!addTaskWakesUp && wakesUpForTask(task)) {
+        if (wakeup) {
             wakeup(inEventLoop);
         }
     }
 
+    /**
+     * Submits the given tasks as a single task, so they are added to the task queue with one offer and wake up the
+     * executor thread at most once instead of once per task as {@link #execute(Runnable)} may do. The tasks run in
+     * iteration order; an exception thrown by one of them is logged and does not prevent the others from running.
+     * If the batch is rejected none of the tasks runs.
+     */
+    @UnstableApi
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        ObjectUtil.checkNotNull(tasks, "tasks");
+        Runnable[] batch = tasks.toArray(new Runnable[tasks.size()]);
+        boolean wakeup = false;
+        for (Runnable task: batch) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            if (!addTaskWakesUp && wakesUpForTask(task)) {
+                wakeup = true;
+            }
+        }
+        if (batch.length == 0) {
+            return;
+        }
+        execute(new TaskBatch(batch), wakeup);
+    }
+
+    private static final class TaskBatch implements Runnable {
+        private final Runnable[] tasks;
+
+        TaskBatch(Runnable[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void run() {
+            for (Runnable task: tasks) {
+                safeExecute(task);
+            }
+        }
+    }
+
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         throwIfInEventLoop("invokeAny");
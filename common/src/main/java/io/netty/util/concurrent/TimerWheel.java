@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single-level timer wheel of {@link ScheduledFutureTask}s, which is owned by an
+ * {@link AbstractScheduledEventExecutor} and only accessed by its thread.
+ * <p>
+ * Adding a task is {@code O(1)}. A cancelled task is not removed right away but dropped once the wheel visits its
+ * bucket, which is at most one rotation later. Tasks are run at the first tick at or after their deadline.
+ */
+final class TimerWheel {
+
+    private static final ScheduledFutureTask<?>[] EMPTY_BUCKET = new ScheduledFutureTask<?>[0];
+
+    private final long tickNanos;
+    private final int mask;
+    private final ScheduledFutureTask<?>[][] buckets;
+    private final int[] bucketSizes;
+    // The earliest expiration tick of the tasks of each bucket, only valid if the bucket is not empty.
+    private final long[] bucketMinTicks;
+    private final List<ScheduledFutureTask<?>> expired = new ArrayList<ScheduledFutureTask<?>>();
+    // The next tick to process.
+    private long tick;
+    private int size;
+
+    TimerWheel(long tickNanos, int ticksPerWheel) {
+        assert tickNanos > 0;
+        assert ticksPerWheel > 0 && (ticksPerWheel & ticksPerWheel - 1) == 0;
+        this.tickNanos = tickNanos;
+        mask = ticksPerWheel - 1;
+        buckets = new ScheduledFutureTask<?>[ticksPerWheel][];
+        Arrays.fill(buckets, EMPTY_BUCKET);
+        bucketSizes = new int[ticksPerWheel];
+        bucketMinTicks = new long[ticksPerWheel];
+    }
+
+    /**
+     * Returns {@code true} if there are no tasks in the wheel, including cancelled tasks which were not dropped yet.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the deadline of the first tick at which a task expires, including cancelled tasks which were not
+     * dropped yet. Must only be called if the wheel is not empty.
+     */
+    long nextExpirationNanos() {
+        assert size > 0;
+        long minTick = Long.MAX_VALUE;
+        for (int idx = 0; idx < bucketSizes.length; idx ++) {
+            if (bucketSizes[idx] != 0) {
+                minTick = Math.min(minTick, bucketMinTicks[idx]);
+            }
+        }
+        return Math.max(minTick, tick) * tickNanos;
+    }
+
+    /**
+     * Adds {@code task} and returns the deadline of the tick at which it expires.
+     */
+    long add(ScheduledFutureTask<?> task) {
+        long expirationTick = expirationTick(task);
+        int idx = (int) (expirationTick & mask);
+        ScheduledFutureTask<?>[] bucket = buckets[idx];
+        int bucketSize = bucketSizes[idx];
+        if (bucketSize == 0 || expirationTick < bucketMinTicks[idx]) {
+            bucketMinTicks[idx] = expirationTick;
+        }
+        if (bucketSize == bucket.length) {
+            buckets[idx] = bucket = Arrays.copyOf(bucket, Math.max(4, bucketSize << 1));
+        }
+        bucket[bucketSize] = task;
+        bucketSizes[idx] = bucketSize + 1;
+        size ++;
+        return expirationTick * tickNanos;
+    }
+
+    /**
+     * Runs all tasks whose tick was reached at {@code nanoTime} and drops the cancelled tasks of the visited buckets.
+     */
+    void expire(long nanoTime) {
+        long nowTick = nanoTime / tickNanos;
+        if (nowTick < tick) {
+            return;
+        }
+        // Visiting every bucket once is enough to catch up, no matter how many ticks were missed.
+        long ticks = Math.min(nowTick - tick + 1, mask + 1);
+        for (long t = tick; t < tick + ticks; t ++) {
+            collectExpired((int) (t & mask), nowTick);
+        }
+        tick = nowTick + 1;
+
+        // Run the tasks after all buckets were updated, as they may add new tasks.
+        List<ScheduledFutureTask<?>> expired = this.expired;
+        for (int i = 0; i < expired.size(); i ++) {
+            expired.get(i).run();
+        }
+        expired.clear();
+    }
+
+    private void collectExpired(int idx, long nowTick) {
+        ScheduledFutureTask<?>[] bucket = buckets[idx];
+        int bucketSize = bucketSizes[idx];
+        int newSize = 0;
+        long minTick = Long.MAX_VALUE;
+        for (int i = 0; i < bucketSize; i ++) {
+            ScheduledFutureTask<?> task = bucket[i];
+            bucket[i] = null;
+            if (task.isCancelled()) {
+                continue;
+            }
+            long expirationTick = expirationTick(task);
+            if (expirationTick <= nowTick) {
+                expired.add(task);
+            } else {
+                bucket[newSize ++] = task;
+                minTick = Math.min(minTick, expirationTick);
+            }
+        }
+        bucketMinTicks[idx] = minTick;
+        size -= bucketSize - newSize;
+        bucketSizes[idx] = newSize;
+    }
+
+    /**
+     * Cancels all tasks in the wheel.
+     */
+    void cancelAll() {
+        for (int idx = 0; idx < buckets.length; idx ++) {
+            ScheduledFutureTask<?>[] bucket = buckets[idx];
+            for (int i = 0; i < bucketSizes[idx]; i ++) {
+                bucket[i].cancelWithoutRemove(false);
+            }
+            buckets[idx] = EMPTY_BUCKET;
+            bucketSizes[idx] = 0;
+        }
+        size = 0;
+    }
+
+    private long expirationTick(ScheduledFutureTask<?> task) {
+        // Round up so a task never runs before its deadline and never schedule for a tick that was processed.
+        long deadline = task.deadlineNanos();
+        long expirationTick = deadline / tickNanos;
+        if (expirationTick * tickNanos < deadline) {
+            expirationTick ++;
+        }
+        return Math.max(expirationTick, tick);
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link EventExecutorGroup} which runs tasks on a fixed number of worker threads. Each worker has its own task
+ * deque and steals tasks from the other workers once its own deque is empty, so a worker that is blocked by a long
+ * running task does not hold back the tasks queued behind it while other workers are idle.
+ *
+ * <p>Tasks submitted to the group directly via {@link #execute(Runnable)} or {@link #submit(Runnable)} make no
+ * guarantees about ordering. Each call to {@link #next()} returns a new {@link OrderedEventExecutor} which executes
+ * its tasks one after another and in submission order, but not necessarily on the same {@link Thread}. This makes it
+ * possible to offload blocking handlers via {@code pipeline.addLast(group, ...)} without head-of-line blocking
+ * between channels.
+ *
+ * <p>Scheduling is not supported, the same as for the {@link EventExecutor}s of a
+ * {@link NonStickyEventExecutorGroup}.
+ *
+ * <p>{@link #shutdownGracefully(long, long, TimeUnit)} keeps accepting and running tasks until no task was submitted
+ * or completed for the quiet period, or the timeout has passed. The tasks queued by then are still run before the
+ * workers terminate.
+ */
+@UnstableApi
+public final class WorkStealingEventExecutorGroup extends AbstractEventExecutorGroup {
+
+    private final Worker[] workers;
+    private final UnorderedExecutor executor = new UnorderedExecutor(this);
+    private final AtomicInteger workerIndex = new AtomicInteger();
+    private final AtomicInteger aliveWorkers;
+    private final Promise<?> terminationFuture = GlobalEventExecutor.INSTANCE.newPromise();
+    private final int maxTaskExecutePerRun;
+    private volatile boolean shuttingDown;
+    private volatile boolean shutdown;
+    private volatile long gracefulShutdownQuietPeriod;
+    private volatile long gracefulShutdownDeadline;
+    // Only updated while shutting down, see shutdownGracefully(...).
+    private volatile long lastActivityTime;
+
+    /**
+     * Creates a new instance with {@code nThreads} worker threads created by a {@link DefaultThreadFactory}.
+     */
+    public WorkStealingEventExecutorGroup(int nThreads) {
+        this(nThreads, new DefaultThreadFactory(WorkStealingEventExecutorGroup.class));
+    }
+
+    /**
+     * Creates a new instance with {@code nThreads} worker threads created by the given {@link ThreadFactory}.
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads              the number of worker threads.
+     * @param threadFactory         the {@link ThreadFactory} used to create the worker threads.
+     * @param maxTaskExecutePerRun  the maximal number of tasks an {@link OrderedEventExecutor} returned by
+     *                              {@link #next()} executes before it yields its worker to other tasks.
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory, int maxTaskExecutePerRun) {
+        ObjectUtil.checkPositive(nThreads, "nThreads");
+        ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+        this.maxTaskExecutePerRun = ObjectUtil.checkPositive(maxTaskExecutePerRun, "maxTaskExecutePerRun");
+        workers = new Worker[nThreads];
+        aliveWorkers = new AtomicInteger(nThreads);
+        for (int i = 0; i < nThreads; i ++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker: workers) {
+            worker.thread = threadFactory.newThread(worker);
+        }
+        for (Worker worker: workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} which runs its tasks on the workers of this group.
+     */
+    @Override
+    public EventExecutor next() {
+        return new NonStickyEventExecutorGroup.NonStickyOrderedEventExecutor(executor, maxTaskExecutePerRun);
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return Collections.<EventExecutor>singleton(executor).iterator();
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    public int executorCount() {
+        return workers.length;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        ObjectUtil.checkNotNull(command, "command");
+        if (shutdown) {
+            throw new RejectedExecutionException("event executor terminated");
+        }
+        Worker worker = currentWorker();
+        if (worker == null) {
+            worker = workers[Math.abs(workerIndex.getAndIncrement() % workers.length)];
+        }
+        worker.offer(command);
+        if (shuttingDown) {
+            lastActivityTime = System.nanoTime();
+        }
+
+        if (shutdown && worker.remove(command)) {
+            // The workers may already be gone, so do not leave the task behind.
+            throw new RejectedExecutionException("event executor terminated");
+        }
+        signalWork(worker);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return executor.submit(task, result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return shuttingDown;
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        if (quietPeriod < 0) {
+            throw new IllegalArgumentException("quietPeriod: " + quietPeriod + " (expected >= 0)");
+        }
+        if (timeout < quietPeriod) {
+            throw new IllegalArgumentException(
+                    "timeout: " + timeout + " (expected >= quietPeriod (" + quietPeriod + "))");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+
+        synchronized (this) {
+            if (shuttingDown) {
+                return terminationFuture();
+            }
+            long now = System.nanoTime();
+            gracefulShutdownQuietPeriod = unit.toNanos(quietPeriod);
+            gracefulShutdownDeadline = now + unit.toNanos(timeout);
+            lastActivityTime = now;
+            shuttingDown = true;
+        }
+        if (quietPeriod == 0) {
+            shutdown();
+        } else {
+            // Idle workers park without a timeout, wake them up so they watch the quiet period.
+            for (Worker worker: workers) {
+                LockSupport.unpark(worker.thread);
+            }
+        }
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        shuttingDown = true;
+        shutdown = true;
+        for (Worker worker: workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    /**
+     * Returns the number of nanoseconds an idle worker should wait before it checks again whether the graceful
+     * shutdown is complete, or {@code 0} if the group was shut down.
+     */
+    private long confirmShutdown() {
+        if (shutdown) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long quietPeriodLeft = lastActivityTime + gracefulShutdownQuietPeriod - now;
+        long timeoutLeft = gracefulShutdownDeadline - now;
+        if (quietPeriodLeft <= 0 || timeoutLeft <= 0) {
+            shutdown();
+            return 0;
+        }
+        return Math.min(quietPeriodLeft, timeoutLeft);
+    }
+
+    private Worker currentWorker() {
+        Thread thread = Thread.currentThread();
+        for (Worker worker: workers) {
+            if (worker.thread == thread) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wakes up the worker which got the task or, if it is busy, an idle worker which can steal the task.
+     */
+    private void signalWork(Worker worker) {
+        if (worker.parked) {
+            LockSupport.unpark(worker.thread);
+            return;
+        }
+        Worker[] workers = this.workers;
+        for (int i = 1; i < workers.length; i ++) {
+            Worker idle = workers[(worker.index + i) % workers.length];
+            if (idle.parked) {
+                LockSupport.unpark(idle.thread);
+                return;
+            }
+        }
+    }
+
+    private Runnable steal(Worker thief) {
+        Worker[] workers = this.workers;
+        for (int i = 1; i < workers.length; i ++) {
+            Runnable task = workers[(thief.index + i) % workers.length].poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        // Threading - synchronized(this). Both the owner and thieves take the oldest task first, which keeps the
+        // latency of the tasks queued behind a blocking task low.
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+        private volatile boolean parked;
+        Thread thread;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        synchronized void offer(Runnable task) {
+            tasks.offerLast(task);
+        }
+
+        synchronized Runnable poll() {
+            return tasks.pollFirst();
+        }
+
+        synchronized boolean remove(Runnable task) {
+            return tasks.removeFirstOccurrence(task);
+        }
+
+        private Runnable take() {
+            for (;;) {
+                Runnable task = poll();
+                if (task == null) {
+                    task = steal(this);
+                }
+                if (task != null) {
+                    return task;
+                }
+
+                // Announce that we are about to park before checking for work again, so a concurrent execute(...)
+                // either sees the flag and unparks us or its task is found by the check below.
+                parked = true;
+                try {
+                    task = poll();
+                    if (task == null) {
+                        task = steal(this);
+                    }
+                    if (task != null) {
+                        return task;
+                    }
+                    if (shuttingDown) {
+                        long waitNanos = confirmShutdown();
+                        if (waitNanos == 0) {
+                            return null;
+                        }
+                        LockSupport.parkNanos(this, waitNanos);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                } finally {
+                    parked = false;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    Runnable task = take();
+                    if (task == null) {
+                        break;
+                    }
+                    AbstractEventExecutor.safeExecute(task);
+                    if (shuttingDown) {
+                        long now = System.nanoTime();
+                        lastActivityTime = now;
+                        // A worker that always finds a task never reaches confirmShutdown(), so enforce the timeout
+                        // after every task.
+                        if (!shutdown && now - gracefulShutdownDeadline >= 0) {
+                            shutdown();
+                        }
+                    }
+                }
+            } finally {
+                if (aliveWorkers.decrementAndGet() == 0) {
+                    terminationFuture.setSuccess(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * The unordered {@link EventExecutor} view of a {@link WorkStealingEventExecutorGroup}.
+     */
+    private static final class UnorderedExecutor extends AbstractEventExecutor {
+        private final WorkStealingEventExecutorGroup group;
+
+        UnorderedExecutor(WorkStealingEventExecutorGroup group) {
+            super(group);
+            this.group = group;
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return false;
+        }
+
+        @Override
+        public boolean inEventLoop() {
+            return false;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            group.execute(command);
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @Override
+        @Deprecated
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -15,6 +15,12 @@ void convertSources(String templateDir, String outputDir) {
     keyPrimitives.eachWithIndex { keyPrimitive, i ->
         convertTemplates templateDir, outputDir, keyPrimitive, keyObjects[i], keyNumberMethod[i]
     }
+
+    // Primitive to primitive maps are only generated for the key/value combinations that are actually used.
+    String[][] keyValuePrimitives = [["int", "int"], ["int", "long"], ["long", "long"]]
+    keyValuePrimitives.each { pair ->
+        convertKeyValueTemplates templateDir, outputDir, pair[0], pair[1]
+    }
 }
 
 void convertTemplates(String templateDir,
@@ -29,6 +35,7 @@ void convertTemplates(String templateDir,
     ant.copy(todir: outputDir) {
         fileset(dir: templateDir) {
             include(name: "**/*.template")
+            exclude(name: "**/KV*.template")
         }
         filterset() {
             filter(token: "K", value: keyName)
@@ -39,4 +46,30 @@ void convertTemplates(String templateDir,
         }
         regexpmapper(from: replaceFrom, to: replaceTo)
     }
-}
\ No newline at end of file
+}
+
+void convertKeyValueTemplates(String templateDir,
+                              String outputDir,
+                              String keyPrimitive,
+                              String valuePrimitive) {
+    def keyName = keyPrimitive.capitalize()
+    def valueName = valuePrimitive.capitalize()
+    def replaceFrom = "(^.*)KV([^.]+)\\.template\$"
+    def replaceTo = "\\1" + keyName + valueName + "\\2.java"
+    def hashCodeFn = keyPrimitive.equals("long") ? "(int) (key ^ (key >>> 32))" : "(int) key"
+    def valueHashCodeFn = valuePrimitive.equals("long") ? "(int) (value ^ (value >>> 32))" : "(int) value"
+    ant.copy(todir: outputDir) {
+        fileset(dir: templateDir) {
+            include(name: "**/KV*.template")
+        }
+        filterset() {
+            filter(token: "K", value: keyName)
+            filter(token: "k", value: keyPrimitive)
+            filter(token: "V", value: valueName)
+            filter(token: "v", value: valuePrimitive)
+            filter(token: "HASH_CODE", value: hashCodeFn)
+            filter(token: "VALUE_HASH_CODE", value: valueHashCodeFn)
+        }
+        regexpmapper(from: replaceFrom, to: replaceTo)
+    }
+}
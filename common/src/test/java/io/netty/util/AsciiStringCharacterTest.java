@@ -320,4 +320,51 @@ public class AsciiStringCharacterTest {
         //two "123"s
         assertEquals(AsciiString.hashCode("123"), AsciiString.hashCode("a123".substring(1)));
     }
+
+    @Test
+    public void testEqualsIgnoreCaseAllBytes() {
+        // Compare every pair of bytes at every position of a word, so that the word-at-a-time comparison is checked
+        // against the single byte one.
+        byte[] a = new byte[24];
+        byte[] b = new byte[24];
+        for (int x = 0; x < 256; x++) {
+            for (int y = 0; y < 256; y++) {
+                int index = (x + y) % 16;
+                a[index] = (byte) x;
+                b[index] = (byte) y;
+                boolean expected = x == y || Character.toLowerCase((char) x) == Character.toLowerCase((char) y) &&
+                        x < 128 && y < 128;
+                assertEquals(x + " " + y, expected,
+                        new AsciiString(a, false).contentEqualsIgnoreCase(new AsciiString(b, false)));
+                a[index] = 0;
+                b[index] = 0;
+            }
+        }
+    }
+
+    @Test
+    public void testEqualsIgnoreCaseWithOffset() {
+        AsciiString a = new AsciiString("xxContent-Type-And-Some-More").subSequence(2, 28, false);
+        AsciiString b = new AsciiString("CONTENT-TYPE-AND-SOME-MOREyy").subSequence(0, 26, false);
+        assertTrue(a.contentEqualsIgnoreCase(b));
+        assertTrue(a.contentEqualsIgnoreCase("content-type-and-some-more"));
+        assertFalse(a.contentEqualsIgnoreCase(new AsciiString("CONTENT-TYPE-AND-SOME-MORX")));
+        assertFalse(a.contentEqualsIgnoreCase("content-type-and-some-morx"));
+    }
+
+    @Test
+    public void testIndexOfLongString() {
+        AsciiString string = new AsciiString("--0123456789abcdefghijklmnopqrstuvwxyz-0123456789").subSequence(2, 49, false);
+        assertEquals(0, string.indexOf('0', 0));
+        assertEquals(36, string.indexOf('-', 0));
+        assertEquals(46, string.indexOf('9', 10));
+        assertEquals(-1, string.indexOf('A', 0));
+        assertEquals(-1, string.indexOf('0', 100));
+        assertEquals(10, string.indexOf("abcdefghij"));
+        assertEquals(10, string.indexOf(new AsciiString("abcdefghij")));
+        assertEquals(37, string.indexOf("0123", 1));
+        assertEquals(37, string.indexOf(new AsciiString("0123"), 1));
+        assertEquals(-1, string.indexOf("0123456789a", 1));
+        assertEquals(-1, string.indexOf("xyz-01234567890"));
+    }
 }
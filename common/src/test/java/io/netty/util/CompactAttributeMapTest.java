@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class CompactAttributeMapTest {
+
+    private CompactAttributeMap map;
+
+    @Before
+    public void setup() {
+        map = new CompactAttributeMap();
+    }
+
+    @Test
+    public void testMapExists() {
+        assertNotNull(map);
+    }
+
+    @Test
+    public void testGetSetString() {
+        AttributeKey<String> key = AttributeKey.valueOf("Nothing");
+        Attribute<String> one = map.attr(key);
+
+        assertSame(one, map.attr(key));
+
+        one.setIfAbsent("Whoohoo");
+        assertSame("Whoohoo", one.get());
+
+        one.setIfAbsent("What");
+        assertNotSame("What", one.get());
+
+        one.remove();
+        assertNull(one.get());
+    }
+
+    @Test
+    public void testGetSetInt() {
+        AttributeKey<Integer> key = AttributeKey.valueOf("Nada");
+        Attribute<Integer> one = map.attr(key);
+
+        assertSame(one, map.attr(key));
+
+        one.setIfAbsent(3653);
+        assertEquals(one.get(), Integer.valueOf(3653));
+
+        one.setIfAbsent(1);
+        assertNotSame(1, one.get());
+
+        one.remove();
+        assertNull(one.get());
+    }
+
+    // See https://github.com/netty/netty/issues/2523
+    @Test
+    public void testSetRemove() {
+        AttributeKey<Integer> key = AttributeKey.valueOf("key");
+
+        Attribute<Integer> attr = map.attr(key);
+        attr.set(1);
+        assertSame(1, attr.getAndRemove());
+
+        Attribute<Integer> attr2 = map.attr(key);
+        attr2.set(2);
+        assertSame(2, attr2.get());
+        assertNotSame(attr, attr2);
+    }
+
+    @Test
+    public void testGetAndSetWithNull() {
+        AttributeKey<Integer> key = AttributeKey.valueOf("key");
+
+        Attribute<Integer> attr = map.attr(key);
+        attr.set(1);
+        assertSame(1, attr.getAndSet(null));
+
+        Attribute<Integer> attr2 = map.attr(key);
+        attr2.set(2);
+        assertSame(2, attr2.get());
+        assertSame(attr, attr2);
+    }
+
+    @Test
+    public void testManyKeysStaySorted() {
+        List<AttributeKey<Integer>> keys = new ArrayList<AttributeKey<Integer>>();
+        for (int i = 0; i < 32; i++) {
+            keys.add(AttributeKey.<Integer>valueOf("CompactAttributeMapTest.key" + i));
+        }
+        // Add the attributes in a shuffled order, so they have to be inserted in between.
+        List<AttributeKey<Integer>> shuffled = new ArrayList<AttributeKey<Integer>>(keys);
+        Collections.shuffle(shuffled, new Random(1));
+        for (AttributeKey<Integer> key : shuffled) {
+            assertFalse(map.hasAttr(key));
+            map.attr(key).set(key.id());
+        }
+        for (AttributeKey<Integer> key : keys) {
+            assertTrue(map.hasAttr(key));
+            assertEquals(key.id(), (int) map.attr(key).get());
+        }
+        for (int i = 0; i < keys.size(); i += 2) {
+            map.attr(keys.get(i)).remove();
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i % 2 == 1, map.hasAttr(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void testRemoveOldAttributeDoesNotRemoveNewOne() {
+        AttributeKey<Integer> key = AttributeKey.valueOf("CompactAttributeMapTest.replace");
+        Attribute<Integer> attr = map.attr(key);
+        attr.remove();
+        Attribute<Integer> attr2 = map.attr(key);
+        assertNotSame(attr, attr2);
+        // Removing the old attribute again must not affect the new one.
+        attr.remove();
+        assertTrue(map.hasAttr(key));
+        assertSame(attr2, map.attr(key));
+    }
+
+    @Test
+    public void testConcurrentAttr() throws Exception {
+        final AttributeKey<Integer> key = AttributeKey.valueOf("CompactAttributeMapTest.concurrent");
+        final int threads = 4;
+        final List<Attribute<Integer>> results = Collections.synchronizedList(new ArrayList<Attribute<Integer>>());
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    results.add(map.attr(key));
+                }
+            });
+            t.start();
+            started.add(t);
+        }
+        start.countDown();
+        for (Thread t : started) {
+            t.join();
+        }
+        assertEquals(threads, results.size());
+        for (Attribute<Integer> attr : results) {
+            assertSame(results.get(0), attr);
+        }
+    }
+}
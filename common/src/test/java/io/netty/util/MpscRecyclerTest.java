@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MpscRecyclerTest {
+
+    private static MpscRecycler<HandledObject> newRecycler(int maxCapacity, int returnQueueCapacity) {
+        return new MpscRecycler<HandledObject>(maxCapacity, returnQueueCapacity) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycle() {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024, 1024);
+        HandledObject object = recycler.get();
+        object.recycle();
+        object.recycle();
+    }
+
+    @Test
+    public void testMultipleRecycleAtDifferentThread() throws Exception {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024, 1024);
+        final HandledObject object = recycler.get();
+        final AtomicReference<IllegalStateException> exceptionStore = new AtomicReference<IllegalStateException>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.recycle();
+                try {
+                    object.recycle();
+                } catch (IllegalStateException e) {
+                    exceptionStore.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertSame(object, recycler.get());
+        assertNotSame(null, exceptionStore.get());
+    }
+
+    @Test
+    public void testRecycle() {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024, 1024);
+        HandledObject object = recycler.get();
+        object.recycle();
+        HandledObject object2 = recycler.get();
+        assertSame(object, object2);
+        object2.recycle();
+
+        recycler.flushThreadLocalMetrics();
+        assertEquals(1, recycler.hits());
+        assertEquals(1, recycler.misses());
+        assertEquals(0, recycler.drops());
+    }
+
+    @Test
+    public void testRecycleDisable() {
+        MpscRecycler<HandledObject> recycler = newRecycler(0, 1024);
+        HandledObject object = recycler.get();
+        object.recycle();
+        HandledObject object2 = recycler.get();
+        assertNotSame(object, object2);
+        object2.recycle();
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        MpscRecycler<HandledObject> recycler = newRecycler(300, 1024);
+        HandledObject[] objects = new HandledObject[900];
+        for (int i = 0; i < objects.length; i ++) {
+            objects[i] = recycler.get();
+        }
+        for (HandledObject object : objects) {
+            object.recycle();
+        }
+        assertEquals(300, recycler.threadLocalSize());
+
+        recycler.flushThreadLocalMetrics();
+        assertEquals(900, recycler.misses());
+        assertEquals(600, recycler.drops());
+    }
+
+    @Test
+    public void testReturnQueueDrainedInBatches() throws Exception {
+        final MpscRecycler<HandledObject> recycler = newRecycler(1024, 128);
+        final HandledObject[] objects = new HandledObject[200];
+        for (int i = 0; i < objects.length; i ++) {
+            objects[i] = recycler.get();
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (HandledObject object : objects) {
+                    object.recycle();
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // Only 128 objects fit into the return queue, the rest is dropped.
+        assertEquals(72, recycler.drops());
+        assertEquals(0, recycler.threadLocalSize());
+        HandledObject object = recycler.get();
+        // The first get() moves a batch of the returned objects to the stack.
+        assertEquals(63, recycler.threadLocalSize());
+        assertSame(objects[63], object);
+        object.recycle();
+    }
+
+    static final class HandledObject {
+        Recycler.Handle<HandledObject> handle;
+
+        HandledObject(Recycler.Handle<HandledObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -451,6 +452,82 @@ public class NetUtilTest {
         }
     }
 
+    @Test
+    public void testIpAddressToBytes() {
+        for (Entry<String, String> e : validIpV4Hosts.entrySet()) {
+            assertIpAddressToBytes(e.getValue(), e.getKey());
+        }
+        for (Entry<String, String> e : invalidIpV4Hosts.entrySet()) {
+            assertIpAddressToBytes(e.getValue(), e.getKey());
+        }
+        for (Entry<String, String> e : validIpV6Hosts.entrySet()) {
+            assertIpAddressToBytes(e.getValue(), e.getKey());
+        }
+        for (Entry<String, String> e : invalidIpV6Hosts.entrySet()) {
+            assertIpAddressToBytes(e.getValue(), e.getKey());
+        }
+    }
+
+    private static void assertIpAddressToBytes(String expected, String ip) {
+        int expectedLength = expected == null ? 0 : expected.length() >>> 1;
+        byte[] dst = new byte[18];
+
+        assertEquals(ip, expectedLength, NetUtil.ipAddressToBytes(ip, 0, ip.length(), dst, 1));
+        if (expected != null) {
+            assertEquals(expected, hex(Arrays.copyOfRange(dst, 1, 1 + expectedLength)));
+        }
+
+        // A sub-sequence of an AsciiString is parsed from the backing array.
+        AsciiString ascii = new AsciiString("x" + ip + "y").subSequence(1, ip.length() + 1, false);
+        Arrays.fill(dst, (byte) 0x55);
+        assertEquals(ip, expectedLength, NetUtil.ipAddressToBytes(ascii, 0, ascii.length(), dst, 1));
+        if (expected != null) {
+            assertEquals(expected, hex(Arrays.copyOfRange(dst, 1, 1 + expectedLength)));
+        }
+
+        byte[] bytes = ("x" + ip).getBytes(CharsetUtil.US_ASCII);
+        assertEquals(ip, expectedLength, NetUtil.ipAddressToBytes(bytes, 1, bytes.length, dst, 1));
+    }
+
+    @Test
+    public void testIpV4AddressToLong() {
+        for (Entry<String, String> e : validIpV4Hosts.entrySet()) {
+            String ip = e.getKey();
+            assertEquals(Long.parseLong(e.getValue(), 16), NetUtil.ipV4AddressToLong(ip, 0, ip.length()));
+            assertEquals(Long.parseLong(e.getValue(), 16),
+                         NetUtil.ipV4AddressToLong(new AsciiString(ip), 0, ip.length()));
+        }
+        for (String ip : invalidIpV4Hosts.keySet()) {
+            assertEquals(-1, NetUtil.ipV4AddressToLong(ip, 0, ip.length()));
+        }
+        assertEquals(0xffffffffL, NetUtil.ipV4AddressToLong("255.255.255.255", 0, 15));
+        assertEquals(0x01020304L, NetUtil.ipV4AddressToLong("[1.2.3.4]".getBytes(CharsetUtil.US_ASCII), 1, 8));
+    }
+
+    @Test
+    public void testToAddressStringAppendable() throws UnknownHostException {
+        for (Entry<byte[], String> e : ipv6ToAddressStrings.entrySet()) {
+            byte[] bytes = new byte[17];
+            System.arraycopy(e.getKey(), 0, bytes, 1, 16);
+            assertEquals(e.getValue(), NetUtil.toAddressString(new StringBuilder(), bytes, 1, 16, false).toString());
+        }
+        for (Entry<String, String> e : validIpV4Hosts.entrySet()) {
+            assertEquals(e.getKey(), NetUtil.toAddressString(new StringBuilder(), unhex(e.getValue()), 0, 4, false)
+                                            .toString());
+            assertEquals(e.getKey(), NetUtil.intToIpAddress(new StringBuilder(), (int) Long.parseLong(e.getValue(), 16))
+                                            .toString());
+        }
+        for (Entry<String, String> e : ipv4MappedToIPv6AddressStrings.entrySet()) {
+            byte[] bytes = NetUtil.getByName(e.getKey(), true).getAddress();
+            assertEquals(e.getValue(), NetUtil.toAddressString(new StringBuilder(), bytes, 0, 16, true).toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testToAddressStringAppendableInvalidLength() {
+        NetUtil.toAddressString(new StringBuilder(), new byte[8], 0, 8, false);
+    }
+
     @Test
     public void testIp6AddressToString() throws UnknownHostException {
         for (Entry<byte[], String> testEntry : ipv6ToAddressStrings.entrySet()) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceLeakDetectorTest {
+
+    private ResourceLeakDetector.Level oldLevel;
+    private boolean oldSiteTracking;
+
+    @Before
+    public void setUp() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        oldSiteTracking = ResourceLeakDetector.isSiteTrackingEnabled();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+        ResourceLeakDetector.setSiteTrackingEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+        ResourceLeakDetector.setSiteTrackingEnabled(oldSiteTracking);
+    }
+
+    @Test(timeout = 60000)
+    public void testLeaksAggregatedPerSite() throws Exception {
+        final int leaks = 8;
+        final int[] reported = new int[1];
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>(Object.class, 1, Long.MAX_VALUE) {
+            @Override
+            protected void reportSiteLeak(String resourceType, ResourceLeakSite site) {
+                reported[0] ++;
+            }
+        };
+        for (int i = 0; i < leaks; i ++) {
+            leak(detector);
+        }
+
+        ResourceLeakSite site = null;
+        while (detector.leakCount() < leaks) {
+            System.gc();
+            Thread.sleep(10);
+            // Opening a resource polls the collected leaks.
+            detector.open(new Object()).close();
+        }
+
+        List<ResourceLeakSite> sites = detector.leakSites();
+        for (ResourceLeakSite s: sites) {
+            if (s.location().contains("ResourceLeakDetectorTest.leak(")) {
+                site = s;
+            }
+        }
+        assertNotNull(site);
+        assertEquals(leaks, site.sampledAllocations());
+        assertEquals(leaks, site.leaks());
+        assertTrue(site.location().trim().startsWith(ResourceLeakDetectorTest.class.getName() + ".leak("));
+        // Only the first leak of the site is reported.
+        assertEquals(1, reported[0]);
+    }
+
+    private static void leak(ResourceLeakDetector<Object> detector) {
+        assertNotNull(detector.open(new Object()));
+    }
+}
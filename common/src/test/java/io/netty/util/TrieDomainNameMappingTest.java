@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrieDomainNameMappingTest {
+
+    private static TrieDomainNameMapping<String> newMapping(String... hostnamesAndValues) {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < hostnamesAndValues.length; i += 2) {
+            map.put(hostnamesAndValues[i], hostnamesAndValues[i + 1]);
+        }
+        return new TrieDomainNameMapping<String>(map, "NotFound");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullDefaultValue() {
+        new TrieDomainNameMapping<String>(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValuesAreForbidden() {
+        newMapping("netty.io", null);
+    }
+
+    @Test
+    public void testDefaultValue() {
+        TrieDomainNameMapping<String> mapping = newMapping("*.netty.io", "Netty");
+
+        assertEquals("NotFound", mapping.map("not-existing"));
+        assertEquals("NotFound", mapping.map("io"));
+        assertEquals("NotFound", mapping.map(null));
+        assertEquals("NotFound", new TrieDomainNameMapping<String>("NotFound").map("netty.io"));
+    }
+
+    @Test
+    public void testStrictEquality() {
+        TrieDomainNameMapping<String> mapping = newMapping(
+                "netty.io", "Netty",
+                "downloads.netty.io", "Netty-Downloads");
+
+        assertEquals("Netty", mapping.map("netty.io"));
+        assertEquals("Netty-Downloads", mapping.map("downloads.netty.io"));
+
+        assertEquals("NotFound", mapping.map("x.y.z.netty.io"));
+        assertEquals("NotFound", mapping.map("xnetty.io"));
+    }
+
+    @Test
+    public void testWildcardMatchesAnyPrefix() {
+        TrieDomainNameMapping<String> mapping = newMapping("*.netty.io", "Netty");
+
+        assertEquals("Netty", mapping.map("netty.io"));
+        assertEquals("Netty", mapping.map("downloads.netty.io"));
+        assertEquals("Netty", mapping.map("x.y.z.netty.io"));
+
+        assertEquals("NotFound", mapping.map("netty.io.x"));
+        assertEquals("NotFound", mapping.map("xnetty.io"));
+    }
+
+    @Test
+    public void testMostSpecificMatchWins() {
+        // Unlike DomainNameMapping the order in which the mappings are added does not matter.
+        TrieDomainNameMapping<String> mapping = newMapping(
+                "*.netty.io", "Netty",
+                "*.downloads.netty.io", "Netty-Downloads",
+                "downloads.netty.io", "Netty-Downloads-Exact",
+                "*.io", "IO");
+
+        assertEquals("Netty", mapping.map("netty.io"));
+        assertEquals("Netty", mapping.map("www.netty.io"));
+        assertEquals("Netty-Downloads-Exact", mapping.map("downloads.netty.io"));
+        assertEquals("Netty-Downloads", mapping.map("a.downloads.netty.io"));
+        assertEquals("Netty-Downloads", mapping.map("a.b.downloads.netty.io"));
+        assertEquals("IO", mapping.map("example.io"));
+        assertEquals("IO", mapping.map("a.downloads.example.io"));
+        assertEquals("NotFound", mapping.map("netty.com"));
+    }
+
+    @Test
+    public void testHostnamesAreNormalized() {
+        TrieDomainNameMapping<String> mapping = newMapping("*.NeTtY.iO", "Netty");
+
+        assertEquals("Netty", mapping.map("DOWNLOADS.netty.IO"));
+        assertEquals("Netty", mapping.map("netty.io"));
+        assertTrue(mapping.asMap().containsKey("*.netty.io"));
+    }
+
+    @Test
+    public void testReplace() {
+        TrieDomainNameMapping<String> mapping = newMapping("*.netty.io", "Netty");
+        assertEquals("Netty", mapping.map("downloads.netty.io"));
+
+        mapping.replace(Collections.singletonMap("downloads.netty.io", "Netty-Downloads"));
+        assertEquals("Netty-Downloads", mapping.map("downloads.netty.io"));
+        assertEquals("NotFound", mapping.map("www.netty.io"));
+        assertEquals(Collections.singletonMap("downloads.netty.io", "Netty-Downloads"), mapping.asMap());
+
+        mapping.replace(Collections.<String, String>emptyMap(), "Gone");
+        assertEquals("Gone", mapping.map("downloads.netty.io"));
+    }
+
+    @Test
+    public void testToString() {
+        TrieDomainNameMapping<String> mapping = newMapping("*.netty.io", "Netty");
+
+        assertEquals("TrieDomainNameMapping(default: NotFound, map: {*.netty.io=Netty})", mapping.toString());
+    }
+}
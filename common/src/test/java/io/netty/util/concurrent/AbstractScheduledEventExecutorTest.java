@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractScheduledEventExecutorTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private DefaultEventExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new DefaultEventExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduleOnTimerWheel() throws Exception {
+        final long start = System.nanoTime();
+        ScheduledFuture<Long> future = executor.schedule(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return System.nanoTime() - start;
+            }
+        }, 100, 50, TimeUnit.MILLISECONDS);
+        assertTrue(future.get() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduleOnTimerWheelFromEventLoop() throws Exception {
+        final int tasks = 1000;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < tasks; i ++) {
+                    executor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            latch.countDown();
+                        }
+                    }, i % 200, 20, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+        latch.await();
+    }
+
+    @Test(timeout = 5000)
+    public void testTimerWheelOnlyTicksWhenTasksExpire() throws Exception {
+        final long start = ScheduledFutureTask.nanoTime();
+        ScheduledFuture<?> timeout = executor.schedule(NOOP, 30, 1, TimeUnit.SECONDS);
+
+        // Only one tick is armed, for the expiration of the timeout and not for the next tick of the wheel.
+        long deadline = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return executor.nextScheduledTaskNano();
+            }
+        }).get();
+        assertTrue(deadline >= TimeUnit.SECONDS.toNanos(29));
+
+        // A task that expires earlier arms an earlier tick.
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(ScheduledFutureTask.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(timeout.cancel(false));
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduleWithTolerance() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        AbstractScheduledEventExecutor.scheduleWithTolerance(executor, task, 10, 50, TimeUnit.MILLISECONDS);
+        // Falls back to the precise schedule(...) if the tolerance is smaller than a tick.
+        AbstractScheduledEventExecutor.scheduleWithTolerance(executor, task, 10, 0, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void testCancelOnTimerWheel() throws Exception {
+        final AtomicInteger ran = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+        ScheduledFuture<?> cancelled = executor.schedule(task, 50, 20, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> notCancelled = executor.schedule(task, 100, 20, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        notCancelled.sync();
+        assertEquals(1, ran.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testShutdownCancelsTimerWheelTasks() throws Exception {
+        ScheduledFuture<?> future = executor.schedule(NOOP, 1, 1, TimeUnit.HOURS);
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        assertTrue(future.isCancelled());
+    }
+
+    @Test(timeout = 5000)
+    public void testSmallToleranceUsesQueue() throws Exception {
+        ScheduledFuture<?> future = executor.schedule(NOOP, 10, 0, TimeUnit.MILLISECONDS);
+        future.sync();
+        assertFalse(future.isCancelled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTolerance() {
+        executor.schedule(NOOP, 10, -1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -21,7 +21,9 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
@@ -188,6 +190,89 @@ public class DefaultPromiseTest {
         testListenerNotifyLater(2);
     }
 
+    @Test
+    public void testInlineListenersNotifyOrderAndRemoval() {
+        // 1 - 3 listeners are stored inline, more spill over into DefaultFutureListeners.
+        for (int count = 1; count <= 5; count ++) {
+            for (int removed = -1; removed < count; removed ++) {
+                final StringBuilder notified = new StringBuilder();
+                DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+                List<FutureListener<Void>> listeners = new ArrayList<FutureListener<Void>>();
+                StringBuilder expected = new StringBuilder();
+                for (int i = 0; i < count; i ++) {
+                    final int id = i;
+                    FutureListener<Void> listener = new FutureListener<Void>() {
+                        @Override
+                        public void operationComplete(Future<Void> future) {
+                            notified.append(id);
+                        }
+                    };
+                    listeners.add(listener);
+                    promise.addListener(listener);
+                    if (i != removed) {
+                        expected.append(i);
+                    }
+                }
+                if (removed >= 0) {
+                    promise.removeListener(listeners.get(removed));
+                }
+                promise.setSuccess(null);
+                assertEquals(expected.toString(), notified.toString());
+
+                // Listeners are only notified once.
+                promise.addListener(listeners.get(0));
+                assertEquals(expected.append(0).toString(), notified.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testInlineProgressiveListeners() {
+        final AtomicInteger progressed = new AtomicInteger();
+        GenericProgressiveFutureListener<ProgressiveFuture<Void>> listener =
+                new GenericProgressiveFutureListener<ProgressiveFuture<Void>>() {
+            @Override
+            public void operationProgressed(ProgressiveFuture<Void> future, long progress, long total) {
+                progressed.incrementAndGet();
+            }
+
+            @Override
+            public void operationComplete(ProgressiveFuture<Void> future) {
+            }
+        };
+        DefaultProgressivePromise<Void> promise = new DefaultProgressivePromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.addListener(listener);
+        promise.addListener(new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+            }
+        });
+        promise.addListener(listener);
+        promise.setProgress(1, 2);
+        assertEquals(2, progressed.get());
+    }
+
+    @Test
+    public void testListenersNotifiedWhenCompletedOutsideEventLoop() throws Exception {
+        EventExecutor executor = new TestEventExecutor();
+        try {
+            final CountDownLatch latch = new CountDownLatch(3);
+            DefaultPromise<Void> promise = new DefaultPromise<Void>(executor);
+            for (int i = 0; i < 3; i ++) {
+                promise.addListener(new FutureListener<Void>() {
+                    @Override
+                    public void operationComplete(Future<Void> future) {
+                        latch.countDown();
+                    }
+                });
+            }
+            promise.setSuccess(null);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
     @Test(timeout = 2000)
     public void testPromiseListenerAddWhenCompleteFailure() throws Exception {
         testPromiseListenerAddWhenComplete(fakeException());
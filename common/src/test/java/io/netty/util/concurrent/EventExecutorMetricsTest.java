@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EventExecutorMetricsTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, EventExecutorMetrics.bucket(0));
+        assertEquals(1, EventExecutorMetrics.bucket(1));
+        assertEquals(2, EventExecutorMetrics.bucket(2));
+        assertEquals(2, EventExecutorMetrics.bucket(3));
+        assertEquals(11, EventExecutorMetrics.bucket(1024));
+        assertEquals(EventExecutorMetrics.HISTOGRAM_BUCKETS - 1, EventExecutorMetrics.bucket(Long.MAX_VALUE));
+        for (int i = 0; i < EventExecutorMetrics.HISTOGRAM_BUCKETS - 1; i ++) {
+            long upperBound = EventExecutorMetrics.bucketUpperBoundNanos(i);
+            assertEquals(i, EventExecutorMetrics.bucket(upperBound - 1));
+            assertEquals(i + 1, EventExecutorMetrics.bucket(upperBound));
+        }
+        assertEquals(Long.MAX_VALUE,
+                     EventExecutorMetrics.bucketUpperBoundNanos(EventExecutorMetrics.HISTOGRAM_BUCKETS - 1));
+    }
+
+    @Test
+    public void testRecord() {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        metrics.recordTask(100);
+        metrics.recordTask(3000);
+        metrics.recordSelect(50);
+        metrics.recordIoProcessing(70);
+        metrics.recordWakeup();
+
+        assertEquals(2, metrics.tasks());
+        assertEquals(3100, metrics.taskTimeNanos());
+        long[] histogram = metrics.taskTimeHistogram();
+        assertEquals(1, histogram[EventExecutorMetrics.bucket(100)]);
+        assertEquals(1, histogram[EventExecutorMetrics.bucket(3000)]);
+        assertEquals(1, metrics.selects());
+        assertEquals(50, metrics.selectTimeNanos());
+        assertEquals(1, metrics.ioProcessings());
+        assertEquals(70, metrics.ioTimeNanos());
+        assertEquals(1, metrics.wakeups());
+    }
+
+    @Test
+    public void testQueueDelaySampling() {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        for (int i = 1; i < EventExecutorMetrics.QUEUE_DELAY_SAMPLE_INTERVAL; i ++) {
+            assertSame(task, metrics.sampleQueueDelay(task));
+        }
+        Runnable sample = metrics.sampleQueueDelay(task);
+        assertNotSame(task, sample);
+        sample.run();
+        assertEquals(1, metrics.queueDelaySamples());
+    }
+}
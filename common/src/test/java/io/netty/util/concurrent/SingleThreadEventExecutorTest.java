@@ -18,12 +18,17 @@ package io.netty.util.concurrent;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class SingleThreadEventExecutorTest {
@@ -56,6 +61,95 @@ public class SingleThreadEventExecutorTest {
         executor.shutdownGracefully();
     }
 
+    @Test(timeout = 3000)
+    public void testExecuteAll() throws Exception {
+        final AtomicInteger wakeups = new AtomicInteger();
+        final SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, new DefaultThreadFactory("test"), false) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    Runnable task = takeTask();
+                    if (task != null) {
+                        task.run();
+                    }
+                }
+            }
+
+            @Override
+            protected void wakeup(boolean inEventLoop) {
+                wakeups.incrementAndGet();
+                super.wakeup(inEventLoop);
+            }
+        };
+        try {
+            final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch latch = new CountDownLatch(100);
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for (int i = 0; i < 100; i ++) {
+                final int id = i;
+                tasks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        executed.add(id);
+                        latch.countDown();
+                    }
+                });
+            }
+            executor.executeAll(tasks);
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+            Assert.assertEquals(1, wakeups.get());
+            for (int i = 0; i < 100; i ++) {
+                Assert.assertEquals(i, (int) executed.get(i));
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testExecuteAllContinuesAfterException() throws Exception {
+        SingleThreadEventExecutor executor = new DefaultEventExecutor();
+        try {
+            final CountDownLatch latch = new CountDownLatch(2);
+            Runnable countDown = new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            };
+            executor.executeAll(Arrays.asList(countDown, new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException();
+                }
+            }, countDown));
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testExecuteAllAfterShutdown() {
+        SingleThreadEventExecutor executor = new DefaultEventExecutor();
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        final AtomicInteger executed = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+            }
+        };
+        try {
+            executor.executeAll(Arrays.asList(task, task));
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        Assert.assertEquals(0, executed.get());
+    }
+
     @Test(expected = RejectedExecutionException.class, timeout = 3000)
     public void testInvokeAnyInEventLoop() {
         testInvokeInEventLoop(true, false);
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WorkStealingEventExecutorGroupTest {
+
+    @Test(timeout = 10000)
+    public void testIdleWorkerStealsFromBlockedWorker() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        try {
+            final CountDownLatch blockedLatch = new CountDownLatch(1);
+            group.execute(new Runnable() {
+                @Override
+                public void run() {
+                    blockedLatch.countDown();
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            assertTrue(blockedLatch.await(5, TimeUnit.SECONDS));
+
+            // Half of the tasks are queued on the blocked worker and must be stolen by the other one.
+            int tasks = 100;
+            final CountDownLatch latch = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i ++) {
+                group.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            blockLatch.countDown();
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderedExecutor() throws Throwable {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(4, new DefaultThreadFactory(
+                WorkStealingEventExecutorGroupTest.class), 16);
+        try {
+            EventExecutor executor = group.next();
+            assertTrue(executor instanceof OrderedEventExecutor);
+            assertFalse(executor.inEventLoop());
+
+            final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+            final AtomicInteger last = new AtomicInteger();
+            int tasks = 10000;
+            final CountDownLatch latch = new CountDownLatch(tasks);
+            for (int i = 1; i <= tasks; i ++) {
+                final int id = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int lastId = last.get();
+                        if (lastId != id - 1) {
+                            cause.compareAndSet(null, new AssertionError(
+                                    "Out of order execution id(" + id + ") lastId(" + lastId + ')'));
+                        }
+                        if (!last.compareAndSet(lastId, id)) {
+                            cause.compareAndSet(null, new AssertionError("Concurrent execution of tasks"));
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNull(cause.get());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSubmit() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            Future<Integer> future = group.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return 42;
+                }
+            });
+            assertEquals(42, (int) future.get());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 1000; i ++) {
+            group.execute(new Runnable() {
+                @Override
+                public void run() {
+                    executed.incrementAndGet();
+                }
+            });
+        }
+        group.shutdownGracefully().syncUninterruptibly();
+        assertTrue(group.isTerminated());
+        assertEquals(1000, executed.get());
+
+        try {
+            group.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        } catch (RejectedExecutionException expected) {
+            return;
+        }
+        throw new AssertionError("task was not rejected");
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownGracefullyWaitsForQuietPeriod() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        Future<?> termination = group.shutdownGracefully(500, 5000, TimeUnit.MILLISECONDS);
+        assertTrue(group.isShuttingDown());
+        assertFalse(group.isShutdown());
+
+        // Tasks submitted during the quiet period are still accepted and run.
+        final CountDownLatch latch = new CountDownLatch(1);
+        group.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(termination.await(200, TimeUnit.MILLISECONDS));
+
+        termination.sync();
+        assertTrue(group.isShutdown());
+        assertTrue(group.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownGracefullyTimeout() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        long start = System.nanoTime();
+        Future<?> termination = group.shutdownGracefully(300, 1000, TimeUnit.MILLISECONDS);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        // Tasks keep arriving during every quiet period, so only the timeout ends the shutdown.
+        while (!termination.await(50, TimeUnit.MILLISECONDS)) {
+            try {
+                group.execute(task);
+            } catch (RejectedExecutionException ignored) {
+                // shut down already
+            }
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownGracefullyTimeoutWhileAllWorkersBusy() throws Exception {
+        final WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        // More tasks than workers which resubmit themselves, so no worker ever finds its queue empty.
+        for (int i = 0; i < 4; i++) {
+            group.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+                    while (System.nanoTime() - deadline < 0) {
+                        // busy
+                    }
+                    try {
+                        group.execute(this);
+                    } catch (RejectedExecutionException ignored) {
+                        // shut down already
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        Future<?> termination = group.shutdownGracefully(100, 500, TimeUnit.MILLISECONDS);
+        assertTrue(termination.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(group.isTerminated());
+    }
+}
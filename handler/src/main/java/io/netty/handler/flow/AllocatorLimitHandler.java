@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.flow;
+
+import io.netty.buffer.LimitedByteBufAllocator;
+import io.netty.buffer.LimitedByteBufAllocatorListener;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Makes all channels it is added to allocate from a {@link LimitedByteBufAllocator}, and turns off their
+ * {@linkplain ChannelConfig#setAutoRead(boolean) auto-read} while the soft limit of the allocator is exceeded, so the
+ * channels of a listener that uses too much memory stop reading before allocations start to fail.
+ *
+ * <pre>
+ * {@link LimitedByteBufAllocator} allocator =
+ *         new {@link LimitedByteBufAllocator}(PooledByteBufAllocator.DEFAULT, 256 * 1024 * 1024, 192 * 1024 * 1024);
+ * final {@link AllocatorLimitHandler} limitHandler = new {@link AllocatorLimitHandler}(allocator);
+ *
+ * serverBootstrap.childHandler(new ChannelInitializer&lt;SocketChannel&gt;() {
+ *     public void initChannel(SocketChannel ch) {
+ *         ch.pipeline().addLast(limitHandler);
+ *         ...
+ *     }
+ * });
+ * </pre>
+ *
+ * Auto-read is only turned back on for the channels this handler turned it off for.
+ */
+@Sharable
+public class AllocatorLimitHandler extends ChannelInboundHandlerAdapter implements LimitedByteBufAllocatorListener {
+
+    private final LimitedByteBufAllocator allocator;
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final ChannelGroup pausedChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private volatile boolean paused;
+
+    public AllocatorLimitHandler(LimitedByteBufAllocator allocator) {
+        if (allocator == null) {
+            throw new NullPointerException("allocator");
+        }
+        this.allocator = allocator;
+        allocator.addListener(this);
+    }
+
+    /**
+     * Return the {@link LimitedByteBufAllocator} used by the channels of this handler.
+     */
+    public LimitedByteBufAllocator allocator() {
+        return allocator;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        channel.config().setAllocator(allocator);
+        channels.add(channel);
+        updateAutoRead(channel);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        channels.remove(channel);
+        if (pausedChannels.remove(channel)) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void softLimitExceeded(LimitedByteBufAllocator allocator) {
+        paused = true;
+        for (Channel channel: channels) {
+            scheduleUpdateAutoRead(channel);
+        }
+    }
+
+    @Override
+    public void softLimitRecovered(LimitedByteBufAllocator allocator) {
+        paused = false;
+        for (Channel channel: pausedChannels) {
+            scheduleUpdateAutoRead(channel);
+        }
+    }
+
+    /**
+     * Update auto-read of {@code channel} from its event loop. The listener methods are invoked by the thread that
+     * crossed the soft limit, which is usually the event loop of another channel.
+     */
+    private void scheduleUpdateAutoRead(final Channel channel) {
+        EventLoop eventLoop = channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            updateAutoRead(channel);
+        } else {
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    updateAutoRead(channel);
+                }
+            });
+        }
+    }
+
+    /**
+     * Make auto-read of {@code channel} follow the current state of the soft limit. Only called from the event loop
+     * of the channel, so the updates of a channel are applied in the order the soft limit changed.
+     */
+    private void updateAutoRead(Channel channel) {
+        ChannelConfig config = channel.config();
+        if (paused) {
+            if (channels.contains(channel) && config.isAutoRead()) {
+                config.setAutoRead(false);
+                pausedChannels.add(channel);
+            }
+        } else if (pausedChannels.remove(channel)) {
+            config.setAutoRead(true);
+        }
+    }
+}
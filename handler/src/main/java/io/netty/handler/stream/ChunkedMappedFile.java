@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.MappedFile;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link ChunkedInput} that fetches data from a file chunk by chunk using read-only views of a memory-mapped
+ * {@link MappedFile}. Unlike {@link ChunkedNioFile} the content of the file is not copied into a buffer, which makes
+ * it a good fit when the data has to pass through handlers like {@code SslHandler} anyway. Once all chunks of a region
+ * were read, the region is {@linkplain MappedFile#discardRegionsBefore(long) discarded} and so unmapped as soon as
+ * they were written and released.
+ */
+public class ChunkedMappedFile implements ChunkedInput<ByteBuf> {
+
+    private final FileChannel in;
+    private final MappedFile file;
+    private final int chunkSize;
+    private long offset;
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     */
+    public ChunkedMappedFile(File in) throws IOException {
+        this(new FileInputStream(in).getChannel());
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     *
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(File in, int chunkSize) throws IOException {
+        this(new FileInputStream(in).getChannel(), chunkSize);
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     */
+    public ChunkedMappedFile(FileChannel in) throws IOException {
+        this(in, ChunkedStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     *
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(FileChannel in, int chunkSize) throws IOException {
+        this(in, 0, in.size(), chunkSize);
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     *
+     * @param offset the offset of the file where the transfer begins
+     * @param length the number of bytes to transfer
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(FileChannel in, long offset, long length, int chunkSize) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(
+                    "chunkSize: " + chunkSize +
+                    " (expected: a positive integer)");
+        }
+
+        file = Unpooled.wrappedMappedFile(in, offset, length);
+        this.in = in;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the offset in the mapped part of the file where the transfer is happening currently.
+     */
+    public long currentOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception {
+        return !(offset < file.length() && in.isOpen());
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            file.release();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        long offset = this.offset;
+        long length = file.length();
+        if (offset >= length) {
+            return null;
+        }
+
+        // Do not let a chunk span two regions, as it would need to be mapped on its own.
+        int regionSize = file.regionSize();
+        long regionEnd = (offset / regionSize + 1) * regionSize;
+        int chunkSize = (int) Math.min(this.chunkSize, Math.min(length, regionEnd) - offset);
+        ByteBuf chunk = file.slice(offset, chunkSize);
+        this.offset += chunkSize;
+        if (this.offset == regionEnd) {
+            // Only the chunks still hold a reference to the region we moved past.
+            file.discardRegionsBefore(regionEnd);
+        }
+        return chunk;
+    }
+
+    @Override
+    public long length() {
+        return file.length();
+    }
+
+    @Override
+    public long progress() {
+        return offset;
+    }
+}
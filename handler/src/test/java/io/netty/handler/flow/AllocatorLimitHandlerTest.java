@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.flow;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.LimitedByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AllocatorLimitHandlerTest {
+
+    @Test
+    public void testAutoReadFollowsSoftLimit() {
+        LimitedByteBufAllocator allocator = new LimitedByteBufAllocator(UnpooledByteBufAllocator.DEFAULT, 4096, 1024);
+        AllocatorLimitHandler handler = new AllocatorLimitHandler(allocator);
+        EmbeddedChannel ch1 = new EmbeddedChannel(DefaultChannelId.newInstance(), handler);
+        EmbeddedChannel ch2 = new EmbeddedChannel(DefaultChannelId.newInstance(), handler);
+        ch2.config().setAutoRead(false);
+        assertSame(allocator, ch1.config().getAllocator());
+
+        ByteBuf buf = ch1.alloc().buffer(2048);
+        assertFalse(ch1.config().isAutoRead());
+        assertFalse(ch2.config().isAutoRead());
+
+        // Channels added while the soft limit is exceeded do not read either.
+        EmbeddedChannel ch3 = new EmbeddedChannel(DefaultChannelId.newInstance(), handler);
+        assertFalse(ch3.config().isAutoRead());
+
+        assertTrue(buf.release());
+        assertTrue(ch1.config().isAutoRead());
+        assertTrue(ch3.config().isAutoRead());
+        // Auto-read was turned off by the user, so it stays off.
+        assertFalse(ch2.config().isAutoRead());
+
+        assertFalse(ch1.finish());
+        assertFalse(ch2.finish());
+        assertFalse(ch3.finish());
+    }
+}
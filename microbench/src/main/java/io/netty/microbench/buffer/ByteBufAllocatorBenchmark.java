@@ -18,6 +18,7 @@ package io.netty.microbench.buffer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorBuilder;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -36,6 +37,10 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
     private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true);
     private static final ByteBufAllocator pooledAllocator =
             new PooledByteBufAllocator(true, 4, 4, 8192, 11, 0, 0, 0); // Disable thread-local cache
+    private static final ByteBufAllocator fineSizeClassesPooledAllocator =
+            new PooledByteBufAllocatorBuilder().preferDirect(true)
+                    .numHeapArenas(4).numDirectArenas(4).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                    .fineSizeClasses(true).build(); // Disable thread-local cache
 
     private static final int MAX_LIVE_BUFFERS = 8192;
     private static final Random rand = new Random();
@@ -43,10 +48,12 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
     private static final ByteBuf[] unpooledDirectBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
     private static final ByteBuf[] pooledHeapBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
     private static final ByteBuf[] pooledDirectBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
+    private static final ByteBuf[] fineSizeClassesPooledHeapBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
+    private static final ByteBuf[] fineSizeClassesPooledDirectBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
     private static final ByteBuf[] defaultPooledHeapBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
     private static final ByteBuf[] defaultPooledDirectBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
 
-    @Param({ "00000", "00256", "01024", "04096", "16384", "65536" })
+    @Param({ "00000", "00256", "01024", "04096", "09216", "16384", "40960", "65536" })
     public int size;
 
     @Benchmark
@@ -89,6 +96,26 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
         pooledDirectBuffers[idx] = pooledAllocator.directBuffer(size);
     }
 
+    @Benchmark
+    public void fineSizeClassesPooledHeapAllocAndFree() {
+        int idx = rand.nextInt(fineSizeClassesPooledHeapBuffers.length);
+        ByteBuf oldBuf = fineSizeClassesPooledHeapBuffers[idx];
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+        fineSizeClassesPooledHeapBuffers[idx] = fineSizeClassesPooledAllocator.heapBuffer(size);
+    }
+
+    @Benchmark
+    public void fineSizeClassesPooledDirectAllocAndFree() {
+        int idx = rand.nextInt(fineSizeClassesPooledDirectBuffers.length);
+        ByteBuf oldBuf = fineSizeClassesPooledDirectBuffers[idx];
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+        fineSizeClassesPooledDirectBuffers[idx] = fineSizeClassesPooledAllocator.directBuffer(size);
+    }
+
     @Benchmark
     public void defaultPooledHeapAllocAndFree() {
         int idx = rand.nextInt(defaultPooledHeapBuffers.length);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Random access, iteration and {@link CompositeByteBuf#nioBuffers()} over composites with many components, like
+ * the ones built when reassembling frames.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmark {
+
+    private static final ByteProcessor NO_ZERO = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            return value != 0;
+        }
+    };
+
+    @Param({ "8", "256", "1024" })
+    public int numComponents;
+
+    @Param({ "64", "1024" })
+    public int componentSize;
+
+    private CompositeByteBuf composite;
+    private ByteBuf[] components;
+    private int[] indexes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        components = new ByteBuf[numComponents];
+        for (int i = 0; i < numComponents; i++) {
+            ByteBuf component = Unpooled.buffer(componentSize);
+            for (int j = 0; j < componentSize; j++) {
+                component.writeByte(1);
+            }
+            components[i] = component;
+        }
+        composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf component : components) {
+            composite.addComponent(true, component.retain());
+        }
+        indexes = new int[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = random.nextInt(composite.capacity() - 8);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        composite.release();
+        for (ByteBuf component : components) {
+            component.release();
+        }
+    }
+
+    @Benchmark
+    public byte getByteRandom() {
+        return composite.getByte(nextIndex());
+    }
+
+    @Benchmark
+    public long getLongRandom() {
+        return composite.getLong(nextIndex());
+    }
+
+    @Benchmark
+    public long getByteSequential() {
+        long sum = 0;
+        for (int i = 0, capacity = composite.capacity(); i < capacity; i++) {
+            sum += composite.getByte(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int forEachByte() {
+        return composite.forEachByte(NO_ZERO);
+    }
+
+    @Benchmark
+    public ByteBuffer[] nioBuffers() {
+        return composite.nioBuffers();
+    }
+
+    @Benchmark
+    public int addComponents() {
+        CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf component : components) {
+            component.retain();
+        }
+        buf.addComponents(true, components);
+        int capacity = buf.capacity();
+        buf.release();
+        return capacity;
+    }
+
+    private int nextIndex() {
+        int i = index;
+        index = i + 1 & indexes.length - 1;
+        return indexes[i];
+    }
+}
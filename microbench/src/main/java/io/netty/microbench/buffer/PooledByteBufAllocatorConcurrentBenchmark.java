@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorBuilder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks normal allocations of many threads sharing a single arena, with a different number of
+ * chunk list stripes. Thread-local caches are disabled so every allocation and free goes to the arena.
+ */
+@State(Scope.Benchmark)
+public class PooledByteBufAllocatorConcurrentBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MAX_LIVE_BUFFERS = 256;
+
+    @Param({ "1", "4", "16" })
+    public int stripes;
+
+    @Param({ "16384", "65536" })
+    public int size;
+
+    private PooledByteBufAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        allocator = new PooledByteBufAllocatorBuilder().preferDirect(true)
+                .numHeapArenas(1).numDirectArenas(1).pageSize(8192).maxOrder(11).cacheSizes(0, 0, 0)
+                .numChunkListStripes(stripes).build();
+    }
+
+    @State(Scope.Thread)
+    public static class LiveBuffers {
+        final ByteBuf[] buffers = new ByteBuf[MAX_LIVE_BUFFERS];
+        final Random rand = new Random();
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] != null) {
+                    buffers[i].release();
+                    buffers[i] = null;
+                }
+            }
+        }
+    }
+
+    private void allocAndFree(LiveBuffers live) {
+        int idx = live.rand.nextInt(MAX_LIVE_BUFFERS);
+        ByteBuf oldBuf = live.buffers[idx];
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+        live.buffers[idx] = allocator.directBuffer(size);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void allocAndFree1Thread(LiveBuffers live) {
+        allocAndFree(live);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void allocAndFree4Threads(LiveBuffers live) {
+        allocAndFree(live);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void allocAndFree16Threads(LiveBuffers live) {
+        allocAndFree(live);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void allocAndFree64Threads(LiveBuffers live) {
+        allocAndFree(live);
+    }
+}
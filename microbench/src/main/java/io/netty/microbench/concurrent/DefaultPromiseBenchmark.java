@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the per-write overhead of {@link DefaultPromise}: creating the promise, adding listeners and
+ * notifying them once the promise is completed. Run it with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class DefaultPromiseBenchmark extends AbstractMicrobenchmark {
+
+    private static final Object MSG = new Object();
+
+    @Param({ "0", "1", "2", "3", "4" })
+    public int listeners;
+
+    private FutureListener<Void> futureListener;
+    private ChannelFutureListener channelFutureListener;
+    private EmbeddedChannel channel;
+    private long completed;
+
+    @Setup
+    public void setup() {
+        futureListener = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                completed ++;
+            }
+        };
+        channelFutureListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                completed ++;
+            }
+        };
+        channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                // Consume the message so only the cost of the pipeline and the promise is measured.
+                promise.setSuccess();
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public long promise() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        for (int i = 0; i < listeners; i ++) {
+            promise.addListener(futureListener);
+        }
+        promise.setSuccess(null);
+        return completed;
+    }
+
+    @Benchmark
+    public long writeAndFlush() {
+        ChannelPromise promise = channel.newPromise();
+        for (int i = 0; i < listeners; i ++) {
+            promise.addListener(channelFutureListener);
+        }
+        channel.writeAndFlush(MSG, promise);
+        return completed;
+    }
+
+    @Benchmark
+    public ChannelFuture writeAndFlushVoidPromise() {
+        return channel.writeAndFlush(MSG, channel.voidPromise());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.internal;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.MpscRecycler;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+
+/**
+ * This class benchmarks {@link MpscRecycler} against {@link Recycler}, both with objects that are recycled by the
+ * thread that obtained them and with objects that are recycled by another thread.
+ */
+@State(Scope.Group)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class RecyclerBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "recycler", "mpsc" })
+    public String type;
+
+    private final Recycler<PooledObject> recycler = new Recycler<PooledObject>() {
+        @Override
+        protected PooledObject newObject(Recycler.Handle<PooledObject> handle) {
+            return new PooledObject(handle);
+        }
+    };
+
+    private final MpscRecycler<PooledObject> mpscRecycler = new MpscRecycler<PooledObject>() {
+        @Override
+        protected PooledObject newObject(Recycler.Handle<PooledObject> handle) {
+            return new PooledObject(handle);
+        }
+    };
+
+    private final Queue<PooledObject> handoff = PlatformDependent.newFixedMpscQueue(1024);
+
+    private PooledObject get() {
+        return "mpsc".equals(type) ? mpscRecycler.get() : recycler.get();
+    }
+
+    @Benchmark
+    @Group("sameThread")
+    public PooledObject recycleSameThread() {
+        PooledObject object = get();
+        object.recycle();
+        return object;
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public PooledObject produce() {
+        PooledObject object = get();
+        if (!handoff.offer(object)) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public PooledObject consume() {
+        PooledObject object = handoff.poll();
+        if (object != null) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    static final class PooledObject {
+        private final Recycler.Handle<PooledObject> handle;
+
+        PooledObject(Recycler.Handle<PooledObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
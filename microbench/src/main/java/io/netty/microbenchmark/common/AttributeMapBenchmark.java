@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.AttributeKey;
+import io.netty.util.AttributeMap;
+import io.netty.util.CompactAttributeMap;
+import io.netty.util.DefaultAttributeMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+/**
+ * Compares the footprint of {@link DefaultAttributeMap} and {@link CompactAttributeMap}.
+ * <p>
+ * {@link #newMap()} creates a map and populates it with {@link #attributes} attributes, so the
+ * {@code gc.alloc.rate.norm} reported by the {@link GCProfiler} is the number of bytes a map with that many
+ * attributes retains. {@link #lookup()} measures reads from an already populated map.
+ */
+public class AttributeMapBenchmark extends AbstractMicrobenchmark {
+
+    private static final AttributeKey<?>[] KEYS = new AttributeKey<?>[16];
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = AttributeKey.valueOf(AttributeMapBenchmark.class, "key" + i);
+        }
+    }
+
+    public enum MapType {
+        DEFAULT,
+        COMPACT
+    }
+
+    @Param({ "0", "1", "4", "16" })
+    public int attributes;
+
+    @Param
+    public MapType mapType;
+
+    private AttributeMap map;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = newMap();
+    }
+
+    @Override
+    protected ChainedOptionsBuilder newOptionsBuilder() throws Exception {
+        return super.newOptionsBuilder().addProfiler(GCProfiler.class);
+    }
+
+    @Benchmark
+    public AttributeMap newMap() {
+        AttributeMap map = mapType == MapType.COMPACT ? new CompactAttributeMap() : new DefaultAttributeMap();
+        for (int i = 0; i < attributes; i++) {
+            map.attr(KEYS[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public boolean lookup() {
+        AttributeMap map = this.map;
+        boolean found = true;
+        for (int i = 0; i < attributes; i++) {
+            found &= map.hasAttr(KEYS[i]);
+        }
+        return found;
+    }
+}
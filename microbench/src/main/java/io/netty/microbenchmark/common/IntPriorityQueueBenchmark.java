@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.IntPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Compares the primitive {@link IntPriorityQueue} with a {@link PriorityQueue} of boxed {@link Integer}s.
+ */
+public class IntPriorityQueueBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int size;
+
+    private int[] values;
+    private final IntPriorityQueue primitiveQueue = new IntPriorityQueue();
+    private final PriorityQueue<Integer> jdkQueue = new PriorityQueue<Integer>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random();
+        values = new int[size];
+        for (int i = 0; i < size; i++) {
+            // Stream ids are mostly increasing, but not strictly.
+            values[i] = i * 2 + 1 + r.nextInt(8);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void offerPollJdk(Blackhole bh) {
+        PriorityQueue<Integer> queue = jdkQueue;
+        for (int value : values) {
+            queue.offer(value);
+        }
+        while (!queue.isEmpty()) {
+            bh.consume(queue.poll());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void offerPollNetty(Blackhole bh) {
+        IntPriorityQueue queue = primitiveQueue;
+        for (int value : values) {
+            queue.offer(value);
+        }
+        while (!queue.isEmpty()) {
+            bh.consume(queue.poll());
+        }
+    }
+}
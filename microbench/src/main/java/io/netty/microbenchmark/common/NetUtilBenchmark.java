@@ -16,13 +16,18 @@
 package io.netty.microbenchmark.common;
 
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.AsciiString;
 import io.netty.util.NetUtil;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
@@ -67,6 +72,93 @@ public class NetUtilBenchmark extends AbstractMicrobenchmark {
         }
     }
 
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final byte[] bytes = new byte[16];
+        final StringBuilder builder = new StringBuilder(39);
+    }
+
+    @Benchmark
+    public int useCreateByteArrayFromIpAddressString() {
+        int length = 0;
+        for (String ip : validIpAddresses) {
+            length += NetUtil.createByteArrayFromIpAddressString(ip).length;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int useIpAddressToBytes(ThreadState state) {
+        int length = 0;
+        for (String ip : validIpAddresses) {
+            length += NetUtil.ipAddressToBytes(ip, 0, ip.length(), state.bytes, 0);
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int useIpAddressToBytesAscii(ThreadState state) {
+        int length = 0;
+        for (AsciiString ip : validAsciiIpAddresses) {
+            length += NetUtil.ipAddressToBytes(ip, 0, ip.length(), state.bytes, 0);
+        }
+        return length;
+    }
+
+    @Benchmark
+    public long useIpV4AddressToLong() {
+        long sum = 0;
+        for (AsciiString ip : validAsciiIpAddresses) {
+            sum += NetUtil.ipV4AddressToLong(ip, 0, ip.length());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int useToAddressString() {
+        int length = 0;
+        for (InetAddress address : validInetAddresses) {
+            length += NetUtil.toAddressString(address).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int useToAddressStringAppendable(ThreadState state) {
+        StringBuilder builder = state.builder;
+        int length = 0;
+        for (byte[] bytes : validAddressBytes) {
+            builder.setLength(0);
+            length += NetUtil.toAddressString(builder, bytes, 0, bytes.length, false).length();
+        }
+        return length;
+    }
+
+    private static final String[] validIpAddresses = {
+            "192.168.1.0",
+            "10.255.255.254",
+            "fe80::200:5aee:feaa:20a2",
+            "2001:0000:4136:e378:8000:63bf:3fff:fdd2",
+            "::ffff:192.168.0.1",
+            "[::1%eth0]"
+    };
+
+    private static final AsciiString[] validAsciiIpAddresses = new AsciiString[validIpAddresses.length];
+    private static final InetAddress[] validInetAddresses = new InetAddress[validIpAddresses.length];
+    private static final byte[][] validAddressBytes = new byte[validIpAddresses.length][];
+
+    static {
+        for (int i = 0; i < validIpAddresses.length; i++) {
+            validAsciiIpAddresses[i] = new AsciiString(validIpAddresses[i]);
+            validAddressBytes[i] = NetUtil.createByteArrayFromIpAddressString(validIpAddresses[i]);
+            try {
+                validInetAddresses[i] = InetAddress.getByAddress(validAddressBytes[i]);
+            } catch (UnknownHostException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
     private static final Map<String, byte[]> invalidIpV4Hosts = new HashMap<String, byte[]>() {
         private static final long serialVersionUID = 1299215199895717282L;
         {
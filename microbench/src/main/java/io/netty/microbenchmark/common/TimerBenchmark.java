@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.HierarchicalWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HierarchicalWheelTimer} with {@link HashedWheelTimer} while a large number of long-dated timeouts,
+ * like idle timeouts of 10 to 40 minutes, is pending.
+ * <p>
+ * {@link #tick(WorkerCpu)} lets the timers tick for 10 milliseconds and reports the CPU time their worker thread used
+ * as the {@code workerCpuNanos} counter, so dividing it by the score gives the CPU time of 10 ticks.
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class TimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final TimerTask NOOP_TASK = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    };
+
+    @Param({ "hashed", "hierarchical" })
+    public String type;
+
+    @Param({ "1000000" })
+    public int pendingTimeouts;
+
+    private Timer timer;
+    private Thread worker;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                worker = new Thread(r, type + "-timer");
+                worker.setDaemon(true);
+                return worker;
+            }
+        };
+        if ("hashed".equals(type)) {
+            timer = new HashedWheelTimer(threadFactory, 1, TimeUnit.MILLISECONDS);
+        } else {
+            timer = new HierarchicalWheelTimer(threadFactory, 1, TimeUnit.MILLISECONDS);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < pendingTimeouts; i ++) {
+            timer.newTimeout(NOOP_TASK, 600000 + random.nextInt(1800000), TimeUnit.MILLISECONDS);
+        }
+        // Give the worker time to move the timeouts from its queue into the wheels.
+        Thread.sleep(pendingTimeouts / 100000 * 10 + 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        timer.stop();
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class WorkerCpu {
+        public long workerCpuNanos;
+    }
+
+    @Benchmark
+    public void tick(WorkerCpu cpu) throws InterruptedException {
+        long start = THREADS.getThreadCpuTime(worker.getId());
+        Thread.sleep(10);
+        cpu.workerCpuNanos += THREADS.getThreadCpuTime(worker.getId()) - start;
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return timer.newTimeout(NOOP_TASK, 30, TimeUnit.MINUTES).cancel();
+    }
+}
@@ -64,7 +64,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
     private final IntSupplier selectNowSupplier = new IntSupplier() {
         @Override
         public int get() throws Exception {
-            return Native.epollWait(epollFd.intValue(), events, 0);
+            return epollWaitNow();
         }
     };
     private final Callable<Integer> pendingTasksCallable = new Callable<Integer>() {
@@ -132,6 +132,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd.intValue(), 1L);
+            recordWakeup();
         }
     }
 
@@ -204,6 +205,10 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
+    private int epollWaitNow() throws IOException {
+        return Native.epollWait(epollFd.intValue(), events, 0);
+    }
+
     private int epollWait(boolean oldWakenUp) throws IOException {
         int selectCnt = 0;
         long currentTimeNanos = System.nanoTime();
@@ -251,8 +256,21 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        // Keep wakenUp set while busy waiting so other threads skip the eventfd write.
+                        if (wakenUp != 1) {
+                            WAKEN_UP_UPDATER.set(this, 1);
+                        }
+                        strategy = epollWaitNow();
+                        break;
                     case SelectStrategy.SELECT:
-                        strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        if (METRICS_ENABLED) {
+                            long selectStartTime = System.nanoTime();
+                            strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                            recordSelect(System.nanoTime() - selectStartTime);
+                        } else {
+                            strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -290,19 +308,16 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 }
 
                 final int ioRatio = this.ioRatio;
+                final long ioStartTime = System.nanoTime();
+                if (strategy > 0) {
+                    processReady(events, strategy);
+                }
+                final long ioTime = System.nanoTime() - ioStartTime;
+                recordIoTime(ioStartTime, ioTime);
+
                 if (ioRatio == 100) {
-                    if (strategy > 0) {
-                        processReady(events, strategy);
-                    }
                     runAllTasks();
                 } else {
-                    final long ioStartTime = System.nanoTime();
-
-                    if (strategy > 0) {
-                        processReady(events, strategy);
-                    }
-
-                    final long ioTime = System.nanoTime() - ioStartTime;
                     runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                 }
                 if (allowGrowing && strategy == events.length()) {
@@ -531,6 +531,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
 
                 neverRegistered = false;
                 registered = true;
+                if (eventLoop instanceof SingleThreadEventLoop) {
+                    ((SingleThreadEventLoop) eventLoop).channelRegistered();
+                }
 
                 // Ensure we call handlerAdded(...) before we actually notify the promise. This is needed as the
                 // user may already fire events through the pipeline in the ChannelFutureListener.
@@ -785,6 +788,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                         // if it was registered.
                         if (registered) {
                             registered = false;
+                            if (eventLoop instanceof SingleThreadEventLoop) {
+                                ((SingleThreadEventLoop) eventLoop).channelDeregistered();
+                            }
                             pipeline.fireChannelUnregistered();
                         }
                         safeSetSuccess(promise);
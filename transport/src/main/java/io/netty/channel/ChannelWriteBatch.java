@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.netty.channel.AbstractChannelHandlerContext.AbstractWriteTask.ESTIMATE_TASK_SIZE_ON_SUBMIT;
+import static io.netty.channel.AbstractChannelHandlerContext.AbstractWriteTask.WRITE_TASK_OVERHEAD;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Collects writes to {@link Channel}s of the same {@link EventLoop} and submits them to the {@link EventLoop} as a
+ * single task, so writing to many {@link Channel}s wakes up the {@link EventLoop} at most once. A batch that does
+ * not flush does not wake up the {@link EventLoop} at all, like {@link Channel#write(Object)} from outside of the
+ * {@link EventLoop}.
+ * <p>
+ * The estimated size of each message is added to the pending outbound bytes of its {@link Channel} when it is added
+ * to the batch, so {@link Channel#isWritable()} reflects the writes that are still queued.
+ */
+@UnstableApi
+public final class ChannelWriteBatch {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ChannelWriteBatch.class);
+
+    private static final int ST_NEW = 0;
+    private static final int ST_SUBMITTED = 1;
+    private static final int ST_DONE = 2;
+
+    private static final AtomicIntegerFieldUpdater<ChannelWriteBatch> STATE_UPDATER;
+
+    static {
+        AtomicIntegerFieldUpdater<ChannelWriteBatch> updater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(ChannelWriteBatch.class, "state");
+        if (updater == null) {
+            updater = AtomicIntegerFieldUpdater.newUpdater(ChannelWriteBatch.class, "state");
+        }
+        STATE_UPDATER = updater;
+    }
+
+    private final EventLoop eventLoop;
+    private final boolean flush;
+    private Channel[] channels = new Channel[4];
+    private Object[] messages = new Object[4];
+    private ChannelPromise[] promises = new ChannelPromise[4];
+    private int[] sizes = new int[4];
+    private int size;
+    private volatile int state;
+
+    /**
+     * Creates a new batch for the {@link Channel}s of {@code eventLoop}.
+     *
+     * @param flush {@code true} to flush each {@link Channel} after its message was written
+     */
+    public ChannelWriteBatch(EventLoop eventLoop, boolean flush) {
+        this.eventLoop = checkNotNull(eventLoop, "eventLoop");
+        this.flush = flush;
+    }
+
+    /**
+     * Adds a write of {@code msg} to {@code channel}, which must be registered with the {@link EventLoop} of this
+     * batch. The write is only performed after {@link #submit()} was called.
+     */
+    public void add(Channel channel, Object msg, ChannelPromise promise) {
+        checkNotNull(channel, "channel");
+        checkNotNull(msg, "msg");
+        checkNotNull(promise, "promise");
+        if (state != ST_NEW) {
+            throw new IllegalStateException("batch submitted already");
+        }
+        if (channel.eventLoop() != eventLoop) {
+            throw new IllegalArgumentException("channel not registered with " + eventLoop);
+        }
+        if (size == channels.length) {
+            int newLength = size << 1;
+            channels = Arrays.copyOf(channels, newLength);
+            messages = Arrays.copyOf(messages, newLength);
+            promises = Arrays.copyOf(promises, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+        }
+        int msgSize = 0;
+        if (ESTIMATE_TASK_SIZE_ON_SUBMIT) {
+            ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+            // Check for null as it may be set to null if the channel is closed already
+            if (buffer != null) {
+                msgSize = estimatorHandle(channel).size(msg) + WRITE_TASK_OVERHEAD;
+                buffer.incrementPendingOutboundBytes(msgSize);
+            }
+        }
+        channels[size] = channel;
+        messages[size] = msg;
+        promises[size] = promise;
+        sizes[size] = msgSize;
+        size ++;
+    }
+
+    /**
+     * Returns the number of writes in this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Submits all writes of this batch to the {@link EventLoop} as one task. If the {@link EventLoop} rejects the
+     * task, the promises of all writes are failed and their messages are released.
+     */
+    public void submit() {
+        if (!STATE_UPDATER.compareAndSet(this, ST_NEW, ST_SUBMITTED)) {
+            throw new IllegalStateException("batch submitted already");
+        }
+        if (size == 0) {
+            state = ST_DONE;
+            return;
+        }
+        try {
+            eventLoop.execute(flush ? new WriteAndFlushTask(this) : new WriteTask(this));
+        } catch (Throwable cause) {
+            // The task may still have been enqueued if the EventLoop failed after adding it, so only one of run() and
+            // fail(..) is allowed to handle the writes.
+            fail(cause);
+        }
+    }
+
+    private void run() {
+        if (!STATE_UPDATER.compareAndSet(this, ST_SUBMITTED, ST_DONE)) {
+            return;
+        }
+        for (int i = 0; i < size; i ++) {
+            Channel channel = channels[i];
+            ChannelPromise promise = promises[i];
+            try {
+                ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+                if (ESTIMATE_TASK_SIZE_ON_SUBMIT && buffer != null) {
+                    buffer.decrementPendingOutboundBytes(sizes[i]);
+                }
+                if (flush) {
+                    channel.writeAndFlush(messages[i], promise);
+                } else {
+                    channel.write(messages[i], promise);
+                }
+            } catch (Throwable cause) {
+                logger.warn("Failed to write to {}", channel, cause);
+                promise.tryFailure(cause);
+            }
+        }
+        clear();
+    }
+
+    private void fail(Throwable cause) {
+        if (!STATE_UPDATER.compareAndSet(this, ST_SUBMITTED, ST_DONE)) {
+            return;
+        }
+        for (int i = 0; i < size; i ++) {
+            try {
+                promises[i].tryFailure(cause);
+            } finally {
+                ReferenceCountUtil.release(messages[i]);
+            }
+        }
+        clear();
+    }
+
+    private void clear() {
+        // Set to null so the GC can collect them directly
+        Arrays.fill(channels, 0, size, null);
+        Arrays.fill(messages, 0, size, null);
+        Arrays.fill(promises, 0, size, null);
+    }
+
+    private static MessageSizeEstimator.Handle estimatorHandle(Channel channel) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline instanceof DefaultChannelPipeline) {
+            return ((DefaultChannelPipeline) pipeline).estimatorHandle();
+        }
+        return channel.config().getMessageSizeEstimator().newHandle();
+    }
+
+    private static final class WriteTask implements SingleThreadEventLoop.NonWakeupRunnable {
+        private final ChannelWriteBatch batch;
+
+        WriteTask(ChannelWriteBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            batch.run();
+        }
+    }
+
+    private static final class WriteAndFlushTask implements Runnable {
+        private final ChannelWriteBatch batch;
+
+        WriteAndFlushTask(ChannelWriteBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            batch.run();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Load metrics of an {@link EventLoop} which can be read from any {@link Thread} without blocking. The values are
+ * updated by the {@link EventLoop} itself and so may lag behind a little.
+ */
+@UnstableApi
+public interface EventLoopLoadMetrics {
+
+    /**
+     * Returns the number of {@link Channel}s which are currently registered to the {@link EventLoop}.
+     */
+    int registeredChannels();
+
+    /**
+     * Returns the number of tasks which were pending at the start of the last event loop iteration.
+     */
+    int recentPendingTasks();
+
+    /**
+     * Returns the time in nanoseconds the {@link EventLoop} spent on processing I/O during the last second.
+     */
+    long recentIoTimeNanos();
+}
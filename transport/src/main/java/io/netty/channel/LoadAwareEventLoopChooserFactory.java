@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.ThreadLocalRandom;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventExecutorChooserFactory} which balances {@link Channel} registrations by the live
+ * {@link EventLoopLoadMetrics} of the {@link EventLoop}s. It uses the power of two choices: two random
+ * {@link EventLoop}s are picked and the one with the lower load is used. This avoids that all new {@link Channel}s
+ * pile onto the same {@link EventLoop} because of slightly stale metrics.
+ *
+ * <p>The load of an {@link EventLoop} is the sum of its registered {@link Channel}s, its pending tasks and its recent
+ * I/O time, where every {@code ioTimeNanosPerChannel} of I/O per second count as one {@link Channel}.
+ *
+ * <p>If not all {@link EventExecutor}s implement {@link EventLoopLoadMetrics} the round-robin chooser of
+ * {@link DefaultEventExecutorChooserFactory} is used.
+ */
+@UnstableApi
+public final class LoadAwareEventLoopChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LoadAwareEventLoopChooserFactory INSTANCE =
+            new LoadAwareEventLoopChooserFactory(TimeUnit.MILLISECONDS.toNanos(1));
+
+    private final long ioTimeNanosPerChannel;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param ioTimeNanosPerChannel the I/O time in nanoseconds per second which weighs as much as one registered
+     *                              {@link Channel}.
+     */
+    public LoadAwareEventLoopChooserFactory(long ioTimeNanosPerChannel) {
+        this.ioTimeNanosPerChannel = ObjectUtil.checkPositive(ioTimeNanosPerChannel, "ioTimeNanosPerChannel");
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length < 2) {
+            return DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        }
+        EventLoopLoadMetrics[] metrics = new EventLoopLoadMetrics[executors.length];
+        for (int i = 0; i < executors.length; i ++) {
+            if (!(executors[i] instanceof EventLoopLoadMetrics)) {
+                return DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+            }
+            metrics[i] = (EventLoopLoadMetrics) executors[i];
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors, metrics, ioTimeNanosPerChannel);
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final EventLoopLoadMetrics[] metrics;
+        private final long ioTimeNanosPerChannel;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors, EventLoopLoadMetrics[] metrics,
+                                              long ioTimeNanosPerChannel) {
+            this.executors = executors;
+            this.metrics = metrics;
+            this.ioTimeNanosPerChannel = ioTimeNanosPerChannel;
+        }
+
+        @Override
+        public EventExecutor next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int length = executors.length;
+            int a = random.nextInt(length);
+            int b = random.nextInt(length - 1);
+            if (b >= a) {
+                b ++;
+            }
+            return load(metrics[a]) <= load(metrics[b]) ? executors[a] : executors[b];
+        }
+
+        private long load(EventLoopLoadMetrics metrics) {
+            return (long) metrics.registeredChannels() + metrics.recentPendingTasks() +
+                   metrics.recentIoTimeNanos() / ioTimeNanosPerChannel;
+        }
+    }
+}
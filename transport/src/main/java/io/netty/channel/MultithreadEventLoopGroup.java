@@ -15,9 +15,11 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -39,13 +41,16 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(MultithreadEventLoopGroup.class);
 
     private static final int DEFAULT_EVENT_LOOP_THREADS;
+    private static final boolean LOAD_AWARE_CHOOSER;
 
     static {
         DEFAULT_EVENT_LOOP_THREADS = Math.max(1, SystemPropertyUtil.getInt(
                 "io.netty.eventLoopThreads", Runtime.getRuntime().availableProcessors() * 2));
+        LOAD_AWARE_CHOOSER = SystemPropertyUtil.getBoolean("io.netty.eventLoopGroup.loadAwareChooser", false);
 
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.eventLoopThreads: {}", DEFAULT_EVENT_LOOP_THREADS);
+            logger.debug("-Dio.netty.eventLoopGroup.loadAwareChooser: {}", LOAD_AWARE_CHOOSER);
         }
     }
 
@@ -53,14 +58,15 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
      * @see {@link MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, Executor, Object...)}
      */
     protected MultithreadEventLoopGroup(int nThreads, Executor executor, Object... args) {
-        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, executor, args);
+        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, executor, defaultChooserFactory(), args);
     }
 
     /**
      * @see {@link MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, ThreadFactory, Object...)}
      */
     protected MultithreadEventLoopGroup(int nThreads, ThreadFactory threadFactory, Object... args) {
-        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, threadFactory, args);
+        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads,
+              threadFactory == null ? null : new ThreadPerTaskExecutor(threadFactory), defaultChooserFactory(), args);
     }
 
     /**
@@ -72,6 +78,15 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
         super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, executor, chooserFactory, args);
     }
 
+    /**
+     * Returns the {@link EventExecutorChooserFactory} which is used if none is given explicitly. This is the
+     * {@link LoadAwareEventLoopChooserFactory} if {@code -Dio.netty.eventLoopGroup.loadAwareChooser=true} is set.
+     */
+    private static EventExecutorChooserFactory defaultChooserFactory() {
+        return LOAD_AWARE_CHOOSER ? LoadAwareEventLoopChooserFactory.INSTANCE
+                                  : DefaultEventExecutorChooserFactory.INSTANCE;
+    }
+
     @Override
     protected ThreadFactory newDefaultThreadFactory() {
         return new DefaultThreadFactory(getClass(), Thread.MAX_PRIORITY);
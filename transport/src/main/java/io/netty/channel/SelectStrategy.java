@@ -33,6 +33,11 @@ public interface SelectStrategy {
      * Indicates the IO loop should be retried, no blocking select to follow directly.
      */
     int CONTINUE = -2;
+    /**
+     * Indicates the IO loop should poll for new events without blocking and process them. While the IO loop is busy
+     * waiting other threads do not need to wake it up.
+     */
+    int BUSY_WAIT = -3;
 
     /**
      * The {@link SelectStrategy} can be used to steer the outcome of a potential select
@@ -42,7 +47,8 @@ public interface SelectStrategy {
      * @param hasTasks true if tasks are waiting to be processed.
      * @return {@link #SELECT} if the next step should be blocking select {@link #CONTINUE} if
      *         the next step should be to not select but rather jump back to the IO loop and try
-     *         again. Any value >= 0 is treated as an indicator that work needs to be done.
+     *         again, {@link #BUSY_WAIT} if the next step should be a non-blocking select.
+     *         Any value >= 0 is treated as an indicator that work needs to be done.
      */
     int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception;
 }
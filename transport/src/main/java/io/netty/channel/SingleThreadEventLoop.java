@@ -25,18 +25,30 @@ import io.netty.util.internal.UnstableApi;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract base class for {@link EventLoop}s that execute all its submitted tasks in a single thread.
  *
  */
-public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor implements EventLoop {
+public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor
+        implements EventLoop, EventLoopLoadMetrics {
 
     protected static final int DEFAULT_MAX_PENDING_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventLoop.maxPendingTasks", Integer.MAX_VALUE));
 
+    private static final long IO_TIME_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
     private final Queue<Runnable> tailTasks;
 
+    // Only written by the event loop thread, volatile so the values can be read by other threads.
+    private volatile int registeredChannels;
+    private volatile int recentPendingTasks;
+    private volatile long recentIoTimeNanos;
+    // Only accessed by the event loop thread.
+    private long ioTimeWindowStart = System.nanoTime();
+    private long ioTimeInWindow;
+
     protected SingleThreadEventLoop(EventLoopGroup parent, ThreadFactory threadFactory, boolean addTaskWakesUp) {
         this(parent, threadFactory, addTaskWakesUp, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject());
     }
@@ -101,6 +113,58 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return promise;
     }
 
+    @Override
+    public int registeredChannels() {
+        return registeredChannels;
+    }
+
+    @Override
+    public int recentPendingTasks() {
+        return recentPendingTasks;
+    }
+
+    @Override
+    public long recentIoTimeNanos() {
+        return recentIoTimeNanos;
+    }
+
+    /**
+     * Called by the {@link AbstractChannel} from within the event loop once it was registered to it.
+     */
+    final void channelRegistered() {
+        registeredChannels ++;
+    }
+
+    /**
+     * Called by the {@link AbstractChannel} from within the event loop once it was deregistered from it.
+     */
+    final void channelDeregistered() {
+        registeredChannels --;
+    }
+
+    /**
+     * Records the time spent on processing I/O during one event loop iteration so it is reflected by
+     * {@link #recentIoTimeNanos()}, {@link #recentPendingTasks()} and the {@link #metrics()}. Must be called from
+     * within the event loop.
+     *
+     * @param ioStartTime   the value of {@link System#nanoTime()} when processing I/O was started.
+     * @param ioTime        the time in nanoseconds spent on processing I/O.
+     */
+    @UnstableApi
+    protected final void recordIoTime(long ioStartTime, long ioTime) {
+        assert inEventLoop();
+        recordIoProcessing(ioTime);
+        recentPendingTasks = super.pendingTasks() + tailTasks.size();
+        ioTimeInWindow += ioTime;
+        long elapsed = ioStartTime + ioTime - ioTimeWindowStart;
+        if (elapsed >= IO_TIME_WINDOW) {
+            // The event loop may have been blocked for longer than the window, scale the result to one second.
+            recentIoTimeNanos = (long) (ioTimeInWindow * ((double) IO_TIME_WINDOW / elapsed));
+            ioTimeInWindow = 0;
+            ioTimeWindowStart = ioStartTime + ioTime;
+        }
+    }
+
     /**
      * Adds a task to be run once at the end of next (or current) {@code eventloop} iteration.
      *
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link SelectStrategyFactory} for latency critical event loops which trade CPU for latency. Instead of blocking in
+ * {@code select(...)} or {@code epoll_wait(...)} the event loop polls for new events via {@link SelectStrategy#BUSY_WAIT}.
+ * While an event loop is busy waiting other threads do not need to wake it up, so adding a task does not need a
+ * {@code Selector.wakeup()} or {@code eventfd} write.
+ *
+ * <p>Three wait strategies are provided:
+ * <ul>
+ *     <li>{@link #busySpin()} never blocks.</li>
+ *     <li>{@link #spinThenPark(int)} polls a number of times after the last task was found and then blocks as
+ *     usual until the next event or task arrives.</li>
+ *     <li>{@link #backoff(int, int)} is like {@link #spinThenPark(int)} but also calls {@link Thread#yield()} between
+ *     the polls for a number of times before it blocks.</li>
+ * </ul>
+ */
+@UnstableApi
+public final class SpinWaitSelectStrategyFactory implements SelectStrategyFactory {
+
+    private static final SelectStrategyFactory BUSY_SPIN = new SpinWaitSelectStrategyFactory(-1, 0);
+
+    private final int spinIterations;
+    private final int yieldIterations;
+
+    private SpinWaitSelectStrategyFactory(int spinIterations, int yieldIterations) {
+        this.spinIterations = spinIterations;
+        this.yieldIterations = yieldIterations;
+    }
+
+    /**
+     * Returns a {@link SelectStrategyFactory} whose event loops never block but always poll for new events.
+     */
+    public static SelectStrategyFactory busySpin() {
+        return BUSY_SPIN;
+    }
+
+    /**
+     * Returns a {@link SelectStrategyFactory} whose event loops poll {@code spinIterations} times for new events once
+     * there are no tasks left before blocking.
+     */
+    public static SelectStrategyFactory spinThenPark(int spinIterations) {
+        return backoff(spinIterations, 0);
+    }
+
+    /**
+     * Returns a {@link SelectStrategyFactory} whose event loops poll {@code spinIterations} times for new events once
+     * there are no tasks left, then poll {@code yieldIterations} more times while yielding the CPU in between and
+     * then block.
+     */
+    public static SelectStrategyFactory backoff(int spinIterations, int yieldIterations) {
+        return new SpinWaitSelectStrategyFactory(ObjectUtil.checkPositiveOrZero(spinIterations, "spinIterations"),
+                                                 ObjectUtil.checkPositiveOrZero(yieldIterations, "yieldIterations"));
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        return new SpinWaitSelectStrategy(spinIterations, yieldIterations);
+    }
+
+    /**
+     * Created per event loop as it keeps track of the number of idle iterations.
+     */
+    static final class SpinWaitSelectStrategy implements SelectStrategy {
+        private final int spinIterations;
+        private final int yieldIterations;
+        private int idleIterations;
+
+        SpinWaitSelectStrategy(int spinIterations, int yieldIterations) {
+            this.spinIterations = spinIterations;
+            this.yieldIterations = yieldIterations;
+        }
+
+        @Override
+        public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+            if (hasTasks || spinIterations < 0) {
+                idleIterations = 0;
+                return SelectStrategy.BUSY_WAIT;
+            }
+            int idleIterations = ++ this.idleIterations;
+            if (idleIterations <= spinIterations) {
+                return SelectStrategy.BUSY_WAIT;
+            }
+            if (idleIterations <= spinIterations + yieldIterations) {
+                Thread.yield();
+                return SelectStrategy.BUSY_WAIT;
+            }
+            // Spin again once the event loop was woken up.
+            this.idleIterations = 0;
+            return SelectStrategy.SELECT;
+        }
+    }
+}
@@ -21,6 +21,9 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelWriteBatch;
+import io.netty.channel.EventLoop;
 import io.netty.channel.ServerChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
@@ -30,6 +33,7 @@ import io.netty.util.internal.StringUtil;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -267,25 +271,53 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
             throw new NullPointerException("matcher");
         }
 
-        final ChannelGroupFuture future;
-        if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.write(safeDuplicate(message), c.voidPromise());
-                }
+        return write0(message, matcher, voidPromise, false);
+    }
+
+    /**
+     * Writes the message to all matching channels. Writes to channels of other {@link EventLoop}s are grouped per
+     * {@link EventLoop} into a {@link ChannelWriteBatch}, so each {@link EventLoop} is woken up at most once instead of
+     * once per channel.
+     */
+    private ChannelGroupFuture write0(Object message, ChannelMatcher matcher, boolean voidPromise, boolean flush) {
+        Map<Channel, ChannelFuture> futures =
+                voidPromise ? null : new LinkedHashMap<Channel, ChannelFuture>(size());
+        Map<EventLoop, ChannelWriteBatch> batches = null;
+        for (Channel c: nonServerChannels.values()) {
+            if (!matcher.matches(c)) {
+                continue;
             }
-            future = voidFuture;
-        } else {
-            Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.write(safeDuplicate(message)));
+            ChannelPromise promise = voidPromise ? c.voidPromise() : c.newPromise();
+            if (futures != null) {
+                futures.put(c, promise);
+            }
+            Object msg = safeDuplicate(message);
+            if (!c.isRegistered() || c.eventLoop().inEventLoop()) {
+                if (flush) {
+                    c.writeAndFlush(msg, promise);
+                } else {
+                    c.write(msg, promise);
                 }
+                continue;
+            }
+            if (batches == null) {
+                batches = new IdentityHashMap<EventLoop, ChannelWriteBatch>();
+            }
+            EventLoop loop = c.eventLoop();
+            ChannelWriteBatch batch = batches.get(loop);
+            if (batch == null) {
+                batch = new ChannelWriteBatch(loop, flush);
+                batches.put(loop, batch);
+            }
+            batch.add(c, msg, promise);
+        }
+        if (batches != null) {
+            for (ChannelWriteBatch batch: batches.values()) {
+                batch.submit();
             }
-            future = new DefaultChannelGroupFuture(this, futures, executor);
         }
         ReferenceCountUtil.release(message);
-        return future;
+        return futures == null ? voidFuture : new DefaultChannelGroupFuture(this, futures, executor);
     }
 
     @Override
@@ -407,26 +439,10 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
         if (message == null) {
             throw new NullPointerException("message");
         }
-
-        final ChannelGroupFuture future;
-        if (voidPromise) {
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    c.writeAndFlush(safeDuplicate(message), c.voidPromise());
-                }
-            }
-            future = voidFuture;
-        } else {
-            Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
-            for (Channel c: nonServerChannels.values()) {
-                if (matcher.matches(c)) {
-                    futures.put(c, c.writeAndFlush(safeDuplicate(message)));
-                }
-            }
-            future = new DefaultChannelGroupFuture(this, futures, executor);
+        if (matcher == null) {
+            throw new NullPointerException("matcher");
         }
-        ReferenceCountUtil.release(message);
-        return future;
+        return write0(message, matcher, voidPromise, true);
     }
 
     @Override
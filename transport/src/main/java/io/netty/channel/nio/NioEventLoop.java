@@ -382,8 +382,17 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 switch (selectStrategy.calculateStrategy(selectNowSupplier, hasTasks())) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        busyWaitNow();
+                        break;
                     case SelectStrategy.SELECT:
-                        select(wakenUp.getAndSet(false));
+                        if (METRICS_ENABLED) {
+                            long selectStartTime = System.nanoTime();
+                            select(wakenUp.getAndSet(false));
+                            recordSelect(System.nanoTime() - selectStartTime);
+                        } else {
+                            select(wakenUp.getAndSet(false));
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -423,16 +432,14 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
+                final long ioStartTime = System.nanoTime();
+                processSelectedKeys();
+                final long ioTime = System.nanoTime() - ioStartTime;
+                recordIoTime(ioStartTime, ioTime);
+
                 if (ioRatio == 100) {
-                    processSelectedKeys();
                     runAllTasks();
                 } else {
-                    final long ioStartTime = System.nanoTime();
-
-                    //
-                    processSelectedKeys();
-
-                    final long ioTime = System.nanoTime() - ioStartTime;
                     runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                 }
 
@@ -693,6 +700,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && wakenUp.compareAndSet(false, true)) {
             selector.wakeup();
+            recordWakeup();
         }
     }
 
@@ -707,6 +715,19 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Polls the {@link Selector} without blocking. In contrast to {@link #selectNow()} the wakeup state is not
+     * restored via {@link Selector#wakeup()}: {@code wakenUp} stays {@code true} while busy waiting so other threads
+     * skip the wakeup entirely. Tasks added in the meantime are picked up by the next iteration or by the
+     * {@code hasTasks()} check in {@link #select(boolean)} once the event loop blocks again.
+     */
+    private void busyWaitNow() throws IOException {
+        if (!wakenUp.get()) {
+            wakenUp.set(true);
+        }
+        selector.selectNow();
+    }
+
     private void select(boolean oldWakenUp) throws IOException {
         Selector selector = this.selector;
         try {
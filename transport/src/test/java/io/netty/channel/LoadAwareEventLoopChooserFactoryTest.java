@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.local.LocalChannel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class LoadAwareEventLoopChooserFactoryTest {
+
+    @Test(timeout = 5000)
+    public void testChoosesLessLoadedEventLoop() throws Exception {
+        DefaultEventLoop loopA = new DefaultEventLoop();
+        DefaultEventLoop loopB = new DefaultEventLoop();
+        try {
+            EventExecutorChooser chooser =
+                    LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(new EventExecutor[] { loopA, loopB });
+
+            final CountDownLatch unregistered = new CountDownLatch(1);
+            LocalChannel channel = new LocalChannel();
+            channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelUnregistered(ChannelHandlerContext ctx) {
+                    unregistered.countDown();
+                }
+            });
+            loopA.register(channel).syncUninterruptibly();
+            assertEquals(1, loopA.registeredChannels());
+            assertEquals(0, loopB.registeredChannels());
+
+            // With two event loops both are compared every time, so the less loaded one always wins.
+            for (int i = 0; i < 16; i ++) {
+                assertSame(loopB, chooser.next());
+            }
+
+            channel.close().syncUninterruptibly();
+            // The deregistration is done later on the event loop, the count is updated before channelUnregistered.
+            unregistered.await();
+            assertEquals(0, loopA.registeredChannels());
+        } finally {
+            loopA.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            loopB.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testFallbackWithoutMetrics() {
+        EventExecutorChooser chooser = LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(
+                new EventExecutor[] { ImmediateEventExecutor.INSTANCE, ImmediateEventExecutor.INSTANCE });
+        assertNotNull(chooser.next());
+    }
+}
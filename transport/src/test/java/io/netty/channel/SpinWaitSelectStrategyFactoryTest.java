@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpinWaitSelectStrategyFactoryTest {
+
+    private static final IntSupplier SUPPLIER = new IntSupplier() {
+        @Override
+        public int get() {
+            throw new AssertionError("should not be called");
+        }
+    };
+
+    @Test
+    public void testBusySpinNeverBlocks() throws Exception {
+        SelectStrategy strategy = SpinWaitSelectStrategyFactory.busySpin().newSelectStrategy();
+        for (int i = 0; i < 1000; i ++) {
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, false));
+        }
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        SelectStrategy strategy = SpinWaitSelectStrategyFactory.backoff(2, 1).newSelectStrategy();
+        for (int round = 0; round < 2; round ++) {
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, false));
+            // Tasks reset the idle iterations.
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, true));
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, false));
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, false));
+            // Yield.
+            assertEquals(SelectStrategy.BUSY_WAIT, strategy.calculateStrategy(SUPPLIER, false));
+            assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(SUPPLIER, false));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSpinIterations() {
+        SpinWaitSelectStrategyFactory.spinThenPark(-1);
+    }
+}
@@ -16,15 +16,39 @@
 package io.netty.channel.group;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelWriteBatch;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.local.LocalChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class DefaultChannnelGroupTest {
 
     // Test for #1183
@@ -57,4 +81,119 @@ public class DefaultChannnelGroupTest {
         bossGroup.terminationFuture().sync();
         workerGroup.terminationFuture().sync();
     }
+
+    @Test
+    public void testWriteAndFlushBatchedPerEventLoop() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        try {
+            final Queue<Object> written = new ConcurrentLinkedQueue<Object>();
+            ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+            List<Channel> registered = new ArrayList<Channel>();
+            for (int i = 0; i < 8; i++) {
+                Channel ch = new LocalChannel();
+                ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                        written.add(msg);
+                        promise.setSuccess();
+                    }
+                });
+                group.next().register(ch).syncUninterruptibly();
+                channels.add(ch);
+                registered.add(ch);
+            }
+
+            ChannelGroupFuture future = channels.writeAndFlush("msg").syncUninterruptibly();
+            assertTrue(future.isSuccess());
+            assertEquals(registered.size(), written.size());
+
+            written.clear();
+            channels.write("msg", ChannelMatchers.all(), true);
+            // Tasks of the same EventLoop run in order, so the void writes have completed once this one has.
+            channels.writeAndFlush("msg").syncUninterruptibly();
+            assertEquals(registered.size() * 2, written.size());
+            channels.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testWriteToRejectingEventLoopFailsAndReleases() throws Exception {
+        final AtomicBoolean reject = new AtomicBoolean();
+        EventLoop loop = new DefaultEventLoop() {
+            @Override
+            public void execute(Runnable task) {
+                // Only reject the write batches, the promises still notify their listeners via this EventLoop.
+                if (reject.get() && task.getClass().getEnclosingClass() == ChannelWriteBatch.class) {
+                    throw new RejectedExecutionException();
+                }
+                super.execute(task);
+            }
+        };
+        try {
+            ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+            for (int i = 0; i < 4; i++) {
+                Channel ch = new LocalChannel();
+                loop.register(ch).syncUninterruptibly();
+                channels.add(ch);
+            }
+            reject.set(true);
+
+            ByteBuf buf = Unpooled.buffer().writeInt(1);
+            ChannelGroupFuture future = channels.writeAndFlush(buf).awaitUninterruptibly();
+            assertFalse(future.isSuccess());
+            assertEquals(4, future.group().size());
+            for (ChannelFuture f: future) {
+                assertTrue(f.cause() instanceof RejectedExecutionException);
+            }
+            assertEquals(0, buf.refCnt());
+
+            channels.close().syncUninterruptibly();
+        } finally {
+            loop.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testQueuedWritesCountAsPendingBytes() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        try {
+            final Queue<Object> written = new ConcurrentLinkedQueue<Object>();
+            Channel ch = new LocalChannel();
+            ch.config().setWriteBufferWaterMark(new WriteBufferWaterMark(512, 1024));
+            ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                @Override
+                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                    written.add(msg);
+                    promise.setSuccess();
+                }
+            });
+            group.next().register(ch).syncUninterruptibly();
+            ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+            channels.add(ch);
+
+            // Block the EventLoop so the batch stays queued.
+            final CountDownLatch latch = new CountDownLatch(1);
+            ch.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            ChannelGroupFuture future = channels.write(Unpooled.buffer().writeZero(2048));
+            assertFalse(ch.isWritable());
+            latch.countDown();
+            future.syncUninterruptibly();
+            assertEquals(1, written.size());
+            ReferenceCountUtil.release(written.poll());
+            channels.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
 }
@@ -16,9 +16,20 @@
 package io.netty.channel.nio;
 
 import io.netty.channel.AbstractEventLoopTest;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SelectStrategyFactory;
+import io.netty.channel.SpinWaitSelectStrategyFactory;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.Test;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
 
 public class NioEventLoopTest extends AbstractEventLoopTest {
 
@@ -31,4 +42,44 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
     protected Class<? extends ServerSocketChannel> newChannel() {
         return NioServerSocketChannel.class;
     }
+
+    @Test(timeout = 5000)
+    public void testBusySpin() throws Exception {
+        testSpinWait(SpinWaitSelectStrategyFactory.busySpin());
+    }
+
+    @Test(timeout = 5000)
+    public void testSpinThenPark() throws Exception {
+        testSpinWait(SpinWaitSelectStrategyFactory.spinThenPark(16));
+    }
+
+    @Test(timeout = 5000)
+    public void testBackoff() throws Exception {
+        testSpinWait(SpinWaitSelectStrategyFactory.backoff(16, 16));
+    }
+
+    private static void testSpinWait(SelectStrategyFactory factory) throws Exception {
+        EventLoopGroup group = new NioEventLoopGroup(1, (ThreadFactory) null, SelectorProvider.provider(), factory);
+        try {
+            EventLoop loop = group.next();
+            for (int i = 0; i < 100; i ++) {
+                final CountDownLatch latch = new CountDownLatch(2);
+                Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                };
+                loop.execute(task);
+                loop.schedule(task, 1, TimeUnit.MILLISECONDS);
+                assertTrue(latch.await(1, TimeUnit.SECONDS));
+                if (i % 10 == 0) {
+                    // Give the event loop the chance to block.
+                    Thread.sleep(5);
+                }
+            }
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
 }